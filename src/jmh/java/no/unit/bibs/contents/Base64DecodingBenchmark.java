@@ -0,0 +1,78 @@
+package no.unit.bibs.contents;
+
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the regex check followed by java.util.Base64 decoding that StorageClient used to run on inline media
+ * with the single-pass Base64Helper.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Base64DecodingBenchmark {
+
+    private static final String BASE64_REGEX =
+            "^(?:[A-Za-z0-9+\\/]{4})*(?:[A-Za-z0-9+\\/]{2}==|[A-Za-z0-9+\\/]{3}=|[A-Za-z0-9+\\/]{4})$";
+
+    /**
+     * Size of the decoded inline file. The regex baseline recurses per quartet, so larger inputs risk a
+     * StackOverflowError in the baseline rather than a measurement.
+     */
+    @Param({"16384", "262144"})
+    public int fileSize;
+
+    private String inlineFile;
+    private String url;
+
+    /**
+     * Creates a random inline file and a url of the kind suppliers send instead.
+     */
+    @Setup
+    public void setUp() {
+        byte[] bytes = new byte[fileSize];
+        new Random(fileSize).nextBytes(bytes);
+        inlineFile = Base64.getEncoder().encodeToString(bytes);
+        url = "https://media.example.com/covers/9788205377547/original.jpg";
+    }
+
+    @Benchmark
+    public byte[] regexThenDecode() {
+        if (Pattern.compile(BASE64_REGEX).matcher(inlineFile).matches()) {
+            return Base64.getDecoder().decode(inlineFile);
+        }
+        return new byte[0];
+    }
+
+    @Benchmark
+    public Optional<byte[]> singlePassDecode() {
+        return Base64Helper.decode(inlineFile);
+    }
+
+    @Benchmark
+    public boolean regexRejectsUrl() {
+        return Pattern.compile(BASE64_REGEX).matcher(url).matches();
+    }
+
+    @Benchmark
+    public Optional<byte[]> singlePassRejectsUrl() {
+        return Base64Helper.decode(url);
+    }
+}
@@ -0,0 +1,87 @@
+package no.unit.bibs.contents;
+
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Documents shaped like the ones suppliers send, shared by the benchmarks.
+ */
+public final class BenchmarkDocuments {
+
+    public static final String ISBN = "9788205377547";
+    public static final String DESCRIPTION_SHORT = "Etter å ha brutt opp fra sin sakførerpraksis i Norge, reiste "
+            + "Ingstad til arktiske Canada, der han levde i fire år som pelsjeger.";
+    public static final String DESCRIPTION_LONG = DESCRIPTION_SHORT + " Pelsjegerliv er beretningen om hans "
+            + "opplevelser i denne tiden. Boken ble utgitt i 1931 og er hans f&oslash;rste av i alt tolv "
+            + "b&oslash;ker. ";
+    public static final String REVIEW = "Ingstad skriver nøkternt og presist om et liv de færreste av oss kan "
+            + "forestille seg. Han forteller om fangstlinjer som strakte seg over mils avstand, om vintre der "
+            + "kvikksølvet frøs i termometeret, og om ukene alene i hytta mens stormen feide over tundraen. Det er "
+            + "likevel møtet med chipewyan-indianerne som gjør boken til noe mer enn en fangstberetning. Forfatteren "
+            + "lærer språket deres, reiser med dem etter caribouflokkene og deler både sult og overflod. Skildringene "
+            + "av jakten er levende uten å bli romantiske, og han legger ikke skjul på hvor hardt livet var for "
+            + "folket han bodde blant. Enkelte kapitler preges av tidens syn på urfolk, men det store inntrykket er "
+            + "respekt og nysgjerrighet. Språket er klart og lett, og de mange detaljene om utstyr, hunder, sleder "
+            + "og fangstteknikker gjør boken til en kilde også for den som er interessert i nordlig kulturhistorie. "
+            + "Nyutgivelsen har fått et etterord som setter reisen inn i sammenheng med Ingstads senere arbeid, fra "
+            + "sysselmannstiden på Svalbard til utgravningene på L'Anse aux Meadows. Fotografiene fra "
+            + "originalutgaven er gjengitt i god kvalitet, og kartet over fangstområdet ved Great Slave Lake gjør det "
+            + "lettere å følge ferdene. Dette er en klassiker som fortjener nye lesere.";
+    private static final String[] CHAPTERS = {"Ut i villmarken", "Ved Great Slave Lake", "Den første vinteren",
+        "Fangstlinjen", "Hundene", "Caribouflokkene", "Blant chipewyanene", "Våren kommer", "Kanoferden nordover",
+        "Thelon-elven", "Sult", "Ensomhet", "Handelsstedet", "Gamle jegere forteller", "Hjem"};
+    private static final int SMALL_IMAGE_BYTES = 8 * 1024;
+    private static final String INLINE_IMAGE = randomBase64(SMALL_IMAGE_BYTES);
+
+    private BenchmarkDocuments() {
+    }
+
+    /**
+     * Creates a document with descriptions and a table of contents but no files.
+     *
+     * @param isbn isbn of the document
+     * @return document
+     */
+    public static ContentsDocument textOnly(String isbn) {
+        return new ContentsDocument("Pelsjegerliv blandt Nord-Canadas indianere", "Helge Ingstad", "1931", isbn,
+                DESCRIPTION_SHORT, DESCRIPTION_LONG.repeat(4), "Kapittel 1 Kapittel 2 Kapittel 3 ".repeat(20),
+                null, null, null, null, null, null, null, "BOKBASE", null, null);
+    }
+
+    /**
+     * Creates a document with every text field filled in, with long texts of the sizes suppliers send for a
+     * richly described book.
+     *
+     * @param isbn isbn of the document
+     * @return document
+     */
+    public static ContentsDocument fullText(String isbn) {
+        StringBuilder tableOfContents = new StringBuilder();
+        for (int chapter = 0; chapter < CHAPTERS.length; chapter++) {
+            tableOfContents.append(String.format("Kapittel %d. %s ........ %d%n", chapter + 1, CHAPTERS[chapter],
+                    chapter * 17 + 9));
+        }
+        return new ContentsDocument("Pelsjegerliv blandt Nord-Canadas indianere", "Helge Ingstad", "1931", isbn,
+                DESCRIPTION_SHORT, DESCRIPTION_LONG + REVIEW, tableOfContents.toString(), DESCRIPTION_SHORT,
+                DESCRIPTION_LONG, REVIEW + " " + REVIEW.substring(REVIEW.length() / 2), null, null, null, null,
+                "BOKBASE", null, null);
+    }
+
+    /**
+     * Creates a document with a small cover sent inline as base64. The cover is replaced by its object key when the
+     * document is written, so write a new document each time.
+     *
+     * @param isbn isbn of the document
+     * @return document
+     */
+    public static ContentsDocument withInlineImage(String isbn) {
+        return new ContentsDocument("Pelsjegerliv blandt Nord-Canadas indianere", "Helge Ingstad", "1931", isbn,
+                DESCRIPTION_SHORT, null, null, null, null, null, INLINE_IMAGE, null, null, null, "BOKBASE", null, null);
+    }
+
+    private static String randomBase64(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,43 @@
+package no.unit.bibs.contents;
+
+import static nva.commons.apigateway.ApiGatewayHandler.ALLOWED_ORIGIN_ENV;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import nva.commons.core.Environment;
+
+/**
+ * Environment of a deployed handler, without reading the variables of the machine running the benchmarks.
+ */
+public class BenchmarkEnvironment extends Environment {
+
+    private static final String ANY_ORIGIN = "*";
+
+    private final Map<String, String> variables = new HashMap<>();
+
+    public BenchmarkEnvironment() {
+        this(Map.of());
+    }
+
+    /**
+     * Creates an environment with the given variables in addition to ALLOWED_ORIGIN.
+     *
+     * @param variables variables by name
+     */
+    public BenchmarkEnvironment(Map<String, String> variables) {
+        super();
+        this.variables.put(ALLOWED_ORIGIN_ENV, ANY_ORIGIN);
+        this.variables.putAll(variables);
+    }
+
+    @Override
+    public String readEnv(String variableName) {
+        return variables.get(variableName);
+    }
+
+    @Override
+    public Optional<String> readEnvOpt(String variableName) {
+        return Optional.ofNullable(readEnv(variableName));
+    }
+}
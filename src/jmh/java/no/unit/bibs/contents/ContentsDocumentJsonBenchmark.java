@@ -0,0 +1,47 @@
+package no.unit.bibs.contents;
+
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializing a ContentsDocument for a response and deserializing a ContentsRequest from a request body.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentsDocumentJsonBenchmark {
+
+    private ContentsDocument document;
+    private String requestBody;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        document = BenchmarkDocuments.textOnly(BenchmarkDocuments.ISBN);
+        requestBody = dtoObjectMapper.writeValueAsString(new ContentsRequest(document));
+    }
+
+    @Benchmark
+    public String serializeDocument() throws JsonProcessingException {
+        return dtoObjectMapper.writeValueAsString(document);
+    }
+
+    @Benchmark
+    public ContentsRequest deserializeRequest() throws JsonProcessingException {
+        return dtoObjectMapper.readValue(requestBody, ContentsRequest.class);
+    }
+}
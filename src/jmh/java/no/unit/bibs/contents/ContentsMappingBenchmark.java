@@ -0,0 +1,73 @@
+package no.unit.bibs.contents;
+
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Compares reading a DynamoDB item the way GET used to, through a Map of strings serialized to json and parsed back
+ * by the handler, with mapping the AttributeValues straight into a ContentsDocument.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentsMappingBenchmark {
+
+    private Map<String, AttributeValue> item;
+
+    /**
+     * Creates an item of the size of a typical book with descriptions and a table of contents.
+     */
+    @Setup
+    public void setUp() {
+        item = new HashMap<>();
+        put(ContentsDocument.ISBN, "9788205377547");
+        put(ContentsDocument.TITLE, "Pelsjegerliv blandt Nord-Canadas indianere");
+        put(ContentsDocument.AUTHOR, "Helge Ingstad");
+        put(ContentsDocument.DATE_OF_PUBLICATION, "1931");
+        put(ContentsDocument.DESCRIPTION_SHORT, "Etter å ha brutt opp fra sin sakførerpraksis i Norge, reiste "
+                + "Ingstad til arktiske Canada, der han levde i fire år som pelsjeger.");
+        put(ContentsDocument.DESCRIPTION_LONG, "Etter å ha brutt opp fra sin sakførerpraksis i Norge, reiste "
+                + "Ingstad til arktiske Canada, der han levde i fire år som pelsjeger. ".repeat(8));
+        put(ContentsDocument.TABLE_OF_CONTENTS, "Kapittel 1 Kapittel 2 Kapittel 3 ".repeat(20));
+        put(ContentsDocument.IMAGE_SMALL, "files/images/small/7/4/9788205377547.jpg");
+        put(ContentsDocument.IMAGE_LARGE, "files/images/large/7/4/9788205377547.jpg");
+        put(ContentsDocument.SOURCE, "BOKBASE");
+        put(ContentsDocument.CREATED, "2021-03-01T10:15:30.123Z");
+        put(ContentsDocument.MODIFIED, "2022-03-01T10:15:30.123Z");
+    }
+
+    private void put(String attribute, String value) {
+        item.put(attribute, AttributeValue.builder().s(value).build());
+    }
+
+    @Benchmark
+    public ContentsDocument jsonRoundTrip() throws JsonProcessingException {
+        Map<String, String> values = new HashMap<>();
+        item.keySet().forEach(key -> values.put(key, item.get(key).getValueForField("S", String.class).orElse(null)));
+        String json = dtoObjectMapper.writeValueAsString(values);
+        return dtoObjectMapper.readValue(json, ContentsDocument.class);
+    }
+
+    @Benchmark
+    public ContentsDocument directMapping() {
+        return DynamoDBClient.toContentsDocument(item);
+    }
+}
@@ -0,0 +1,47 @@
+package no.unit.bibs.contents;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+/**
+ * Building the DynamoDB requests for a write, including the html unescaping of every text field.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DynamoDBItemBenchmark {
+
+    private DynamoDBClient dynamoDBClient;
+    private ContentsDocument document;
+
+    @Setup
+    public void setUp() {
+        dynamoDBClient = new DynamoDBClient(new InMemoryDynamoDbClient());
+        document = BenchmarkDocuments.textOnly(BenchmarkDocuments.ISBN);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> generateItemMap() {
+        return dynamoDBClient.generateItemMap(document);
+    }
+
+    @Benchmark
+    public UpdateItemRequest createUpsertRequest() {
+        return dynamoDBClient.createUpsertRequest(document);
+    }
+}
@@ -0,0 +1,91 @@
+package no.unit.bibs.contents;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import nva.commons.apigateway.RequestInfo;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import nva.commons.core.Environment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full processInput calls of the handlers against in-memory DynamoDB and S3, measuring everything we do per request
+ * except the network and the lambda runtime.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HandlerBenchmark {
+
+    private GetContentsApiHandler cachedGetHandler;
+    private GetContentsApiHandler uncachedGetHandler;
+    private CreateContentsApiHandler createHandler;
+    private UpdateContentsApiHandler updateHandler;
+    private RequestInfo getRequest;
+    private ContentsRequest textRequest;
+
+    /**
+     * Wires the handlers to the in-memory clients and stores the document read by the GET benchmarks.
+     */
+    @Setup
+    public void setUp() throws ApiGatewayException {
+        Environment environment = new BenchmarkEnvironment();
+        InMemoryDynamoDbClient dynamoDbClient = new InMemoryDynamoDbClient();
+        DynamoDBClient dynamoDBClient = new DynamoDBClient(dynamoDbClient);
+        DynamoDBClient uncachedClient = new DynamoDBClient(dynamoDbClient,
+                new TieredContentsCache(new LruContentsCache(0, Duration.ZERO)));
+        StorageClient storageClient = new StorageClient(new S3Connection(new InMemoryS3Client(), null, "contents"));
+
+        cachedGetHandler = new GetContentsApiHandler(environment, dynamoDBClient);
+        uncachedGetHandler = new GetContentsApiHandler(environment, uncachedClient);
+        createHandler = new CreateContentsApiHandler(environment, dynamoDBClient, storageClient);
+        updateHandler = new UpdateContentsApiHandler(environment, dynamoDBClient, storageClient);
+
+        textRequest = new ContentsRequest(BenchmarkDocuments.textOnly(BenchmarkDocuments.ISBN));
+        createHandler.processInput(textRequest, new RequestInfo(), null);
+        getRequest = new RequestInfo();
+        getRequest.setQueryParameters(Map.of(GetContentsApiHandler.ISBN, BenchmarkDocuments.ISBN));
+    }
+
+    @Benchmark
+    public Object getFromCache() throws ApiGatewayException {
+        return cachedGetHandler.processInput(null, getRequest, null);
+    }
+
+    @Benchmark
+    public Object getFromDynamoDB() throws ApiGatewayException {
+        return uncachedGetHandler.processInput(null, getRequest, null);
+    }
+
+    @Benchmark
+    public ContentsDocument createTextOnly() throws ApiGatewayException {
+        return createHandler.processInput(textRequest, new RequestInfo(), null);
+    }
+
+    @Benchmark
+    public ContentsDocument updateTextOnly() throws ApiGatewayException {
+        return updateHandler.processInput(textRequest, new RequestInfo(), null);
+    }
+
+    /**
+     * The same cover is sent every time, as suppliers do, so after the first invocation the upload is skipped
+     * on its digest.
+     */
+    @Benchmark
+    public ContentsDocument updateWithInlineImage() throws ApiGatewayException {
+        ContentsRequest imageRequest = new ContentsRequest(BenchmarkDocuments.withInlineImage(BenchmarkDocuments.ISBN));
+        return updateHandler.processInput(imageRequest, new RequestInfo(), null);
+    }
+}
@@ -0,0 +1,82 @@
+package no.unit.bibs.contents;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import nva.commons.apigateway.RequestInfo;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import nva.commons.core.Environment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to first response of each handler in a fresh JVM: building the handler the way the lambda runtime does, with
+ * its SDK clients, and answering one request against a local stub of DynamoDB. Every measurement is a new fork, so
+ * the numbers include class loading and are comparable to a cold start, without the runtime's own share. With
+ * primed set, {@link Priming} runs in the unmeasured setup, as it does in the init phase of a deployed function.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 10, jvmArgsAppend = {"-Daws.accessKeyId=benchmark", "-Daws.secretAccessKey=benchmark"})
+@State(Scope.Benchmark)
+public class HandlerStartupBenchmark {
+
+    @Param({"false", "true"})
+    public boolean primed;
+
+    private StubDynamoDbServer server;
+    private Environment environment;
+
+    /**
+     * Starts the DynamoDB stub the handlers are pointed at, and primes when asked to.
+     *
+     * @throws IOException when the stub cannot be started
+     */
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubDynamoDbServer();
+        environment = new BenchmarkEnvironment(Map.of(
+                AwsClientFactory.AWS_REGION, "eu-west-1",
+                AwsClientFactory.DYNAMODB_ENDPOINT, server.endpoint(),
+                DynamoDBClient.TABLE_NAME, "contents"));
+        if (primed) {
+            Priming.prime(Priming.RequestPath.READ, Priming.RequestPath.WRITE);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public Object getContents() throws ApiGatewayException {
+        RequestInfo requestInfo = new RequestInfo();
+        requestInfo.setQueryParameters(Map.of(GetContentsApiHandler.ISBN, BenchmarkDocuments.ISBN));
+        return new GetContentsApiHandler(environment).processInput(null, requestInfo, null);
+    }
+
+    @Benchmark
+    public ContentsDocument createContents() throws ApiGatewayException {
+        ContentsRequest request = new ContentsRequest(BenchmarkDocuments.textOnly(BenchmarkDocuments.ISBN));
+        return new CreateContentsApiHandler(environment).processInput(request, new RequestInfo(), null);
+    }
+
+    @Benchmark
+    public ContentsDocument updateContents() throws ApiGatewayException {
+        ContentsRequest request = new ContentsRequest(BenchmarkDocuments.textOnly(BenchmarkDocuments.ISBN));
+        return new UpdateContentsApiHandler(environment).processInput(request, new RequestInfo(), null);
+    }
+}
@@ -0,0 +1,88 @@
+package no.unit.bibs.contents;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.text.StringEscapeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the regex check of the first entity followed by StringEscapeUtils.unescapeHtml4, which every text field
+ * went through on write, with the single-pass StringHelper.unescapeHtml.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HtmlUnescapeBenchmark {
+
+    private static final Pattern ENTITY = Pattern.compile("&(?:#x([0-9a-fA-F]+)|#([0-9]+)|([0-9A-Za-z]+));");
+
+    private static final String PLAIN = "Etter å ha brutt opp fra sin sakførerpraksis i Norge, reiste Ingstad til "
+            + "arktiske Canada, der han levde i fire år som pelsjeger. Pelsjegerliv er beretningen om hans "
+            + "opplevelser i denne tiden. Boken ble utgitt i 1931 og er hans første av i alt tolv bøker.";
+
+    private static final String ESCAPED = "Etter &aring; ha brutt opp fra sin sakf&oslash;rerpraksis i Norge, "
+            + "reiste Ingstad til arktiske Canada, der han levde i fire &aring;r som pelsjeger. "
+            + "&laquo;Pelsjegerliv&raquo; er beretningen om hans opplevelser i denne tiden &ndash; boken ble "
+            + "utgitt i 1931 og er hans f&oslash;rste av i alt tolv b&oslash;ker. &Aring;tte opplag &amp; "
+            + "nyutgivelser&#8230;";
+
+    /**
+     * Whether the description is plain text or escaped, as some suppliers send it.
+     */
+    @Param({"plain", "escaped"})
+    public String kind;
+
+    /**
+     * Number of paragraphs in the description.
+     */
+    @Param({"1", "8"})
+    public int paragraphs;
+
+    private String description;
+
+    @Setup
+    public void setUp() {
+        description = ("plain".equals(kind) ? PLAIN : ESCAPED).repeat(paragraphs);
+    }
+
+    @Benchmark
+    public String regexThenUnescapeHtml4() {
+        if (isValidHtmlEscapeCode(description)) {
+            return StringEscapeUtils.unescapeHtml4(description);
+        }
+        return description;
+    }
+
+    @Benchmark
+    public String singlePassUnescape() {
+        return StringHelper.unescapeHtml(description);
+    }
+
+    @Benchmark
+    public boolean singlePassDetect() {
+        return StringHelper.isValidHtmlEscapeCode(description);
+    }
+
+    /**
+     * The regex part of the check StringHelper used to make, without validating the first entity found, which only
+     * makes the baseline cheaper.
+     */
+    private static boolean isValidHtmlEscapeCode(String text) {
+        Matcher matcher = ENTITY.matcher(text);
+        return matcher.find();
+    }
+}
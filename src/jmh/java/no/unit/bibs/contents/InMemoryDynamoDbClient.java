@@ -0,0 +1,89 @@
+package no.unit.bibs.contents;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+/**
+ * DynamoDbClient keeping items of a single table in memory, so benchmarks measure our code rather than the network.
+ * UpdateItem only understands the SET and ADD expressions written by DynamoDBClient.createUpsertRequest, and
+ * GetItem only projections listing attribute names or their placeholders. Writes return the item as it was before
+ * them.
+ */
+public class InMemoryDynamoDbClient implements DynamoDbClient {
+
+    private static final String IF_NOT_EXISTS = "if_not_exists(#";
+    private static final String ADD = "ADD #";
+    private static final String PROJECTION_SEPARATOR = ",";
+
+    private final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        items.clear();
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        Map<String, AttributeValue> item = items.get(isbn(request.key()));
+        return GetItemResponse.builder().item(item == null ? null : project(item, request)).build();
+    }
+
+    private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, GetItemRequest request) {
+        if (request.projectionExpression() == null) {
+            return new HashMap<>(item);
+        }
+        Map<String, AttributeValue> projected = new HashMap<>();
+        for (String name : request.projectionExpression().split(PROJECTION_SEPARATOR)) {
+            String attribute = request.expressionAttributeNames().getOrDefault(name.trim(), name.trim());
+            if (item.containsKey(attribute)) {
+                projected.put(attribute, item.get(attribute));
+            }
+        }
+        return projected;
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+        Map<String, AttributeValue> previous = items.put(isbn(request.item()), new HashMap<>(request.item()));
+        return PutItemResponse.builder().attributes(previous == null ? Map.of() : previous).build();
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        Map<String, AttributeValue> item = items.computeIfAbsent(isbn(request.key()), isbn -> new HashMap<>());
+        synchronized (item) {
+            Map<String, AttributeValue> previous = new HashMap<>(item);
+            item.putAll(request.key());
+            request.expressionAttributeValues().forEach((placeholder, value) -> {
+                String attribute = placeholder.substring(1);
+                boolean insertOnly = request.updateExpression().contains(IF_NOT_EXISTS + attribute + ",");
+                if (request.updateExpression().contains(ADD + attribute + " ")) {
+                    AttributeValue current = item.get(attribute);
+                    long sum = Long.parseLong(value.n()) + (current == null ? 0 : Long.parseLong(current.n()));
+                    item.put(attribute, AttributeValue.builder().n(Long.toString(sum)).build());
+                } else if (!insertOnly || !item.containsKey(attribute)) {
+                    item.put(attribute, value);
+                }
+            });
+            return UpdateItemResponse.builder().attributes(previous).build();
+        }
+    }
+
+    private static String isbn(Map<String, AttributeValue> key) {
+        return key.get(DynamoDBClient.PRIMARYKEY_ISBN).s();
+    }
+}
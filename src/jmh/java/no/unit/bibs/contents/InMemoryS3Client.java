@@ -0,0 +1,57 @@
+package no.unit.bibs.contents;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+/**
+ * S3Client keeping the size and metadata of each object in memory. The body is read to the end, as the SDK would
+ * send it.
+ */
+public class InMemoryS3Client implements S3Client {
+
+    private static final int NOT_FOUND = 404;
+
+    private final Map<String, Long> objects = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> metadata = new ConcurrentHashMap<>();
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        objects.clear();
+        metadata.clear();
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+        try (InputStream content = body.contentStreamProvider().newStream()) {
+            objects.put(request.key(), content.transferTo(OutputStream.nullOutputStream()));
+            metadata.put(request.key(), request.metadata());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return PutObjectResponse.builder().build();
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest request) {
+        Map<String, String> stored = metadata.get(request.key());
+        if (stored == null) {
+            throw NoSuchKeyException.builder().statusCode(NOT_FOUND).build();
+        }
+        return HeadObjectResponse.builder().contentLength(objects.get(request.key())).metadata(stored).build();
+    }
+}
@@ -0,0 +1,93 @@
+package no.unit.bibs.contents;
+
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Local HTTP endpoint answering the DynamoDB calls the handlers make with canned responses, so the SDK clients are
+ * exercised end to end, transport included, without an AWS account. GetItem honours the projection of the request.
+ */
+public class StubDynamoDbServer implements AutoCloseable {
+
+    private static final String TARGET_HEADER = "X-Amz-Target";
+    private static final String CONTENT_TYPE = "application/x-amz-json-1.0";
+    private static final String ITEM = "{\"isbn\":{\"S\":\"" + BenchmarkDocuments.ISBN + "\"},"
+            + "\"title\":{\"S\":\"Pelsjegerliv blandt Nord-Canadas indianere\"},"
+            + "\"author\":{\"S\":\"Helge Ingstad\"},"
+            + "\"description_short\":{\"S\":\"" + BenchmarkDocuments.DESCRIPTION_SHORT + "\"},"
+            + "\"source\":{\"S\":\"BOKBASE\"},"
+            + "\"created\":{\"S\":\"2021-03-01T10:15:30Z\"}}";
+    private static final int OK = 200;
+    private static final String PROJECTION_EXPRESSION = "ProjectionExpression";
+    private static final String ATTRIBUTE_NAMES = "ExpressionAttributeNames";
+    private static final String PROJECTION_SEPARATOR = ",";
+
+    private final HttpServer server;
+
+    /**
+     * Starts the server on a free port on localhost.
+     *
+     * @throws IOException when the server cannot be started
+     */
+    public StubDynamoDbServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::respond);
+        server.start();
+    }
+
+    public String endpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        JsonNode request;
+        try (InputStream requestBody = exchange.getRequestBody()) {
+            request = dtoObjectMapper.readTree(requestBody);
+        }
+        String target = String.valueOf(exchange.getRequestHeaders().getFirst(TARGET_HEADER));
+        String body;
+        if (target.endsWith(".GetItem")) {
+            body = "{\"Item\":" + project(request) + "}";
+        } else if (target.endsWith(".UpdateItem")) {
+            body = "{\"Attributes\":" + ITEM + "}";
+        } else {
+            body = "{}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(OK, bytes.length);
+        try (OutputStream response = exchange.getResponseBody()) {
+            response.write(bytes);
+        }
+    }
+
+    private static String project(JsonNode request) throws IOException {
+        JsonNode projection = request.path(PROJECTION_EXPRESSION);
+        if (projection.isMissingNode()) {
+            return ITEM;
+        }
+        ObjectNode item = (ObjectNode) dtoObjectMapper.readTree(ITEM);
+        ObjectNode projected = dtoObjectMapper.createObjectNode();
+        for (String name : projection.asText().split(PROJECTION_SEPARATOR)) {
+            String attribute = request.path(ATTRIBUTE_NAMES).path(name.trim()).asText(name.trim());
+            if (item.has(attribute)) {
+                projected.set(attribute, item.get(attribute));
+            }
+        }
+        return projected.toString();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
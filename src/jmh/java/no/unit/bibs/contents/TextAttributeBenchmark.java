@@ -0,0 +1,87 @@
+package no.unit.bibs.contents;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Writing and reading an item with the long texts compressed, against reading the same item stored as strings.
+ * The item sizes and the capacity units DynamoDB bills for them are printed before the measurements: a write
+ * unit per started KB, a strongly consistent read unit per started 4 KB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextAttributeBenchmark {
+
+    private static final int WRITE_UNIT_BYTES = 1024;
+    private static final int READ_UNIT_BYTES = 4 * 1024;
+
+    private DynamoDBClient dynamoDBClient;
+    private ContentsDocument document;
+    private Map<String, AttributeValue> compressed;
+    private Map<String, AttributeValue> uncompressed;
+
+    @Setup
+    public void setUp() {
+        dynamoDBClient = new DynamoDBClient(new InMemoryDynamoDbClient());
+        document = BenchmarkDocuments.fullText(BenchmarkDocuments.ISBN);
+        compressed = dynamoDBClient.generateItemMap(document);
+        uncompressed = new HashMap<>();
+        compressed.forEach((attribute, value) ->
+                uncompressed.put(attribute, AttributeValue.builder().s(TextAttributeCodec.decode(value)).build()));
+        printCapacity("uncompressed", itemSize(uncompressed));
+        printCapacity("compressed", itemSize(compressed));
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> generateItemMap() {
+        return dynamoDBClient.generateItemMap(document);
+    }
+
+    @Benchmark
+    public ContentsDocument readCompressed() {
+        return DynamoDBClient.toContentsDocument(compressed);
+    }
+
+    @Benchmark
+    public ContentsDocument readUncompressed() {
+        return DynamoDBClient.toContentsDocument(uncompressed);
+    }
+
+    /**
+     * Item size as DynamoDB counts it: the UTF-8 bytes of attribute names and string values, and the length of
+     * binary values.
+     */
+    private static int itemSize(Map<String, AttributeValue> item) {
+        int size = 0;
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            AttributeValue value = attribute.getValue();
+            size += attribute.getKey().getBytes(StandardCharsets.UTF_8).length;
+            size += value.b() == null
+                    ? value.s().getBytes(StandardCharsets.UTF_8).length
+                    : value.b().asByteArray().length;
+        }
+        return size;
+    }
+
+    private static void printCapacity(String storage, int size) {
+        System.out.printf("%s item: %d bytes, %d write units, %d read units%n", storage, size,
+                (size + WRITE_UNIT_BYTES - 1) / WRITE_UNIT_BYTES, (size + READ_UNIT_BYTES - 1) / READ_UNIT_BYTES);
+    }
+}
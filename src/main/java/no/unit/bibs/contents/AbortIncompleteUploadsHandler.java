@@ -0,0 +1,50 @@
+package no.unit.bibs.contents;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Runs on a schedule and aborts the multipart uploads of upload sessions that were never completed nor aborted. The
+ * bucket is not part of this stack, so this does what an AbortIncompleteMultipartUpload lifecycle rule would do.
+ */
+public class AbortIncompleteUploadsHandler implements RequestHandler<Map<String, Object>, Integer> {
+
+    public static final Duration ABANDONED_UPLOAD_AGE = Duration.ofDays(1);
+    public static final String ABORTED_UPLOADS = "Aborted %d multipart uploads started before %s";
+
+    private static final Logger logger = LoggerFactory.getLogger(AbortIncompleteUploadsHandler.class);
+    private final S3Connection s3Connection;
+
+    @JacocoGenerated
+    public AbortIncompleteUploadsHandler() {
+        this(new S3Connection(new Environment()));
+    }
+
+    public AbortIncompleteUploadsHandler(S3Connection s3Connection) {
+        this.s3Connection = s3Connection;
+    }
+
+    /**
+     * Aborts the multipart uploads started more than {@link #ABANDONED_UPLOAD_AGE} ago. The urls of an upload
+     * session are valid for {@link S3Connection#UPLOAD_URL_EXPIRY}, so no client can still be uploading to them.
+     *
+     * @param event   the scheduled event, not used
+     * @param context the Lambda context
+     * @return number of uploads aborted
+     */
+    @Override
+    public Integer handleRequest(Map<String, Object> event, Context context) {
+        Instant initiatedBefore = Instant.now().minus(ABANDONED_UPLOAD_AGE);
+        int aborted = s3Connection.abortMultipartUploadsInitiatedBefore(initiatedBefore);
+        logger.info(String.format(ABORTED_UPLOADS, aborted, initiatedBefore));
+        return aborted;
+    }
+}
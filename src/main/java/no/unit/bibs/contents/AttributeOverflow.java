@@ -0,0 +1,157 @@
+package no.unit.bibs.contents;
+
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Claim check for attributes too large to keep in the DynamoDB item. The text is stored in S3 under a key holding
+ * its digest, and the item keeps a map attribute with the object key, the SHA-256 digest and the size in bytes.
+ * Pointers are resolved when the attribute is read, so projections leaving the attribute out never touch S3. Texts
+ * replaced by a write are deleted once the write has succeeded.
+ */
+public class AttributeOverflow {
+
+    public static final String OVERFLOW_BYTES = "ATTRIBUTE_OVERFLOW_BYTES";
+    public static final int DEFAULT_OVERFLOW_BYTES = 64 * 1024;
+    public static final int MAX_OVERFLOW_OBJECT_BYTES = 16 * 1024 * 1024;
+    public static final String POINTER_KEY = "s3_key";
+    public static final String POINTER_SHA256 = "sha256";
+    public static final String POINTER_SIZE = "size";
+    public static final String OBJECT_KEY_TEMPLATE = "attributes/%s/%s/%s.txt";
+    public static final String FILENAME_TEMPLATE = "%s.txt";
+    public static final String MIME_TYPE_TEXT = "text/plain; charset=utf-8";
+    public static final String MISSING_OVERFLOW = "Overflowed %s could not be read from %s";
+    public static final String DIGEST_MISMATCH = "Overflowed %s in %s does not match its digest";
+
+    private final S3Connection s3Connection;
+    private final int overflowBytes;
+
+    /**
+     * Creates an AttributeOverflow.
+     *
+     * @param s3Connection  where the overflowed attributes are stored
+     * @param overflowBytes attributes larger than this, as stored, are moved to S3
+     */
+    public AttributeOverflow(S3Connection s3Connection, int overflowBytes) {
+        this.s3Connection = s3Connection;
+        this.overflowBytes = overflowBytes;
+    }
+
+    /**
+     * Creates an AttributeOverflow storing in BUCKET_NAME, moving attributes larger than ATTRIBUTE_OVERFLOW_BYTES.
+     *
+     * @param environment environment
+     * @return attributeOverflow
+     */
+    @JacocoGenerated
+    public static AttributeOverflow fromEnvironment(Environment environment) {
+        int overflowBytes = environment.readEnvOpt(OVERFLOW_BYTES)
+                .map(Integer::parseInt)
+                .orElse(DEFAULT_OVERFLOW_BYTES);
+        return new AttributeOverflow(new S3Connection(environment), overflowBytes);
+    }
+
+    /**
+     * Stores the value in S3 and returns a pointer to it, when the value is larger than the overflow size.
+     *
+     * @param isbn      isbn of the item
+     * @param attribute name of the attribute
+     * @param value     value as it would be stored in the item
+     * @return the value, or a pointer to it
+     */
+    public AttributeValue offload(String isbn, String attribute, AttributeValue value) {
+        if (isPointer(value) || sizeOf(value) <= overflowBytes) {
+            return value;
+        }
+        byte[] bytes = TextAttributeCodec.decode(value).getBytes(StandardCharsets.UTF_8);
+        String digest = DigestHelper.sha256Hex(bytes, 0, bytes.length);
+        String objectKey = String.format(OBJECT_KEY_TEMPLATE, isbn, attribute, digest);
+        s3Connection.uploadFile(bytes, objectKey, String.format(FILENAME_TEMPLATE, attribute), MIME_TYPE_TEXT);
+        return AttributeValue.builder().m(Map.of(
+                POINTER_KEY, AttributeValue.builder().s(objectKey).build(),
+                POINTER_SHA256, AttributeValue.builder().s(digest).build(),
+                POINTER_SIZE, AttributeValue.builder().n(Integer.toString(bytes.length)).build()))
+                .build();
+    }
+
+    /**
+     * Replaces the pointers in the item with the texts they point to.
+     *
+     * @param item item as read from DynamoDB
+     * @return the item without pointers
+     * @throws IllegalStateException when an overflowed text is missing or does not match its digest
+     */
+    public Map<String, AttributeValue> resolve(Map<String, AttributeValue> item) {
+        if (item.values().stream().noneMatch(AttributeOverflow::isPointer)) {
+            return item;
+        }
+        Map<String, AttributeValue> resolved = new HashMap<>(item);
+        item.forEach((attribute, value) -> {
+            if (isPointer(value)) {
+                resolved.put(attribute, AttributeValue.builder().s(load(value)).build());
+            }
+        });
+        return resolved;
+    }
+
+    /**
+     * Deletes the texts the previous values pointed to, unless the stored values still point to them. Keys hold
+     * the digest of the text, so writing the same text again keeps its object. A write putting back a text that a
+     * concurrent write replaced the moment before may find its object deleted; reading it then fails on the missing
+     * text until the text is written again.
+     *
+     * @param previous values as they were before the write, of the attributes it replaced or removed
+     * @param stored   values as they were written, with pointers in place of texts moved to S3
+     */
+    public void deleteReplaced(Map<String, AttributeValue> previous, Map<String, AttributeValue> stored) {
+        previous.forEach((attribute, value) -> {
+            if (isPointer(value) && !objectKeyOf(value).equals(objectKeyOf(stored.get(attribute)))) {
+                s3Connection.deleteObject(objectKeyOf(value));
+            }
+        });
+    }
+
+    /**
+     * Whether the value is a pointer to an overflowed attribute.
+     *
+     * @param value attribute value
+     * @return true for pointers
+     */
+    public static boolean isPointer(AttributeValue value) {
+        return value != null && value.hasM() && value.m().containsKey(POINTER_KEY);
+    }
+
+    private static String objectKeyOf(AttributeValue value) {
+        return isPointer(value) ? value.m().get(POINTER_KEY).s() : null;
+    }
+
+    private String load(AttributeValue pointer) {
+        String objectKey = objectKeyOf(pointer);
+        String digest = pointer.m().get(POINTER_SHA256).s();
+        byte[] bytes;
+        try {
+            bytes = s3Connection.readObject(objectKey, MAX_OVERFLOW_OBJECT_BYTES)
+                    .orElseThrow(() -> new IllegalStateException(String.format(MISSING_OVERFLOW, digest, objectKey)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!digest.equals(DigestHelper.sha256Hex(bytes, 0, bytes.length))) {
+            throw new IllegalStateException(String.format(DIGEST_MISMATCH, digest, objectKey));
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(AttributeValue value) {
+        if (value.b() != null) {
+            return value.b().asByteBuffer().remaining();
+        }
+        return value.s() == null ? 0 : value.s().getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,172 @@
+package no.unit.bibs.contents;
+
+import java.net.URI;
+import nva.commons.core.Environment;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProviderChain;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.SystemPropertyCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClientBuilder;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+/**
+ * Builds the AWS SDK clients once per container, on first use, and shares them between handlers and invocations.
+ * The clients use the URL connection transport, and are given region and credentials explicitly, so building them
+ * does not load the Apache HTTP stack nor search profile files and instance metadata. The asynchronous clients
+ * used by the write path share a Netty transport, which is only loaded when one of them is first asked for.
+ */
+public final class AwsClientFactory {
+
+    public static final String AWS_REGION = "AWS_REGION";
+    public static final String DYNAMODB_ENDPOINT = "DYNAMODB_ENDPOINT";
+
+    private static final Object LOCK = new Object();
+    private static SdkHttpClient httpClient;
+    private static SdkAsyncHttpClient asyncHttpClient;
+    private static AwsCredentialsProvider credentialsProvider;
+    private static DynamoDbClient dynamoDbClient;
+    private static S3Client s3Client;
+    private static DynamoDbAsyncClient dynamoDbAsyncClient;
+    private static S3AsyncClient s3AsyncClient;
+    private static S3Presigner s3Presigner;
+
+    private AwsClientFactory() {
+    }
+
+    /**
+     * The shared DynamoDbClient. DYNAMODB_ENDPOINT overrides the endpoint, for running against a local DynamoDB.
+     *
+     * @param environment environment with AWS_REGION
+     * @return dynamoDbClient
+     */
+    public static DynamoDbClient dynamoDbClient(Environment environment) {
+        synchronized (LOCK) {
+            if (dynamoDbClient == null) {
+                DynamoDbClientBuilder builder = DynamoDbClient.builder()
+                        .region(region(environment))
+                        .credentialsProvider(credentialsProvider())
+                        .httpClient(httpClient());
+                environment.readEnvOpt(DYNAMODB_ENDPOINT).map(URI::create).ifPresent(builder::endpointOverride);
+                dynamoDbClient = builder.build();
+            }
+            return dynamoDbClient;
+        }
+    }
+
+    /**
+     * The shared DynamoDbAsyncClient. DYNAMODB_ENDPOINT overrides the endpoint, as for the synchronous client.
+     *
+     * @param environment environment with AWS_REGION
+     * @return dynamoDbAsyncClient
+     */
+    public static DynamoDbAsyncClient dynamoDbAsyncClient(Environment environment) {
+        synchronized (LOCK) {
+            if (dynamoDbAsyncClient == null) {
+                DynamoDbAsyncClientBuilder builder = DynamoDbAsyncClient.builder()
+                        .region(region(environment))
+                        .credentialsProvider(credentialsProvider())
+                        .httpClient(asyncHttpClient());
+                environment.readEnvOpt(DYNAMODB_ENDPOINT).map(URI::create).ifPresent(builder::endpointOverride);
+                dynamoDbAsyncClient = builder.build();
+            }
+            return dynamoDbAsyncClient;
+        }
+    }
+
+    /**
+     * The shared S3Client.
+     *
+     * @param environment environment with AWS_REGION
+     * @return s3Client
+     */
+    public static S3Client s3Client(Environment environment) {
+        synchronized (LOCK) {
+            if (s3Client == null) {
+                s3Client = S3Client.builder()
+                        .region(region(environment))
+                        .credentialsProvider(credentialsProvider())
+                        .httpClient(httpClient())
+                        .build();
+            }
+            return s3Client;
+        }
+    }
+
+    /**
+     * The shared S3AsyncClient.
+     *
+     * @param environment environment with AWS_REGION
+     * @return s3AsyncClient
+     */
+    public static S3AsyncClient s3AsyncClient(Environment environment) {
+        synchronized (LOCK) {
+            if (s3AsyncClient == null) {
+                s3AsyncClient = S3AsyncClient.builder()
+                        .region(region(environment))
+                        .credentialsProvider(credentialsProvider())
+                        .httpClient(asyncHttpClient())
+                        .build();
+            }
+            return s3AsyncClient;
+        }
+    }
+
+    /**
+     * The shared S3Presigner. Presigning is done locally and needs no HTTP client.
+     *
+     * @param environment environment with AWS_REGION
+     * @return s3Presigner
+     */
+    public static S3Presigner s3Presigner(Environment environment) {
+        synchronized (LOCK) {
+            if (s3Presigner == null) {
+                s3Presigner = S3Presigner.builder()
+                        .region(region(environment))
+                        .credentialsProvider(credentialsProvider())
+                        .build();
+            }
+            return s3Presigner;
+        }
+    }
+
+    private static Region region(Environment environment) {
+        return Region.of(environment.readEnv(AWS_REGION));
+    }
+
+    /**
+     * Lambda hands the role credentials to the function as environment variables.
+     */
+    private static AwsCredentialsProvider credentialsProvider() {
+        if (credentialsProvider == null) {
+            credentialsProvider = AwsCredentialsProviderChain.of(
+                    EnvironmentVariableCredentialsProvider.create(),
+                    SystemPropertyCredentialsProvider.create());
+        }
+        return credentialsProvider;
+    }
+
+    private static SdkHttpClient httpClient() {
+        if (httpClient == null) {
+            httpClient = UrlConnectionHttpClient.builder().build();
+        }
+        return httpClient;
+    }
+
+    private static SdkAsyncHttpClient asyncHttpClient() {
+        if (asyncHttpClient == null) {
+            asyncHttpClient = NettyNioAsyncHttpClient.builder().build();
+        }
+        return asyncHttpClient;
+    }
+
+}
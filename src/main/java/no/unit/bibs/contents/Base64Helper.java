@@ -0,0 +1,84 @@
+package no.unit.bibs.contents;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public final class Base64Helper {
+
+    private static final char PADDING = '=';
+    private static final int SINGLE_PADDING = 1;
+    private static final int DOUBLE_PADDING = 2;
+    private static final int QUARTET = 4;
+    private static final int BYTES_PER_QUARTET = 3;
+    private static final int ASCII = 128;
+    private static final int INVALID = -1;
+    private static final int[] DECODE_TABLE = new int[ASCII];
+
+    static {
+        Arrays.fill(DECODE_TABLE, INVALID);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE_TABLE[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private Base64Helper() {
+    }
+
+    /**
+     * Validates and decodes a base64 string in a single pass. Accepts the same input as the pattern
+     * {@code ^(?:[A-Za-z0-9+/]{4})*(?:[A-Za-z0-9+/]{2}==|[A-Za-z0-9+/]{3}=|[A-Za-z0-9+/]{4})$}, and stops at the
+     * first character that is not part of the alphabet.
+     *
+     * @param input string that might be base64 encoded
+     * @return the decoded bytes, or empty when input is not base64 encoded
+     */
+    @SuppressWarnings("PMD.CognitiveComplexity")
+    public static Optional<byte[]> decode(String input) {
+        if (input == null || input.isEmpty() || input.length() % QUARTET != 0) {
+            return Optional.empty();
+        }
+        int length = input.length();
+        int padding = 0;
+        if (input.charAt(length - 1) == PADDING) {
+            padding = input.charAt(length - 2) == PADDING ? DOUBLE_PADDING : SINGLE_PADDING;
+        }
+        int fullQuartetsEnd = padding == 0 ? length : length - QUARTET;
+        byte[] output = new byte[length / QUARTET * BYTES_PER_QUARTET - padding];
+        int position = 0;
+        for (int i = 0; i < fullQuartetsEnd; i += QUARTET) {
+            int bits = valueOf(input.charAt(i)) << 18
+                    | valueOf(input.charAt(i + 1)) << 12
+                    | valueOf(input.charAt(i + 2)) << 6
+                    | valueOf(input.charAt(i + 3));
+            if (bits < 0) {
+                return Optional.empty();
+            }
+            output[position++] = (byte) (bits >> 16);
+            output[position++] = (byte) (bits >> 8);
+            output[position++] = (byte) bits;
+        }
+        if (padding > 0) {
+            int bits = valueOf(input.charAt(fullQuartetsEnd)) << 18 | valueOf(input.charAt(fullQuartetsEnd + 1)) << 12;
+            if (padding == SINGLE_PADDING) {
+                bits |= valueOf(input.charAt(fullQuartetsEnd + 2)) << 6;
+            }
+            if (bits < 0) {
+                return Optional.empty();
+            }
+            output[position++] = (byte) (bits >> 16);
+            if (padding == SINGLE_PADDING) {
+                output[position] = (byte) (bits >> 8);
+            }
+        }
+        return Optional.of(output);
+    }
+
+    /**
+     * Any invalid character makes the combined quartet negative, as INVALID shifted left keeps the sign bit.
+     */
+    private static int valueOf(char character) {
+        return character < ASCII ? DECODE_TABLE[character] : INVALID;
+    }
+
+}
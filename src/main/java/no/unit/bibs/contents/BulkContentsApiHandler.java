@@ -0,0 +1,162 @@
+package no.unit.bibs.contents;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import nva.commons.apigateway.ApiGatewayHandler;
+import nva.commons.apigateway.RequestInfo;
+import nva.commons.apigateway.RestRequestHandler;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import nva.commons.apigateway.exceptions.BadRequestException;
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.isNull;
+
+public class BulkContentsApiHandler extends ApiGatewayHandler<BulkContentsRequest, BulkContentsResponse> {
+
+    public static final String NO_CONTENTS_GIVEN_TO_HANDLER = "No contents given to BulkContentsApiHandler";
+    public static final String COULD_NOT_PERSIST_PROVIDED_CONTENTS = "Could not persist provided contents. ";
+    public static final String COULD_NOT_TRANSFER_FILES = "Could not transfer files of contents ";
+    public static final String POSITION_SEPARATOR = "#";
+    public static final String TRANSFER_BUDGET_MILLIS = "BULK_TRANSFER_BUDGET_MILLIS";
+    public static final long DEFAULT_TRANSFER_BUDGET_MILLIS = 12_000;
+    public static final int MAX_CONTENTS = 100;
+    public static final String TOO_MANY_CONTENTS = "At most %d contents can be given in one request, got %d";
+    public static final String TRANSFER_TIMED_OUT = "Files of contents %s not transferred within %d ms";
+
+    private final DynamoDBClient dynamoDBClient;
+    private final StorageClient storageClient;
+    private final long transferBudgetMillis;
+    private final transient Logger logger = LoggerFactory.getLogger(BulkContentsApiHandler.class);
+
+    @JacocoGenerated
+    public BulkContentsApiHandler() {
+        this(new Environment());
+    }
+
+    @JacocoGenerated
+    public BulkContentsApiHandler(Environment environment) {
+        this(environment, new DynamoDBClient(environment), new StorageClient(environment));
+    }
+
+    /**
+     * Constructor for injecting used in testing. File transfers get BULK_TRANSFER_BUDGET_MILLIS, 12 seconds by
+     * default, so that the response is written within the 29 seconds API Gateway waits for it.
+     *
+     * @param environment    environment
+     * @param dynamoDBClient dynamoDBclient
+     * @param storageClient  storageClient
+     */
+    public BulkContentsApiHandler(Environment environment, DynamoDBClient dynamoDBClient,
+                                  StorageClient storageClient) {
+        super(BulkContentsRequest.class, environment);
+        this.dynamoDBClient = dynamoDBClient;
+        this.storageClient = storageClient;
+        this.transferBudgetMillis = environment.readEnvOpt(TRANSFER_BUDGET_MILLIS)
+                .map(Long::parseLong)
+                .orElse(DEFAULT_TRANSFER_BUDGET_MILLIS);
+    }
+
+    /**
+     * Implements the main logic of the handler. Any exception thrown by this method will be handled by {@link
+     * RestRequestHandler#handleExpectedException} method.
+     *
+     * <p>The files of all valid documents are transferred concurrently before the documents are written in one
+     * batch. The status map has one entry per submitted document, keyed by the upper-cased isbn. A document without
+     * isbn, or repeating an isbn given earlier in the request, is keyed by its position as well
+     * ({@code #2}, {@code 9788215027227#3}) and reported INVALID. A document whose files could not be transferred,
+     * or were not transferred within the transfer budget, is reported FAILED and not written. At most
+     * {@link #MAX_CONTENTS} documents are taken in one request, so that they can be written in the time left.
+     *
+     * @param request     The input object to the method. Usually a deserialized json.
+     * @param requestInfo Request headers and path.
+     * @param context     the ApiGateway context.
+     * @return status per isbn of the persisted contents
+     * @throws ApiGatewayException all exceptions are caught by writeFailure and mapped to error codes through the
+     *                             method {@link RestRequestHandler#getFailureStatusCode}
+     */
+    @Override
+    protected BulkContentsResponse processInput(BulkContentsRequest request, RequestInfo requestInfo,
+                                                Context context) throws ApiGatewayException {
+        if (isNull(request) || isNull(request.getContents()) || request.getContents().isEmpty()) {
+            throw new BadRequestException(NO_CONTENTS_GIVEN_TO_HANDLER);
+        }
+        if (request.getContents().size() > MAX_CONTENTS) {
+            throw new BadRequestException(String.format(TOO_MANY_CONTENTS, MAX_CONTENTS,
+                    request.getContents().size()));
+        }
+        Map<String, String> status = new LinkedHashMap<>();
+        Map<String, CompletableFuture<ContentsDocument>> transfers = new LinkedHashMap<>();
+        List<ContentsDocument> contents = request.getContents();
+        for (int position = 0; position < contents.size(); position++) {
+            ContentsDocument contentsDocument = contents.get(position);
+            String isbn = normalizedIsbn(contentsDocument);
+            if (isbn != null && !status.containsKey(isbn) && contentsDocument.isValid()) {
+                contentsDocument.setAttributeDigests(DynamoDBClient.attributeDigests(contentsDocument));
+                status.put(isbn, BulkContentsResponse.FAILED);
+                transfers.put(isbn, transferFiles(contentsDocument));
+            } else {
+                logger.error(COULD_NOT_PERSIST_PROVIDED_CONTENTS + contentsDocument);
+                String key = isbn == null || status.containsKey(isbn) ? positionKey(isbn, position) : isbn;
+                status.put(key, BulkContentsResponse.INVALID);
+            }
+        }
+        CompletableFuture.allOf(transfers.values().toArray(new CompletableFuture[0]))
+                .completeOnTimeout(null, transferBudgetMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(throwable -> null)
+                .join();
+        List<ContentsDocument> transferred = new ArrayList<>();
+        transfers.forEach((isbn, transfer) -> {
+            if (!transfer.isDone()) {
+                logger.error(String.format(TRANSFER_TIMED_OUT, isbn, transferBudgetMillis));
+                return;
+            }
+            try {
+                transferred.add(transfer.join());
+            } catch (CompletionException e) {
+                logger.error(COULD_NOT_TRANSFER_FILES + isbn, e);
+            }
+        });
+        if (!transferred.isEmpty()) {
+            status.putAll(dynamoDBClient.createContentsBatch(transferred));
+        }
+        return new BulkContentsResponse(status);
+    }
+
+    private CompletableFuture<ContentsDocument> transferFiles(ContentsDocument contentsDocument) {
+        try {
+            return storageClient.handleFilesAsync(contentsDocument);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static String normalizedIsbn(ContentsDocument contentsDocument) {
+        if (isNull(contentsDocument) || StringUtils.isBlank(contentsDocument.getIsbn())) {
+            return null;
+        }
+        return contentsDocument.getIsbn().toUpperCase(Locale.getDefault());
+    }
+
+    private static String positionKey(String isbn, int position) {
+        return (isNull(isbn) ? "" : isbn) + POSITION_SEPARATOR + position;
+    }
+
+    @Override
+    protected Integer getSuccessStatusCode(BulkContentsRequest input, BulkContentsResponse output) {
+        return HttpURLConnection.HTTP_OK;
+    }
+
+}
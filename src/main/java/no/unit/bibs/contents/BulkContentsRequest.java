@@ -0,0 +1,42 @@
+package no.unit.bibs.contents;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import nva.commons.core.JacocoGenerated;
+
+import java.util.List;
+import java.util.Objects;
+
+public class BulkContentsRequest {
+
+    private final List<ContentsDocument> contents;
+
+    @JsonCreator
+    public BulkContentsRequest(@JsonProperty("contents") List<ContentsDocument> contents) {
+        this.contents = contents;
+    }
+
+    public List<ContentsDocument> getContents() {
+        return contents;
+    }
+
+    @JacocoGenerated
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BulkContentsRequest)) {
+            return false;
+        }
+        BulkContentsRequest that = (BulkContentsRequest) o;
+        return Objects.equals(contents, that.contents);
+    }
+
+    @JacocoGenerated
+    @Override
+    public int hashCode() {
+        return Objects.hash(contents);
+    }
+
+}
@@ -0,0 +1,47 @@
+package no.unit.bibs.contents;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import nva.commons.core.JacocoGenerated;
+
+import java.util.Map;
+import java.util.Objects;
+
+public class BulkContentsResponse {
+
+    public static final String STATUS = "status";
+    public static final String CREATED = "CREATED";
+    public static final String INVALID = "INVALID";
+    public static final String FAILED = "FAILED";
+
+    private final Map<String, String> status;
+
+    @JsonCreator
+    public BulkContentsResponse(@JsonProperty(STATUS) Map<String, String> status) {
+        this.status = status;
+    }
+
+    public Map<String, String> getStatus() {
+        return status;
+    }
+
+    @JacocoGenerated
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BulkContentsResponse)) {
+            return false;
+        }
+        BulkContentsResponse that = (BulkContentsResponse) o;
+        return Objects.equals(status, that.status);
+    }
+
+    @JacocoGenerated
+    @Override
+    public int hashCode() {
+        return Objects.hash(status);
+    }
+
+}
@@ -0,0 +1,55 @@
+package no.unit.bibs.contents;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import nva.commons.core.JacocoGenerated;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class ContentsBatchResponse {
+
+    public static final String CONTENTS = "contents";
+    public static final String NOT_FOUND = "not_found";
+
+    private final Map<String, ContentsDocument> contents;
+    private final List<String> notFound;
+
+    @JsonCreator
+    public ContentsBatchResponse(@JsonProperty(CONTENTS) Map<String, ContentsDocument> contents,
+                                 @JsonProperty(NOT_FOUND) List<String> notFound) {
+        this.contents = contents;
+        this.notFound = notFound;
+    }
+
+    @JsonProperty(CONTENTS)
+    public Map<String, ContentsDocument> getContents() {
+        return contents;
+    }
+
+    @JsonProperty(NOT_FOUND)
+    public List<String> getNotFound() {
+        return notFound;
+    }
+
+    @JacocoGenerated
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ContentsBatchResponse)) {
+            return false;
+        }
+        ContentsBatchResponse that = (ContentsBatchResponse) o;
+        return Objects.equals(contents, that.contents) && Objects.equals(notFound, that.notFound);
+    }
+
+    @JacocoGenerated
+    @Override
+    public int hashCode() {
+        return Objects.hash(contents, notFound);
+    }
+
+}
@@ -0,0 +1,33 @@
+package no.unit.bibs.contents;
+
+import java.util.Optional;
+
+/**
+ * Cache of contents by isbn, in front of DynamoDB.
+ */
+public interface ContentsCache {
+
+    /**
+     * Looks up cached contents.
+     *
+     * @param isbn identifier
+     * @return the cached contents, or empty when not cached or expired
+     */
+    Optional<ContentsDocument> get(String isbn);
+
+    /**
+     * Caches contents.
+     *
+     * @param isbn     identifier
+     * @param contents contents to cache
+     */
+    void put(String isbn, ContentsDocument contents);
+
+    /**
+     * Removes cached contents, if any.
+     *
+     * @param isbn identifier
+     */
+    void invalidate(String isbn);
+
+}
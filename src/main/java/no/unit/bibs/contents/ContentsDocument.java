@@ -1,13 +1,17 @@
 package no.unit.bibs.contents;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import no.unit.nva.commons.json.JsonSerializable;
 import nva.commons.core.JacocoGenerated;
 import org.apache.commons.lang3.StringUtils;
 
 import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 @SuppressWarnings("PMD.TooManyFields")
 public class ContentsDocument implements JsonSerializable {
@@ -29,6 +33,14 @@ public class ContentsDocument implements JsonSerializable {
     public static final String SOURCE = "source";
     public static final String MODIFIED = "modified";
     public static final String CREATED = "created";
+    public static final String ETAG = "etag";
+    public static final Set<String> ATTRIBUTES = Set.of(TITLE, AUTHOR, DATE_OF_PUBLICATION, ISBN, DESCRIPTION_SHORT,
+            DESCRIPTION_LONG, TABLE_OF_CONTENTS, PROMOTIONAL, SUMMARY, REVIEW, IMAGE_SMALL, IMAGE_LARGE,
+            IMAGE_ORIGINAL, AUDIO_FILE, SOURCE, MODIFIED, CREATED);
+    public static final Set<String> UPDATABLE_ATTRIBUTES = Set.of(TITLE, AUTHOR, DATE_OF_PUBLICATION,
+            DESCRIPTION_SHORT, DESCRIPTION_LONG, TABLE_OF_CONTENTS, PROMOTIONAL, SUMMARY, REVIEW, IMAGE_SMALL,
+            IMAGE_LARGE, IMAGE_ORIGINAL, AUDIO_FILE);
+    public static final Set<String> FILE_ATTRIBUTES = Set.of(IMAGE_SMALL, IMAGE_LARGE, IMAGE_ORIGINAL, AUDIO_FILE);
     private final String author;
     private final String title;
     private final String dateOfPublication;
@@ -46,6 +58,14 @@ public class ContentsDocument implements JsonSerializable {
     private final String source;
     private final Instant modified;
     private final Instant created;
+    @JsonIgnore
+    private String etag;
+    @JsonIgnore
+    private Instant lastModified;
+    @JsonIgnore
+    private Map<String, String> attributeDigests;
+    @JsonIgnore
+    private boolean unchanged;
 
     /**
      * Creates and IndexDocument with given properties.
@@ -174,6 +194,67 @@ public class ContentsDocument implements JsonSerializable {
         return modified;
     }
 
+    /**
+     * Hash of the values last written, stored with the item. It is sent as a header rather than in the body.
+     *
+     * @return etag, or null for items written before etags were stored
+     */
+    @JsonIgnore
+    public String getEtag() {
+        return etag;
+    }
+
+    @JsonIgnore
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    /**
+     * When the item was last written: modified, or created for an item never updated. It is sent as a header, so a
+     * projection leaving modified and created out of the body keeps it.
+     *
+     * @return last written, or null when neither modified nor created is known
+     */
+    @JsonIgnore
+    public Instant getLastModified() {
+        if (lastModified != null) {
+            return lastModified;
+        }
+        return modified != null ? modified : created;
+    }
+
+    /**
+     * Digests of the field values as the supplier sent them, before files were replaced by object keys. They are
+     * stored with the item, so that a resent document can be compared with it field by field.
+     *
+     * @return digest by attribute name, or null when they are to be computed from the values when written
+     */
+    @JsonIgnore
+    public Map<String, String> getAttributeDigests() {
+        return attributeDigests;
+    }
+
+    @JsonIgnore
+    public void setAttributeDigests(Map<String, String> attributeDigests) {
+        this.attributeDigests = attributeDigests;
+    }
+
+    /**
+     * Set on the stored document answering an update that changed nothing. It decides the status of the response
+     * rather than being part of the body.
+     *
+     * @return true when the update was not written
+     */
+    @JsonIgnore
+    public boolean isUnchanged() {
+        return unchanged;
+    }
+
+    @JsonIgnore
+    public void setUnchanged(boolean unchanged) {
+        this.unchanged = unchanged;
+    }
+
     @JacocoGenerated
     public void setImageSmall(String imageSmall) {
         this.imageSmall = imageSmall;
@@ -239,6 +320,64 @@ public class ContentsDocument implements JsonSerializable {
         return toJsonString();
     }
 
+    /**
+     * A copy holding only the given fields, and the isbn identifying it. It keeps when the item was last modified.
+     *
+     * @param fields names of the fields to keep, from {@link #ATTRIBUTES}
+     * @return contentsDocument without the other fields
+     */
+    @SuppressWarnings({"PMD.NPathComplexity", "PMD.CognitiveComplexity"})
+    protected ContentsDocument project(Set<String> fields) {
+        ContentsDocument projected = new ContentsDocument(
+                fields.contains(TITLE) ? title : null,
+                fields.contains(AUTHOR) ? author : null,
+                fields.contains(DATE_OF_PUBLICATION) ? dateOfPublication : null,
+                isbn,
+                fields.contains(DESCRIPTION_SHORT) ? descriptionShort : null,
+                fields.contains(DESCRIPTION_LONG) ? descriptionLong : null,
+                fields.contains(TABLE_OF_CONTENTS) ? tableOfContents : null,
+                fields.contains(PROMOTIONAL) ? promotional : null,
+                fields.contains(SUMMARY) ? summary : null,
+                fields.contains(REVIEW) ? review : null,
+                fields.contains(IMAGE_SMALL) ? imageSmall : null,
+                fields.contains(IMAGE_LARGE) ? imageLarge : null,
+                fields.contains(IMAGE_ORIGINAL) ? imageOriginal : null,
+                fields.contains(AUDIO_FILE) ? audioFile : null,
+                fields.contains(SOURCE) ? source : null,
+                fields.contains(MODIFIED) ? modified : null,
+                fields.contains(CREATED) ? created : null);
+        projected.lastModified = getLastModified();
+        return projected;
+    }
+
+    /**
+     * The values written by an update, by attribute name. Empty fields are left out, as they are not written.
+     *
+     * @return values of {@link #UPDATABLE_ATTRIBUTES}
+     */
+    protected Map<String, String> updatableValues() {
+        Map<String, String> values = new LinkedHashMap<>();
+        putIfNotEmpty(values, TITLE, title);
+        putIfNotEmpty(values, AUTHOR, author);
+        putIfNotEmpty(values, DATE_OF_PUBLICATION, dateOfPublication);
+        putIfNotEmpty(values, DESCRIPTION_SHORT, descriptionShort);
+        putIfNotEmpty(values, DESCRIPTION_LONG, descriptionLong);
+        putIfNotEmpty(values, TABLE_OF_CONTENTS, tableOfContents);
+        putIfNotEmpty(values, PROMOTIONAL, promotional);
+        putIfNotEmpty(values, SUMMARY, summary);
+        putIfNotEmpty(values, REVIEW, review);
+        putIfNotEmpty(values, IMAGE_SMALL, imageSmall);
+        putIfNotEmpty(values, IMAGE_LARGE, imageLarge);
+        putIfNotEmpty(values, IMAGE_ORIGINAL, imageOriginal);
+        putIfNotEmpty(values, AUDIO_FILE, audioFile);
+        return values;
+    }
+
+    private static void putIfNotEmpty(Map<String, String> values, String attribute, String value) {
+        if (StringUtils.isNotEmpty(value)) {
+            values.put(attribute, value);
+        }
+    }
 
     protected boolean isValid() {
         if (StringUtils.isBlank(isbn)) {
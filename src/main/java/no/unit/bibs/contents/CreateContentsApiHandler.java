@@ -2,13 +2,11 @@ package no.unit.bibs.contents;
 
 import static java.util.Objects.isNull;
 import com.amazonaws.services.lambda.runtime.Context;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import nva.commons.apigateway.ApiGatewayHandler;
 import nva.commons.apigateway.RequestInfo;
 import nva.commons.apigateway.RestRequestHandler;
 import nva.commons.apigateway.exceptions.ApiGatewayException;
 import nva.commons.apigateway.exceptions.BadRequestException;
-import nva.commons.apigateway.exceptions.GatewayResponseSerializingException;
 import nva.commons.core.Environment;
 import nva.commons.core.JacocoGenerated;
 import org.slf4j.Logger;
@@ -16,13 +14,15 @@ import org.slf4j.LoggerFactory;
 
 import java.net.HttpURLConnection;
 
-import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
-
 public class CreateContentsApiHandler extends ApiGatewayHandler<ContentsRequest, ContentsDocument> {
 
     public static final String NO_PARAMETERS_GIVEN_TO_HANDLER = "No parameters given to CreateContentsApiHandler";
     public static final String COULD_NOT_INDEX_RECORD_PROVIDED = "Could not persist provided contents. ";
 
+    static {
+        Priming.primeOnInit(new Environment(), Priming.RequestPath.WRITE);
+    }
+
     private final DynamoDBClient dynamoDBClient;
     private final StorageClient storageClient;
     private final transient Logger logger = LoggerFactory.getLogger(CreateContentsApiHandler.class);
@@ -72,15 +72,9 @@ public class CreateContentsApiHandler extends ApiGatewayHandler<ContentsRequest,
         ContentsDocument contentsDocument = request.getContents();
         logger.error("json input looks like that :" + contentsDocument.toString());
         if (contentsDocument.isValid()) {
-            storageClient.handleFiles(contentsDocument);
-            dynamoDBClient.createContents(contentsDocument);
-            String createContents = dynamoDBClient.getContents(contentsDocument.getIsbn());
-            try {
-                ContentsDocument response = dtoObjectMapper.readValue(createContents, ContentsDocument.class);
-                return response;
-            } catch (JsonProcessingException e) {
-                throw new GatewayResponseSerializingException(e);
-            }
+            contentsDocument.setAttributeDigests(DynamoDBClient.attributeDigests(contentsDocument));
+            return FutureHelper.join(storageClient.handleFilesAsync(contentsDocument)
+                    .thenCompose(dynamoDBClient::createContentsAsync));
         } else {
             logger.error(COULD_NOT_INDEX_RECORD_PROVIDED + contentsDocument);
             throw new BadRequestException(COULD_NOT_INDEX_RECORD_PROVIDED + contentsDocument);
@@ -0,0 +1,27 @@
+package no.unit.bibs.contents;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@SuppressWarnings("PMD.DoNotUseThreads")
+public final class DaemonExecutors {
+
+    private DaemonExecutors() {
+    }
+
+    /**
+     * Creates a fixed thread pool for work that is shared by all invocations in a container. The threads are
+     * daemons so that the pool never keeps the JVM alive.
+     *
+     * @param threadName name of the threads in the pool
+     * @param size       number of threads
+     * @return the executor
+     */
+    public static ExecutorService newFixedThreadPool(String threadName, int size) {
+        return Executors.newFixedThreadPool(size, runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package no.unit.bibs.contents;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public final class DigestHelper {
+
+    public static final String SHA_256 = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int NIBBLE = 4;
+    private static final int NIBBLE_MASK = 0x0F;
+
+    private DigestHelper() {
+    }
+
+    /**
+     * Creates a SHA-256 digest, every JVM is required to support it.
+     *
+     * @return a new MessageDigest
+     */
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance(SHA_256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hashes the UTF-8 bytes of the given text with SHA-256.
+     *
+     * @param text text to hash
+     * @return the digest as lower case hex
+     */
+    public static String sha256Hex(String text) {
+        return toHex(sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Hashes a range of bytes with SHA-256.
+     *
+     * @param bytes  bytes to hash
+     * @param offset start of the range
+     * @param length length of the range
+     * @return the digest as lower case hex
+     */
+    public static String sha256Hex(byte[] bytes, int offset, int length) {
+        MessageDigest digest = sha256();
+        digest.update(bytes, offset, length);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Formats bytes as lower case hex.
+     *
+     * @param bytes bytes to format
+     * @return two hex digits per byte
+     */
+    public static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> NIBBLE) & NIBBLE_MASK];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & NIBBLE_MASK];
+        }
+        return new String(hex);
+    }
+
+}
@@ -1,33 +1,52 @@
 package no.unit.bibs.contents;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import no.unit.bibs.contents.exception.CommunicationException;
 import nva.commons.apigateway.exceptions.NotFoundException;
 import nva.commons.core.Environment;
 import nva.commons.core.JacocoGenerated;
 import nva.commons.core.StringUtils;
-import org.apache.commons.text.StringEscapeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.AttributeValueUpdate;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-
-import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 
+@SuppressWarnings("PMD.DoNotUseThreads")
 public class DynamoDBClient {
 
     private static final Logger logger = LoggerFactory.getLogger(DynamoDBClient.class);
@@ -37,32 +56,146 @@ public class DynamoDBClient {
     public static final String CANNOT_CONNECT_TO_DYNAMO_DB = "Cannot connect to DynamoDB";
     public static final String TABLE_NAME = "TABLE_NAME";
     public static final String PRIMARYKEY_ISBN = "isbn";
+    public static final String SET = "SET ";
+    public static final String ASSIGNMENT_SEPARATOR = ", ";
+    public static final String NAME_PLACEHOLDER = "#";
+    public static final String VALUE_PLACEHOLDER = ":";
+    public static final String SET_TEMPLATE = "#%1$s = :%1$s";
+    public static final String SET_IF_NOT_EXISTS_TEMPLATE = "#%1$s = if_not_exists(#%1$s, :%1$s)";
+    public static final String ADD_TEMPLATE = " ADD #%1$s :%1$s";
+    public static final String VERSION = "version";
+    public static final String CACHE_MAX_ENTRIES = "CONTENTS_CACHE_MAX_ENTRIES";
+    public static final String CACHE_TTL_SECONDS = "CONTENTS_CACHE_TTL_SECONDS";
+    public static final int DEFAULT_CACHE_MAX_ENTRIES = 5000;
+    public static final long DEFAULT_CACHE_TTL_SECONDS = 5;
+    public static final String CACHE_MISS =
+            "contents cache miss for %s. Since start: %d hits (%d from second tier), %d misses";
+    public static final char ETAG_LENGTH_SEPARATOR = ':';
+    public static final String BATCH_THREAD_NAME = "contents-batch";
+    public static final String UNPROCESSED_KEYS_AFTER_RETRIES = "Keys still unprocessed after %d attempts";
+    public static final int MAX_ITEM_BYTES = 400 * 1024;
+    public static final int MAP_OVERHEAD_BYTES = 3;
+    public static final String ITEM_TOO_LARGE = "Contents %s is %d bytes, larger than an item can be";
+    public static final int BATCH_GET_LIMIT = 100;
+    public static final int MAX_BATCH_ATTEMPTS = 5;
+    public static final int MAX_CONCURRENT_BATCHES = 4;
+    public static final long BATCH_RETRY_BASE_DELAY_MILLIS = 25;
+    public static final String CREATION_ERROR = "Creation error: ";
+    public static final String UPSERT_ERROR = "Upsert error: ";
+    public static final String PROJECTION_ETAG_SEPARATOR = "-";
+    public static final String DIGEST_PREFIX = "digest_";
+    public static final int DIGEST_LENGTH = 16;
+    public static final String DIGESTS_UNREADABLE = "Could not read stored digests of %s, writing all fields: %s";
+    public static final String FIELDS_UNCHANGED =
+            "%d of %d fields unchanged for %s. Since start: %d writes skipped, %d done, %d fields skipped, %d written";
+    private static final ExecutorService BATCH_EXECUTOR =
+            DaemonExecutors.newFixedThreadPool(BATCH_THREAD_NAME, MAX_CONCURRENT_BATCHES);
+    private static final Set<String> INSERT_ONLY_ATTRIBUTES = Set.of(ContentsDocument.SOURCE, ContentsDocument.CREATED);
+    private static final Set<String> LONG_TEXT_ATTRIBUTES = Set.of(ContentsDocument.DESCRIPTION_LONG,
+            ContentsDocument.TABLE_OF_CONTENTS, ContentsDocument.REVIEW, ContentsDocument.SUMMARY);
 
     private static String tableName;
+    private static TieredContentsCache sharedCache;
     private DynamoDbClient dbClient;
+    private final Supplier<DynamoDbAsyncClient> asyncClient;
+    private final TieredContentsCache cache;
+    private final AttributeOverflow overflow;
+    private final AtomicLong skippedWriteCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong skippedAttributeCount = new AtomicLong();
+    private final AtomicLong writtenAttributeCount = new AtomicLong();
 
     /**
-     * Creates a new DynamoDBClient.
+     * Creates a new DynamoDBClient. The read cache is shared by all instances created from the environment, so it
+     * is kept between warm invocations. Each function has a cache of its own, and writes made by the other functions
+     * do not invalidate it, so entries are only served for CONTENTS_CACHE_TTL_SECONDS, a few seconds by default.
+     * Long texts larger than ATTRIBUTE_OVERFLOW_BYTES are stored in BUCKET_NAME.
      */
     @JacocoGenerated
     public DynamoDBClient(Environment environment) {
         initDynamoDbClient(environment);
+        this.asyncClient = () -> AwsClientFactory.dynamoDbAsyncClient(environment);
+        this.cache = sharedCache(environment);
+        this.overflow = AttributeOverflow.fromEnvironment(environment);
     }
 
     /**
      * Creates a new DynamoDBClient.
      */
     public DynamoDBClient(DynamoDbClient dbClient) {
+        this(dbClient, new TieredContentsCache(
+                new LruContentsCache(DEFAULT_CACHE_MAX_ENTRIES, Duration.ofSeconds(DEFAULT_CACHE_TTL_SECONDS))));
+    }
+
+    /**
+     * Creates a new DynamoDBClient reading through the given cache.
+     *
+     * @param dbClient dbClient
+     * @param cache    cache in front of getContents
+     */
+    public DynamoDBClient(DynamoDbClient dbClient, TieredContentsCache cache) {
+        this(dbClient, null, cache);
+    }
+
+    /**
+     * Creates a new DynamoDBClient writing with asyncClient in {@link #createContentsAsync} and
+     * {@link #upsertContentsAsync}.
+     *
+     * @param dbClient    dbClient
+     * @param asyncClient asyncClient, or null to write with dbClient in the asynchronous variants too
+     * @param cache       cache in front of getContents
+     */
+    public DynamoDBClient(DynamoDbClient dbClient, DynamoDbAsyncClient asyncClient, TieredContentsCache cache) {
+        this(dbClient, asyncClient, cache, null);
+    }
+
+    /**
+     * Creates a new DynamoDBClient moving long texts that are too large for the item to S3.
+     *
+     * @param dbClient    dbClient
+     * @param asyncClient asyncClient, or null to write with dbClient in the asynchronous variants too
+     * @param cache       cache in front of getContents
+     * @param overflow    where long texts larger than its overflow size are stored, or null to keep them in the item
+     */
+    public DynamoDBClient(DynamoDbClient dbClient, DynamoDbAsyncClient asyncClient, TieredContentsCache cache,
+                          AttributeOverflow overflow) {
         this.dbClient = dbClient;
+        this.asyncClient = () -> asyncClient;
+        this.cache = cache;
+        this.overflow = overflow;
+    }
+
+    @JacocoGenerated
+    private static TieredContentsCache sharedCache(Environment environment) {
+        synchronized (DynamoDBClient.class) {
+            if (sharedCache == null) {
+                int maxEntries = environment.readEnvOpt(CACHE_MAX_ENTRIES)
+                        .map(Integer::parseInt)
+                        .orElse(DEFAULT_CACHE_MAX_ENTRIES);
+                long ttlSeconds = environment.readEnvOpt(CACHE_TTL_SECONDS)
+                        .map(Long::parseLong)
+                        .orElse(DEFAULT_CACHE_TTL_SECONDS);
+                sharedCache = new TieredContentsCache(
+                        new LruContentsCache(maxEntries, Duration.ofSeconds(ttlSeconds)));
+            }
+            return sharedCache;
+        }
+    }
+
+    /**
+     * The read cache, exposing its hit and miss counters.
+     *
+     * @return cache in front of getContents
+     */
+    public TieredContentsCache getContentsCache() {
+        return cache;
     }
 
     @JacocoGenerated
     private void initDynamoDbClient(Environment environment) {
         try {
             tableName = environment.readEnv(TABLE_NAME);
-            dbClient = DynamoDbClient.builder()
-                    .region(Region.of(environment.readEnv(AWS_REGION)))
-                    .build();
+            dbClient = AwsClientFactory.dynamoDbClient(environment);
         } catch (Exception e) {
             logger.error(CANNOT_CONNECT_TO_DYNAMO_DB, e);
         }
@@ -72,24 +205,63 @@ public class DynamoDBClient {
      * Adds or insert a document to dynamoDB.
      *
      * @param document the document to be inserted
+     * @return the document as it was persisted
      * @throws CommunicationException when something goes wrong
      */
-    public void createContents(ContentsDocument document) throws CommunicationException {
+    public ContentsDocument createContents(ContentsDocument document) throws CommunicationException {
         try {
+            Map<String, AttributeValue> item = this.generateItemMap(document);
+            Map<String, AttributeValue> stored = offload(item);
             PutItemRequest putItemRequest = PutItemRequest
                     .builder()
                     .tableName(tableName)
-                    .item(this.generateItemMap(document))
+                    .item(stored)
+                    .returnValues(ReturnValue.ALL_OLD)
                     .build();
-            dbClient.putItem(putItemRequest);
+            deleteReplaced(dbClient.putItem(putItemRequest).attributes(), stored);
             logger.info("contents created");
+            return toContentsDocument(item);
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
-            throw new CommunicationException("Creation error: " + e.getMessage(), e);
+            throw new CommunicationException(CREATION_ERROR + e.getMessage(), e);
+        } finally {
+            invalidateCache(document.getIsbn());
         }
     }
 
-    private Map<String, AttributeValue> generateItemMap(ContentsDocument document) {
+    /**
+     * Adds or inserts a document like {@link #createContents}, without blocking the calling thread.
+     *
+     * @param document the document to be inserted
+     * @return the document as it was persisted, or completes exceptionally with a CommunicationException
+     */
+    public CompletableFuture<ContentsDocument> createContentsAsync(ContentsDocument document) {
+        DynamoDbAsyncClient client = asyncClient.get();
+        if (client == null) {
+            try {
+                return CompletableFuture.completedFuture(createContents(document));
+            } catch (CommunicationException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return completeWrite(document.getIsbn(), CREATION_ERROR, () -> {
+            Map<String, AttributeValue> item = generateItemMap(document);
+            Map<String, AttributeValue> stored = offload(item);
+            PutItemRequest putItemRequest = PutItemRequest.builder()
+                    .tableName(tableName)
+                    .item(stored)
+                    .returnValues(ReturnValue.ALL_OLD)
+                    .build();
+            return client.putItem(putItemRequest)
+                    .thenApply(response -> {
+                        deleteReplaced(response.attributes(), stored);
+                        logger.info("contents created");
+                        return toContentsDocument(item);
+                    });
+        });
+    }
+
+    protected Map<String, AttributeValue> generateItemMap(ContentsDocument document) {
         Map<String, AttributeValue> itemMap = new HashMap<>();
         itemMap.put(ContentsDocument.ISBN,
                 AttributeValue.builder().s(document.getIsbn().toUpperCase(Locale.getDefault())).build());
@@ -112,118 +284,667 @@ public class DynamoDBClient {
         } else {
             itemMap.put(ContentsDocument.CREATED, AttributeValue.builder().s(document.getCreated().toString()).build());
         }
+        itemMap.put(ContentsDocument.ETAG, etagOf(itemMap));
+        putDigests(itemMap, document);
         return itemMap;
     }
 
     /**
-     * Gets the contentsDocument by given isbn.
+     * Stores the digest of every field written next to it, from the values as the supplier sent them when the
+     * document holds those.
+     */
+    private static void putDigests(Map<String, AttributeValue> itemMap, ContentsDocument document) {
+        Map<String, String> digests = Objects.requireNonNullElseGet(document.getAttributeDigests(),
+                () -> attributeDigests(document));
+        digests.forEach((attribute, digest) -> {
+            if (itemMap.containsKey(attribute)) {
+                itemMap.put(DIGEST_PREFIX + attribute, AttributeValue.builder().s(digest).build());
+            }
+        });
+    }
+
+    /**
+     * Digests of the fields of the document that an update writes. They are shortened, as they only have to tell
+     * versions of the same field apart.
+     *
+     * @param document contentsDocument as the supplier sent it
+     * @return digest by attribute name
+     */
+    public static Map<String, String> attributeDigests(ContentsDocument document) {
+        Map<String, String> digests = new TreeMap<>();
+        document.updatableValues().forEach((attribute, value) ->
+                digests.put(attribute, DigestHelper.sha256Hex(value).substring(0, DIGEST_LENGTH)));
+        return digests;
+    }
+
+    /**
+     * Reads the stored item an update is compared with, with a strongly consistent read past the read cache, so
+     * that an update is compared with the item as the previous one left it.
+     *
+     * @param isbn identifier
+     * @return the stored item, or empty when there is none or it cannot be read, and every field is to be written
+     */
+    public Optional<StoredContents> getStoredContents(String isbn) {
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of(PRIMARYKEY_ISBN,
+                        AttributeValue.builder().s(isbn.toUpperCase(Locale.getDefault())).build()))
+                .consistentRead(true)
+                .build();
+        try {
+            GetItemResponse response = dbClient.getItem(request);
+            if (response == null || response.item() == null || response.item().isEmpty()) {
+                return Optional.empty();
+            }
+            Map<String, AttributeValue> item = response.item();
+            Map<String, String> digests = new HashMap<>();
+            item.forEach((attribute, value) -> {
+                if (attribute.startsWith(DIGEST_PREFIX)) {
+                    digests.put(attribute.substring(DIGEST_PREFIX.length()), value.s());
+                }
+            });
+            Instant lastWritten = Optional.ofNullable(instantValue(item, ContentsDocument.MODIFIED))
+                    .orElse(instantValue(item, ContentsDocument.CREATED));
+            return Optional.of(new StoredContents(digests, lastWritten, () -> resolveContents(item)));
+        } catch (DynamoDbException | DateTimeParseException e) {
+            logger.warn(String.format(DIGESTS_UNREADABLE, isbn, e.getMessage()));
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Compares the digests of a resent document with the digests stored with the item. Files are included: the
+     * digest of a file is of its url, object key or inline content, so the caller decides whether new bytes may have
+     * been put under the same url or key since the item was written.
+     *
+     * @param stored  digests stored with the item
+     * @param digests digests of the resent document, from {@link #attributeDigests}
+     * @return names of the fields that hold the same value as the stored item
+     */
+    public static Set<String> unchangedAttributes(Map<String, String> stored, Map<String, String> digests) {
+        Set<String> unchanged = new TreeSet<>();
+        digests.forEach((attribute, digest) -> {
+            if (digest.equals(stored.get(attribute))) {
+                unchanged.add(attribute);
+            }
+        });
+        return unchanged;
+    }
+
+    /**
+     * Counts an update, and logs how many of its fields were left unwritten.
+     *
+     * @param isbn      identifier
+     * @param unchanged number of fields left unwritten, files included
+     * @param total     number of fields in the update
+     * @param written   whether the update was written
+     */
+    public void countUpdate(String isbn, int unchanged, int total, boolean written) {
+        if (written) {
+            writeCount.incrementAndGet();
+        } else {
+            skippedWriteCount.incrementAndGet();
+        }
+        skippedAttributeCount.addAndGet(unchanged);
+        writtenAttributeCount.addAndGet(total - unchanged);
+        logger.info(String.format(FIELDS_UNCHANGED, unchanged, total, isbn, skippedWriteCount.get(),
+                writeCount.get(), skippedAttributeCount.get(), writtenAttributeCount.get()));
+    }
+
+    /**
+     * Number of updates left unwritten because no field had changed.
+     *
+     * @return skipped write count
+     */
+    public long getSkippedWriteCount() {
+        return skippedWriteCount.get();
+    }
+
+    /**
+     * Number of updates with at least one changed field.
+     *
+     * @return write count
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * Number of fields, files included, left unwritten because they had not changed.
+     *
+     * @return skipped attribute count
+     */
+    public long getSkippedAttributeCount() {
+        return skippedAttributeCount.get();
+    }
+
+    /**
+     * Number of changed fields written.
+     *
+     * @return written attribute count
+     */
+    public long getWrittenAttributeCount() {
+        return writtenAttributeCount.get();
+    }
+
+    /**
+     * Hashes the written attributes in name order. The written values always include a fresh created or modified
+     * timestamp, which is part of the response body. An update writes only some of the attributes, so its etag is
+     * combined with the version of the item when read, see {@link #versionedEtag}. Compressed texts are hashed as
+     * text, so the etag does not depend on how the values are stored. Field digests are left out.
+     *
+     * @param values attributes to be written
+     * @return etag attribute
+     */
+    protected static AttributeValue etagOf(Map<String, AttributeValue> values) {
+        StringBuilder canonical = new StringBuilder();
+        new TreeMap<>(values).forEach((attribute, value) -> {
+            if (!ContentsDocument.ETAG.equals(attribute) && !attribute.startsWith(DIGEST_PREFIX)) {
+                appendLengthPrefixed(canonical, attribute);
+                appendLengthPrefixed(canonical, TextAttributeCodec.decode(value));
+            }
+        });
+        return AttributeValue.builder().s(DigestHelper.sha256Hex(canonical.toString())).build();
+    }
+
+    private static void appendLengthPrefixed(StringBuilder canonical, String text) {
+        String value = String.valueOf(text);
+        canonical.append(value.length()).append(ETAG_LENGTH_SEPARATOR).append(value);
+    }
+
+    /**
+     * Moves long texts too large for the item to S3, after the etag is computed from them.
+     *
+     * @param values values to be written, with the isbn
+     * @return a copy of values, with pointers in place of the moved texts
+     */
+    private Map<String, AttributeValue> offload(Map<String, AttributeValue> values) {
+        Map<String, AttributeValue> stored = new HashMap<>(values);
+        if (overflow != null) {
+            String isbn = values.get(PRIMARYKEY_ISBN).s();
+            LONG_TEXT_ATTRIBUTES.stream()
+                    .filter(values::containsKey)
+                    .forEach(attribute -> stored.put(attribute,
+                            overflow.offload(isbn, attribute, values.get(attribute))));
+        }
+        return stored;
+    }
+
+    /**
+     * Maps an item read from DynamoDB, resolving pointers to texts stored in S3. Only attributes in the item are
+     * resolved, so a projection reads the texts it asks for only.
+     *
+     * @param item DynamoDB item
+     * @return contentsDocument
+     */
+    private ContentsDocument resolveContents(Map<String, AttributeValue> item) {
+        return toContentsDocument(overflow == null ? item : overflow.resolve(item));
+    }
+
+    /**
+     * Deletes the texts in S3 that the previous values pointed to and the write replaced.
+     *
+     * @param previous values before the write, of the attributes it replaced or removed
+     * @param stored   values as written
+     */
+    private void deleteReplaced(Map<String, AttributeValue> previous, Map<String, AttributeValue> stored) {
+        if (overflow != null) {
+            overflow.deleteReplaced(previous, stored);
+        }
+    }
+
+    /**
+     * Deletes the texts an upsert replaced, and maps the item as it left it from the item before and the values
+     * written, so that no text is read back from S3. Texts in S3 that the upsert did not write are left out of the
+     * document; they are resolved when the contents are read.
+     *
+     * @param previous item before the upsert, or empty when it was created
+     * @param stored   values as written
+     * @param written  values written, before they were moved to S3
+     * @return the document as the upsert left it, without the texts in S3 it did not write
+     */
+    private ContentsDocument upserted(Map<String, AttributeValue> previous, Map<String, AttributeValue> stored,
+                                      Map<String, AttributeValue> written) {
+        deleteReplaced(updatedBy(previous, stored), stored);
+        Map<String, AttributeValue> item = new HashMap<>(previous);
+        item.values().removeIf(AttributeOverflow::isPointer);
+        written.forEach((attribute, value) -> {
+            if (!INSERT_ONLY_ATTRIBUTES.contains(attribute) || !previous.containsKey(attribute)) {
+                item.put(attribute, value);
+            }
+        });
+        long version = previous.containsKey(VERSION) ? Long.parseLong(previous.get(VERSION).n()) + 1 : 1;
+        item.put(VERSION, AttributeValue.builder().n(Long.toString(version)).build());
+        return toContentsDocument(item);
+    }
+
+    private static Map<String, AttributeValue> updatedBy(Map<String, AttributeValue> previous,
+                                                         Map<String, AttributeValue> stored) {
+        Map<String, AttributeValue> updated = new HashMap<>(previous);
+        updated.keySet().retainAll(stored.keySet());
+        return updated;
+    }
+
+    /**
+     * Gets the contentsDocument by given isbn, from the read cache when it is there.
      *
      * @param isbn identifier
-     * @return contentsDocument as json string
+     * @return contentsDocument
+     * @throws NotFoundException contentsDocument not found
+     */
+    public ContentsDocument getContents(String isbn) throws NotFoundException {
+        Optional<ContentsDocument> cached = cache.get(isbn);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        ContentsDocument contents = readContents(isbn);
+        cache.put(isbn, contents);
+        logCacheMiss(isbn);
+        return contents;
+    }
+
+    /**
+     * Gets only the given fields of the contentsDocument, and the isbn. Unless the whole document is in the read
+     * cache, DynamoDB is asked for the given attributes only, and the small ones giving the etag and the time last
+     * modified, so that large text attributes are neither read nor billed when they are not needed. The etag of the
+     * projection is derived from the etag of the document and the fields, as it is a different representation.
+     *
+     * @param isbn   identifier
+     * @param fields names of the fields to get, from {@link ContentsDocument#ATTRIBUTES}, or empty for all fields
+     * @return contentsDocument holding the given fields
      * @throws NotFoundException contentsDocument not found
      */
-    public String getContents(String isbn) throws NotFoundException {
+    public ContentsDocument getContents(String isbn, Set<String> fields) throws NotFoundException {
+        if (fields == null || fields.isEmpty()) {
+            return getContents(isbn);
+        }
+        Optional<ContentsDocument> cached = cache.get(isbn);
+        ContentsDocument contents;
+        if (cached.isPresent()) {
+            contents = cached.get();
+        } else {
+            contents = readContents(isbn, fields);
+            logCacheMiss(isbn);
+        }
+        ContentsDocument projected = contents.project(fields);
+        if (contents.getEtag() != null) {
+            projected.setEtag(contents.getEtag() + PROJECTION_ETAG_SEPARATOR
+                    + Integer.toHexString(String.join(ASSIGNMENT_SEPARATOR, new TreeSet<>(fields)).hashCode()));
+        }
+        return projected;
+    }
+
+    private void logCacheMiss(String isbn) {
+        logger.info(String.format(CACHE_MISS, isbn, cache.getHitCount(), cache.getSecondTierHitCount(),
+                cache.getMissCount()));
+    }
+
+    private ContentsDocument readContents(String isbn) throws NotFoundException {
+        return readContents(isbn, null);
+    }
+
+    private ContentsDocument readContents(String isbn, Set<String> fields) throws NotFoundException {
         HashMap<String, AttributeValue> keyToGet = new HashMap<>();
         keyToGet.put(PRIMARYKEY_ISBN, AttributeValue.builder().s(isbn).build());
-        GetItemRequest request = GetItemRequest.builder()
+        GetItemRequest.Builder requestBuilder = GetItemRequest.builder()
                 .key(keyToGet)
-                .tableName(tableName)
-                .build();
+                .tableName(tableName);
+        if (fields != null) {
+            Map<String, String> names = new TreeMap<>();
+            names.put(NAME_PLACEHOLDER + PRIMARYKEY_ISBN, PRIMARYKEY_ISBN);
+            names.put(NAME_PLACEHOLDER + ContentsDocument.ETAG, ContentsDocument.ETAG);
+            names.put(NAME_PLACEHOLDER + VERSION, VERSION);
+            names.put(NAME_PLACEHOLDER + ContentsDocument.MODIFIED, ContentsDocument.MODIFIED);
+            names.put(NAME_PLACEHOLDER + ContentsDocument.CREATED, ContentsDocument.CREATED);
+            fields.forEach(field -> names.put(NAME_PLACEHOLDER + field, field));
+            requestBuilder.projectionExpression(String.join(ASSIGNMENT_SEPARATOR, names.keySet()))
+                    .expressionAttributeNames(names);
+        }
+        GetItemRequest request = requestBuilder.build();
         try {
             GetItemResponse itemResponse = dbClient.getItem(request);
             if (itemResponse != null) {
                 Map<String, AttributeValue> returnedItem = itemResponse.item();
                 if (returnedItem != null && !returnedItem.isEmpty()) {
-                    return parseAttributeValueMap(returnedItem);
+                    return resolveContents(returnedItem);
                 }
             }
             logger.info(String.format("No item found with the isbn %s!", isbn));
             throw new NotFoundException(String.format(DOCUMENT_WITH_ID_WAS_NOT_FOUND, isbn));
-        } catch (DynamoDbException | JsonProcessingException e) {
+        } catch (DynamoDbException | DateTimeParseException e) {
             logger.error(e.getMessage());
             throw new NotFoundException(String.format(DOCUMENT_WITH_ID_WAS_NOT_FOUND, isbn));
         }
     }
 
     /**
-     * Updates the contentsDocument identified by its isbn.
+     * Creates the document, or merges it into the stored item, with a single UpdateItem request. Source and
+     * created are only written when the item does not exist yet.
      *
-     * @param document contentsDocument to update
+     * @param document contentsDocument to create or update
+     * @return the document as it was persisted, without the texts in S3 the update did not write
      * @throws CommunicationException exception while connecting to database
      */
-    protected void updateContents(ContentsDocument document) throws CommunicationException {
+    public ContentsDocument upsertContents(ContentsDocument document) throws CommunicationException {
         try {
-            HashMap<String, AttributeValue> keyToUpdate = new HashMap<>();
-            keyToUpdate.put(PRIMARYKEY_ISBN, AttributeValue.builder().s(document.getIsbn()).build());
-            Map<String, AttributeValueUpdate> attributeUpdates = this.findValuesToUpdate(document);
-            UpdateItemRequest updateItemRequest = UpdateItemRequest
-                    .builder()
-                    .key(keyToUpdate)
-                    .tableName(tableName)
-                    .attributeUpdates(attributeUpdates)
-                    .build();
-            dbClient.updateItem(updateItemRequest);
-            logger.info("contents updated");
+            Map<String, AttributeValue> item = upsertItem(document);
+            Map<String, AttributeValue> stored = offload(item);
+            UpdateItemResponse updateItemResponse = dbClient.updateItem(createUpsertRequest(stored));
+            logger.info("contents upserted");
+            return upserted(updateItemResponse.attributes(), stored, item);
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
-            throw new CommunicationException("Update error: " + e.getMessage(), e);
-        }
-    }
-
-    protected String parseAttributeValueMap(Map<String, AttributeValue> returnedItem) throws JsonProcessingException {
-        Map<String, String> item = new HashMap<>();
-        returnedItem.keySet()
-                .forEach(key -> item.put(key,
-                        returnedItem.get(key).getValueForField("S", String.class).orElse(null)));
-        return dtoObjectMapper.writeValueAsString(item);
-    }
-
-    private Map<String, AttributeValueUpdate> findValuesToUpdate(ContentsDocument document) {
-        Map<String, AttributeValueUpdate> updateValueMap = new HashMap<>();
-        this.conditionalAddForUpdate(updateValueMap, document.getTitle(), ContentsDocument.TITLE, true);
-        this.conditionalAddForUpdate(updateValueMap, document.getAuthor(), ContentsDocument.AUTHOR, true);
-        this.conditionalAddForUpdate(updateValueMap, document.getDateOfPublication(),
-                ContentsDocument.DATE_OF_PUBLICATION, false);
-        this.conditionalAddForUpdate(updateValueMap, document.getDescriptionShort(), ContentsDocument.DESCRIPTION_SHORT,
-                true);
-        this.conditionalAddForUpdate(updateValueMap, document.getDescriptionLong(), ContentsDocument.DESCRIPTION_LONG,
-                true);
-        this.conditionalAddForUpdate(updateValueMap, document.getTableOfContents(), ContentsDocument.TABLE_OF_CONTENTS,
-                true);
-        this.conditionalAddForUpdate(updateValueMap, document.getPromotional(), ContentsDocument.PROMOTIONAL, true);
-        this.conditionalAddForUpdate(updateValueMap, document.getSummary(), ContentsDocument.SUMMARY, true);
-        this.conditionalAddForUpdate(updateValueMap, document.getReview(), ContentsDocument.REVIEW, true);
-        this.conditionalAddForUpdate(updateValueMap, document.getImageSmall(), ContentsDocument.IMAGE_SMALL, false);
-        this.conditionalAddForUpdate(updateValueMap, document.getImageLarge(), ContentsDocument.IMAGE_LARGE, false);
-        this.conditionalAddForUpdate(updateValueMap, document.getImageOriginal(), ContentsDocument.IMAGE_ORIGINAL,
-                false);
-        this.conditionalAddForUpdate(updateValueMap, document.getAudioFile(), ContentsDocument.AUDIO_FILE, false);
-        AttributeValue attributeValue = AttributeValue.builder().s(Instant.now().toString()).build();
-        updateValueMap.put(ContentsDocument.MODIFIED, AttributeValueUpdate.builder().value(attributeValue).build());
-        return updateValueMap;
-    }
-
-    protected void conditionalAddForUpdate(Map<String, AttributeValueUpdate> updateValueMap, String value, String key,
-                                           boolean unescapeHtml) {
-        if (StringUtils.isNotEmpty(value)) {
-            String escaped = value;
-            if (unescapeHtml && StringHelper.isValidHtmlEscapeCode(value)) {
-                escaped = StringEscapeUtils.unescapeHtml4(value);
+            throw new CommunicationException(UPSERT_ERROR + e.getMessage(), e);
+        } finally {
+            invalidateCache(document.getIsbn());
+        }
+    }
+
+    /**
+     * Creates or merges the document like {@link #upsertContents}, without blocking the calling thread.
+     *
+     * @param document contentsDocument to create or update
+     * @return the document as {@link #upsertContents} returns it, or completes exceptionally with a
+     *         CommunicationException
+     */
+    public CompletableFuture<ContentsDocument> upsertContentsAsync(ContentsDocument document) {
+        DynamoDbAsyncClient client = asyncClient.get();
+        if (client == null) {
+            try {
+                return CompletableFuture.completedFuture(upsertContents(document));
+            } catch (CommunicationException e) {
+                return CompletableFuture.failedFuture(e);
             }
-            AttributeValue attributeValue = AttributeValue.builder().s(escaped).build();
-            updateValueMap.put(key, AttributeValueUpdate.builder().value(attributeValue).build());
         }
+        return completeWrite(document.getIsbn(), UPSERT_ERROR, () -> {
+            Map<String, AttributeValue> item = upsertItem(document);
+            Map<String, AttributeValue> stored = offload(item);
+            return client.updateItem(createUpsertRequest(stored))
+                    .thenApply(response -> {
+                        logger.info("contents upserted");
+                        return upserted(response.attributes(), stored, item);
+                    });
+        });
+    }
+
+    /**
+     * Invalidates the cache once the write is done, and turns any failure into a CommunicationException as the
+     * blocking writes do.
+     */
+    private CompletableFuture<ContentsDocument> completeWrite(String isbn, String error,
+                                                              Supplier<CompletableFuture<ContentsDocument>> write) {
+        CompletableFuture<ContentsDocument> written;
+        try {
+            written = write.get();
+        } catch (RuntimeException e) {
+            written = CompletableFuture.failedFuture(e);
+        }
+        return written.handle((contents, throwable) -> {
+            invalidateCache(isbn);
+            if (throwable == null) {
+                return contents;
+            }
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause()
+                    : throwable;
+            logger.error(cause.getMessage(), cause);
+            Exception exception = cause instanceof Exception ? (Exception) cause : new CompletionException(cause);
+            throw new CompletionException(new CommunicationException(error + cause.getMessage(), exception));
+        });
+    }
+
+    protected UpdateItemRequest createUpsertRequest(ContentsDocument document) {
+        return createUpsertRequest(offload(upsertItem(document)));
+    }
+
+    private Map<String, AttributeValue> upsertItem(ContentsDocument document) {
+        Map<String, AttributeValue> item = generateItemMap(document);
+        item.put(ContentsDocument.MODIFIED, AttributeValue.builder().s(Instant.now().toString()).build());
+        item.put(ContentsDocument.ETAG, etagOf(item));
+        return item;
+    }
+
+    /**
+     * The item before the update is returned, so that the texts in S3 the update replaced can be deleted. The
+     * version of the item is incremented in the same request, see {@link #versionedEtag}.
+     */
+    private UpdateItemRequest createUpsertRequest(Map<String, AttributeValue> stored) {
+        Map<String, AttributeValue> item = new HashMap<>(stored);
+        AttributeValue key = item.remove(PRIMARYKEY_ISBN);
+        Map<String, String> attributeNames = new HashMap<>();
+        Map<String, AttributeValue> attributeValues = new HashMap<>();
+        List<String> assignments = new ArrayList<>();
+        item.forEach((attribute, value) -> {
+            attributeNames.put(NAME_PLACEHOLDER + attribute, attribute);
+            attributeValues.put(VALUE_PLACEHOLDER + attribute, value);
+            String template = INSERT_ONLY_ATTRIBUTES.contains(attribute) ? SET_IF_NOT_EXISTS_TEMPLATE : SET_TEMPLATE;
+            assignments.add(String.format(template, attribute));
+        });
+        attributeNames.put(NAME_PLACEHOLDER + VERSION, VERSION);
+        attributeValues.put(VALUE_PLACEHOLDER + VERSION, AttributeValue.builder().n("1").build());
+        return UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of(PRIMARYKEY_ISBN, key))
+                .updateExpression(SET + String.join(ASSIGNMENT_SEPARATOR, assignments)
+                        + String.format(ADD_TEMPLATE, VERSION))
+                .expressionAttributeNames(attributeNames)
+                .expressionAttributeValues(attributeValues)
+                .returnValues(ReturnValue.ALL_OLD)
+                .build();
+    }
+
+    /**
+     * Writes documents with one UpdateItem each, like {@link #upsertContents}, so that created is kept and modified
+     * set when an item is replaced. BatchWriteItem cannot do that, and it rejects a whole chunk when one item in it
+     * is invalid. Each item is checked against the DynamoDB item size limit before it is sent, and one that is too
+     * large, or fails, is reported FAILED on its own. The writes run concurrently, and the SDK retries throttled
+     * ones. Documents sharing an isbn are collapsed to the last one.
+     *
+     * @param documents valid documents to be inserted
+     * @return status per isbn, {@link BulkContentsResponse#CREATED} or {@link BulkContentsResponse#FAILED}
+     */
+    public Map<String, String> createContentsBatch(List<ContentsDocument> documents) {
+        Map<String, ContentsDocument> byIsbn = new LinkedHashMap<>();
+        documents.forEach(document -> byIsbn.put(document.getIsbn().toUpperCase(Locale.getDefault()), document));
+        Map<String, CompletableFuture<Void>> writes = new LinkedHashMap<>();
+        byIsbn.forEach((isbn, document) ->
+                writes.put(isbn, CompletableFuture.runAsync(() -> writeItem(document), BATCH_EXECUTOR)));
+
+        Map<String, String> status = new LinkedHashMap<>();
+        writes.forEach((isbn, write) -> {
+            try {
+                write.join();
+                status.put(isbn, BulkContentsResponse.CREATED);
+            } catch (CompletionException e) {
+                logger.error(e.getMessage(), e);
+                status.put(isbn, BulkContentsResponse.FAILED);
+            }
+        });
+        status.keySet().forEach(this::invalidateCache);
+        logger.info(String.format("contents batch written, %d items", status.size()));
+        return status;
+    }
+
+    private void writeItem(ContentsDocument document) {
+        Map<String, AttributeValue> stored = offload(upsertItem(document));
+        UpdateItemRequest request = createUpsertRequest(stored);
+        int size = itemSize(request.expressionAttributeValues()) + itemSize(request.key());
+        if (size > MAX_ITEM_BYTES) {
+            throw new IllegalArgumentException(String.format(ITEM_TOO_LARGE, document.getIsbn(), size));
+        }
+        deleteReplaced(updatedBy(dbClient.updateItem(request).attributes(), stored), stored);
+    }
+
+    /**
+     * Size of the attributes as DynamoDB counts it towards the item size limit: the length of the name and the
+     * value, in bytes. Compressed texts count as their compressed bytes, and texts moved to S3 as their pointer.
+     */
+    private static int itemSize(Map<String, AttributeValue> attributes) {
+        int size = 0;
+        for (Map.Entry<String, AttributeValue> attribute : attributes.entrySet()) {
+            size += attribute.getKey().getBytes(StandardCharsets.UTF_8).length + valueSize(attribute.getValue());
+        }
+        return size;
+    }
+
+    private static int valueSize(AttributeValue value) {
+        if (value.s() != null) {
+            return value.s().getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (value.b() != null) {
+            return value.b().asByteArrayUnsafe().length;
+        }
+        if (value.n() != null) {
+            return value.n().length();
+        }
+        return value.hasM() ? MAP_OVERHEAD_BYTES + itemSize(value.m()) : 1;
+    }
+
+    @JacocoGenerated
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(BATCH_RETRY_BASE_DELAY_MILLIS << attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Items are written with an upper case isbn, but cached with the isbn as it was requested.
+     */
+    private void invalidateCache(String isbn) {
+        if (isbn != null) {
+            cache.invalidate(isbn);
+            cache.invalidate(isbn.toUpperCase(Locale.getDefault()));
+            cache.invalidate(isbn.toLowerCase(Locale.getDefault()));
+        }
+    }
+
+    /**
+     * Gets the contentsDocuments for many isbns with BatchGetItem, reading chunks of 100 keys concurrently and
+     * retrying unprocessed keys with exponential backoff.
+     *
+     * @param isbns identifiers, duplicates are read once
+     * @return the contentsDocuments found, by isbn. Isbns that were not found are left out
+     * @throws CommunicationException when the items could not be read
+     */
+    public Map<String, ContentsDocument> getContentsBatch(Collection<String> isbns) throws CommunicationException {
+        List<String> keys = new ArrayList<>(new LinkedHashSet<>(isbns));
+        List<CompletableFuture<List<Map<String, AttributeValue>>>> chunks = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += BATCH_GET_LIMIT) {
+            List<String> chunk = keys.subList(from, Math.min(from + BATCH_GET_LIMIT, keys.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> readChunk(chunk), BATCH_EXECUTOR));
+        }
+        Map<String, ContentsDocument> found = new LinkedHashMap<>();
+        try {
+            for (CompletableFuture<List<Map<String, AttributeValue>>> chunk : chunks) {
+                for (Map<String, AttributeValue> item : chunk.join()) {
+                    found.put(item.get(PRIMARYKEY_ISBN).s(), resolveContents(item));
+                }
+            }
+        } catch (CompletionException | DateTimeParseException e) {
+            logger.error(e.getMessage(), e);
+            throw new CommunicationException("Batch read error: " + e.getMessage(), e);
+        }
+        logger.info(String.format("contents batch read, %d of %d found", found.size(), keys.size()));
+        return found;
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private List<Map<String, AttributeValue>> readChunk(List<String> isbns) {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        isbns.forEach(isbn -> keys.add(Map.of(PRIMARYKEY_ISBN, AttributeValue.builder().s(isbn).build())));
+        Map<String, KeysAndAttributes> pending =
+                Collections.singletonMap(tableName, KeysAndAttributes.builder().keys(keys).build());
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int attempt = 0; attempt < MAX_BATCH_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                backOff(attempt);
+            }
+            BatchGetItemResponse response = dbClient.batchGetItem(BatchGetItemRequest.builder()
+                    .requestItems(pending)
+                    .build());
+            items.addAll(response.responses().getOrDefault(tableName, Collections.emptyList()));
+            pending = response.unprocessedKeys();
+        }
+        if (!pending.isEmpty()) {
+            throw new IllegalStateException(String.format(UNPROCESSED_KEYS_AFTER_RETRIES, MAX_BATCH_ATTEMPTS));
+        }
+        return items;
+    }
+
+    /**
+     * Maps a DynamoDB item straight into a ContentsDocument. Compressed texts are decompressed, other attributes
+     * that are not strings are read as missing.
+     *
+     * @param item DynamoDB item
+     * @return contentsDocument
+     * @throws DateTimeParseException when modified or created is not an instant
+     */
+    protected static ContentsDocument toContentsDocument(Map<String, AttributeValue> item) {
+        ContentsDocument document = new ContentsDocument(
+                stringValue(item, ContentsDocument.TITLE),
+                stringValue(item, ContentsDocument.AUTHOR),
+                stringValue(item, ContentsDocument.DATE_OF_PUBLICATION),
+                stringValue(item, ContentsDocument.ISBN),
+                stringValue(item, ContentsDocument.DESCRIPTION_SHORT),
+                stringValue(item, ContentsDocument.DESCRIPTION_LONG),
+                stringValue(item, ContentsDocument.TABLE_OF_CONTENTS),
+                stringValue(item, ContentsDocument.PROMOTIONAL),
+                stringValue(item, ContentsDocument.SUMMARY),
+                stringValue(item, ContentsDocument.REVIEW),
+                stringValue(item, ContentsDocument.IMAGE_SMALL),
+                stringValue(item, ContentsDocument.IMAGE_LARGE),
+                stringValue(item, ContentsDocument.IMAGE_ORIGINAL),
+                stringValue(item, ContentsDocument.AUDIO_FILE),
+                stringValue(item, ContentsDocument.SOURCE),
+                instantValue(item, ContentsDocument.MODIFIED),
+                instantValue(item, ContentsDocument.CREATED));
+        document.setEtag(versionedEtag(stringValue(item, ContentsDocument.ETAG), item.get(VERSION)));
+        return document;
+    }
+
+    /**
+     * The etag an update stores hashes the values it wrote rather than the whole item, so it is combined with the
+     * version the same update incremented, which tells the states of the item apart. Items written whole by a put
+     * have no version, and their etag hashes the whole item.
+     *
+     * @param etag    etag stored with the item
+     * @param version version of the item, or null
+     * @return etag of the item
+     */
+    private static String versionedEtag(String etag, AttributeValue version) {
+        if (etag == null || version == null) {
+            return etag;
+        }
+        return DigestHelper.sha256Hex(etag + ETAG_LENGTH_SEPARATOR + version.n());
+    }
+
+    private static String stringValue(Map<String, AttributeValue> item, String attribute) {
+        AttributeValue value = item.get(attribute);
+        return value == null ? null : TextAttributeCodec.decode(value);
+    }
+
+    private static Instant instantValue(Map<String, AttributeValue> item, String attribute) {
+        String value = stringValue(item, attribute);
+        return StringUtils.isNotEmpty(value) ? Instant.parse(value) : null;
     }
 
     protected void conditionalAddForCreate(Map<String, AttributeValue> itemMap, String value, String key,
                                            boolean unescapeHtml) {
         if (StringUtils.isNotEmpty(value)) {
-            String escaped = value;
-            if (unescapeHtml && StringHelper.isValidHtmlEscapeCode(value)) {
-                escaped = StringEscapeUtils.unescapeHtml4(value);
-            }
-            itemMap.put(key, AttributeValue.builder().s(escaped).build());
+            String escaped = unescapeHtml ? StringHelper.unescapeHtml(value) : value;
+            itemMap.put(key, textValue(key, escaped));
         }
     }
 
+    /**
+     * Long free texts are stored compressed when that makes the item smaller, see {@link TextAttributeCodec}.
+     */
+    private static AttributeValue textValue(String key, String text) {
+        return LONG_TEXT_ATTRIBUTES.contains(key)
+                ? TextAttributeCodec.encode(text)
+                : AttributeValue.builder().s(text).build();
+    }
+
 }
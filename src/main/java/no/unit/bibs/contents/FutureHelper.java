@@ -0,0 +1,35 @@
+package no.unit.bibs.contents;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+
+public final class FutureHelper {
+
+    private FutureHelper() {
+    }
+
+    /**
+     * Waits for the future, and throws what failed it the way a blocking call would have, so that handlers map
+     * the failure to the same status code.
+     *
+     * @param future future to wait for
+     * @param <T>    type of the result
+     * @return result of the future
+     * @throws ApiGatewayException when the future failed with one
+     */
+    public static <T> T join(CompletableFuture<T> future) throws ApiGatewayException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ApiGatewayException) {
+                throw (ApiGatewayException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+}
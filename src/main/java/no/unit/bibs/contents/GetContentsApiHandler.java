@@ -1,21 +1,52 @@
 package no.unit.bibs.contents;
 
 import com.amazonaws.services.lambda.runtime.Context;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import nva.commons.apigateway.ApiGatewayHandler;
 import nva.commons.apigateway.RequestInfo;
 import nva.commons.apigateway.exceptions.ApiGatewayException;
-import nva.commons.apigateway.exceptions.GatewayResponseSerializingException;
+import nva.commons.apigateway.exceptions.BadRequestException;
 import nva.commons.core.Environment;
 import nva.commons.core.JacocoGenerated;
 
 import java.net.HttpURLConnection;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
 
-public class GetContentsApiHandler extends ApiGatewayHandler<Void, ContentsDocument> {
+public class GetContentsApiHandler extends ApiGatewayHandler<Void, Object> {
 
     public static final String ISBN = "isbn";
+    public static final String ETAG = "ETag";
+    public static final String LAST_MODIFIED = "Last-Modified";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String ANY_ETAG = "*";
+    public static final String WEAK_ETAG_PREFIX = "W/";
+    public static final String ETAG_SEPARATOR = ",";
+    public static final String QUOTE = "\"";
+    public static final String FIELDS = "fields";
+    public static final String FIELD_SEPARATOR = ",";
+    public static final String UNKNOWN_FIELDS = "Unknown fields: ";
+    public static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+    static {
+        Priming.primeOnInit(new Environment(), Priming.RequestPath.READ);
+    }
+
     private final DynamoDBClient dynamoDBClient;
 
     @JacocoGenerated
@@ -35,32 +66,137 @@ public class GetContentsApiHandler extends ApiGatewayHandler<Void, ContentsDocum
 
     /**
      * Implements the main logic of the handler. Any exception thrown by this method will be handled by method.
+     * Responds with ETag and Last-Modified headers, and without a body when the client already has the current
+     * version according to If-None-Match, or If-Modified-Since when no If-None-Match is given. With fields, only
+     * the given comma separated fields and the isbn are read and returned, without the fields that have no value.
      *
      * @param input       The input object to the method. Usually a deserialized json.
      * @param requestInfo Request headers and path.
      * @param context     the ApiGateway context.
-     * @return the Response body that is going to be serialized in json
+     * @return the Response body that is going to be serialized in json, or null when not modified
      */
     @Override
-    protected ContentsDocument processInput(Void input, RequestInfo requestInfo, Context context)
+    protected Object processInput(Void input, RequestInfo requestInfo, Context context)
             throws ApiGatewayException {
+        addAdditionalHeaders(Map::of);
         String isbn = requestInfo.getQueryParameter(ISBN);
-        System.out.println("ISBN from queryParam: " + isbn);
-        String contents = dynamoDBClient.getContents(isbn);
-        System.out.println("contents from DynamoDB: " + contents);
-        try {
-            ContentsDocument response = dtoObjectMapper.readValue(contents, ContentsDocument.class);
-            System.out.println("Laget en ResponseObject :" + response.toString());
-            return response;
-        } catch (JsonProcessingException e) {
-            System.out.println("final exception: " + e.getMessage());
-            throw new GatewayResponseSerializingException(e);
+        Set<String> fields = fields(requestInfo);
+        ContentsDocument contents = fields.isEmpty()
+                ? dynamoDBClient.getContents(isbn)
+                : dynamoDBClient.getContents(isbn, fields);
+        Map<String, String> headers = responseHeaders(contents);
+        addAdditionalHeaders(() -> headers);
+        if (isNotModified(contents, requestInfo)) {
+            return null;
         }
+        return fields.isEmpty() ? contents : withoutEmptyFields(contents);
     }
 
     @Override
-    protected Integer getSuccessStatusCode(Void input, ContentsDocument output) {
-        return HttpURLConnection.HTTP_OK;
+    protected Integer getSuccessStatusCode(Void input, Object output) {
+        return Objects.isNull(output) ? HttpURLConnection.HTTP_NOT_MODIFIED : HttpURLConnection.HTTP_OK;
+    }
+
+    protected static Map<String, String> responseHeaders(ContentsDocument contents) {
+        Map<String, String> headers = new HashMap<>();
+        if (contents.getEtag() != null) {
+            headers.put(ETAG, QUOTE + contents.getEtag() + QUOTE);
+        }
+        lastModified(contents).ifPresent(lastModified -> headers.put(LAST_MODIFIED, HTTP_DATE.format(lastModified)));
+        return headers;
+    }
+
+    protected static boolean isNotModified(ContentsDocument contents, RequestInfo requestInfo) {
+        Optional<String> ifNoneMatch = header(requestInfo, IF_NONE_MATCH);
+        if (ifNoneMatch.isPresent()) {
+            return matchesEtag(ifNoneMatch.get(), contents.getEtag());
+        }
+        Optional<String> ifModifiedSince = header(requestInfo, IF_MODIFIED_SINCE);
+        Optional<Instant> lastModified = lastModified(contents);
+        if (ifModifiedSince.isEmpty() || lastModified.isEmpty()) {
+            return false;
+        }
+        try {
+            Instant since = DateTimeFormatter.RFC_1123_DATE_TIME.parse(ifModifiedSince.get(), Instant::from);
+            return !lastModified.get().truncatedTo(ChronoUnit.SECONDS).isAfter(since);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The fields asked for, all of them known attributes of ContentsDocument.
+     *
+     * @param requestInfo Request headers and path.
+     * @return fields, or empty when all fields are asked for
+     * @throws BadRequestException when a field is not an attribute of ContentsDocument
+     */
+    protected static Set<String> fields(RequestInfo requestInfo) throws BadRequestException {
+        Map<String, String> queryParameters = requestInfo.getQueryParameters();
+        String fields = queryParameters == null ? null : queryParameters.get(FIELDS);
+        if (fields == null) {
+            return Set.of();
+        }
+        Set<String> requested = Arrays.stream(fields.split(FIELD_SEPARATOR))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(TreeSet::new));
+        Set<String> unknown = new TreeSet<>(requested);
+        unknown.removeAll(ContentsDocument.ATTRIBUTES);
+        if (!unknown.isEmpty()) {
+            throw new BadRequestException(UNKNOWN_FIELDS + String.join(FIELD_SEPARATOR, unknown));
+        }
+        return requested;
+    }
+
+    /**
+     * A projection is serialized as a map without the fields that have no value, so that the fields not asked for
+     * are left out, while full documents keep every field.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> withoutEmptyFields(ContentsDocument contents) {
+        Map<String, Object> fields = dtoObjectMapper.convertValue(contents, LinkedHashMap.class);
+        fields.values().removeIf(Objects::isNull);
+        return fields;
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ANY_ETAG.equals(ifNoneMatch.trim())) {
+            return true;
+        }
+        if (etag == null) {
+            return false;
+        }
+        String quotedEtag = QUOTE + etag + QUOTE;
+        for (String candidate : ifNoneMatch.split(ETAG_SEPARATOR)) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith(WEAK_ETAG_PREFIX)) {
+                trimmed = trimmed.substring(WEAK_ETAG_PREFIX.length());
+            }
+            if (quotedEtag.equals(trimmed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Optional<Instant> lastModified(ContentsDocument contents) {
+        return Optional.ofNullable(contents.getLastModified());
+    }
+
+    /**
+     * Header names are case insensitive, and clients and proxies do not agree on the case.
+     */
+    private static Optional<String> header(RequestInfo requestInfo, String name) {
+        Map<String, String> headers = requestInfo.getHeaders();
+        if (headers == null) {
+            return Optional.empty();
+        }
+        return headers.entrySet().stream()
+                .filter(header -> name.equalsIgnoreCase(header.getKey()))
+                .map(Map.Entry::getValue)
+                .filter(Objects::nonNull)
+                .findFirst();
     }
 
 }
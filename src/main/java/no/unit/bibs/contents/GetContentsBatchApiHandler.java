@@ -0,0 +1,76 @@
+package no.unit.bibs.contents;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import nva.commons.apigateway.ApiGatewayHandler;
+import nva.commons.apigateway.RequestInfo;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import nva.commons.apigateway.exceptions.BadRequestException;
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+import nva.commons.core.StringUtils;
+
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class GetContentsBatchApiHandler extends ApiGatewayHandler<Void, ContentsBatchResponse> {
+
+    public static final String ISBNS = "isbns";
+    public static final String ISBN_SEPARATOR = ",";
+    public static final int MAX_ISBNS_PER_REQUEST = 500;
+    public static final String TOO_MANY_ISBNS = "At most " + MAX_ISBNS_PER_REQUEST + " isbns per request";
+    public static final String NO_ISBNS_GIVEN = "No isbns given in query parameter " + ISBNS;
+    private final DynamoDBClient dynamoDBClient;
+
+    @JacocoGenerated
+    public GetContentsBatchApiHandler() {
+        this(new Environment());
+    }
+
+    @JacocoGenerated
+    public GetContentsBatchApiHandler(Environment environment) {
+        this(environment, new DynamoDBClient(environment));
+    }
+
+    public GetContentsBatchApiHandler(Environment environment, DynamoDBClient dynamoDBClient) {
+        super(Void.class, environment);
+        this.dynamoDBClient = dynamoDBClient;
+    }
+
+    /**
+     * Looks up all isbns given as a comma separated list in one request.
+     *
+     * @param input       The input object to the method. Usually a deserialized json.
+     * @param requestInfo Request headers and path.
+     * @param context     the ApiGateway context.
+     * @return the contentsDocuments found by isbn, and the isbns that were not found
+     */
+    @Override
+    protected ContentsBatchResponse processInput(Void input, RequestInfo requestInfo, Context context)
+            throws ApiGatewayException {
+        List<String> isbns = Arrays.stream(requestInfo.getQueryParameter(ISBNS).split(ISBN_SEPARATOR))
+                .map(String::trim)
+                .filter(StringUtils::isNotEmpty)
+                .distinct()
+                .collect(Collectors.toList());
+        if (isbns.isEmpty()) {
+            throw new BadRequestException(NO_ISBNS_GIVEN);
+        }
+        if (isbns.size() > MAX_ISBNS_PER_REQUEST) {
+            throw new BadRequestException(TOO_MANY_ISBNS);
+        }
+        Map<String, ContentsDocument> contents = dynamoDBClient.getContentsBatch(isbns);
+        List<String> notFound = isbns.stream()
+                .filter(isbn -> !contents.containsKey(isbn))
+                .collect(Collectors.toList());
+        return new ContentsBatchResponse(contents, notFound);
+    }
+
+    @Override
+    protected Integer getSuccessStatusCode(Void input, ContentsBatchResponse output) {
+        return HttpURLConnection.HTTP_OK;
+    }
+
+}
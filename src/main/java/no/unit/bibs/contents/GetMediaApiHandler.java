@@ -0,0 +1,81 @@
+package no.unit.bibs.contents;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import nva.commons.apigateway.ApiGatewayHandler;
+import nva.commons.apigateway.RequestInfo;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import nva.commons.apigateway.exceptions.BadRequestException;
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+
+import java.net.HttpURLConnection;
+import java.util.Map;
+import java.util.Objects;
+
+public class GetMediaApiHandler extends ApiGatewayHandler<Void, MediaResponse> {
+
+    public static final String KEY = "key";
+    public static final String REDIRECT = "redirect";
+    public static final String LOCATION = "Location";
+    public static final String CACHE_CONTROL = "Cache-Control";
+    public static final String CACHE_CONTROL_TEMPLATE = "public, max-age=%d";
+    public static final String OBJECT_KEY_PREFIX = "files/";
+    public static final String PARENT_PATH = "..";
+    public static final String INVALID_KEY = "Not an object key of a stored file: ";
+
+    private final MediaUrls mediaUrls;
+
+    @JacocoGenerated
+    public GetMediaApiHandler() {
+        this(new Environment());
+    }
+
+    @JacocoGenerated
+    public GetMediaApiHandler(Environment environment) {
+        this(environment, MediaUrls.shared(environment));
+    }
+
+    public GetMediaApiHandler(Environment environment, MediaUrls mediaUrls) {
+        super(Void.class, environment);
+        this.mediaUrls = mediaUrls;
+    }
+
+    /**
+     * Finds the url of the file stored under the object key given in a contents document, such as image_small.
+     * Responds with a redirect to the url, so that browsers fetch the file straight from S3 or the CDN, or with
+     * the url in the body when redirect=false.
+     *
+     * @param input       The input object to the method. Usually a deserialized json.
+     * @param requestInfo Request headers and path.
+     * @param context     the ApiGateway context.
+     * @return the url of the file, or null when redirecting
+     */
+    @Override
+    protected MediaResponse processInput(Void input, RequestInfo requestInfo, Context context)
+            throws ApiGatewayException {
+        addAdditionalHeaders(Map::of);
+        String objectKey = requestInfo.getQueryParameter(KEY);
+        if (!objectKey.startsWith(OBJECT_KEY_PREFIX) || objectKey.contains(PARENT_PATH)) {
+            throw new BadRequestException(INVALID_KEY + objectKey);
+        }
+        MediaResponse media = mediaUrls.url(objectKey);
+        String cacheControl = String.format(CACHE_CONTROL_TEMPLATE, mediaUrls.maxAgeSeconds(media));
+        if (isRedirect(requestInfo)) {
+            addAdditionalHeaders(() -> Map.of(LOCATION, media.getUrl(), CACHE_CONTROL, cacheControl));
+            return null;
+        }
+        addAdditionalHeaders(() -> Map.of(CACHE_CONTROL, cacheControl));
+        return media;
+    }
+
+    @Override
+    protected Integer getSuccessStatusCode(Void input, MediaResponse output) {
+        return Objects.isNull(output) ? HttpURLConnection.HTTP_MOVED_TEMP : HttpURLConnection.HTTP_OK;
+    }
+
+    private static boolean isRedirect(RequestInfo requestInfo) {
+        Map<String, String> queryParameters = requestInfo.getQueryParameters();
+        return queryParameters == null || !Boolean.FALSE.toString().equalsIgnoreCase(queryParameters.get(REDIRECT));
+    }
+
+}
@@ -0,0 +1,104 @@
+package no.unit.bibs.contents;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Optional;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class ImageHelper {
+
+    public static final String JPEG = "jpeg";
+    public static final float JPEG_QUALITY = 0.85f;
+    public static final String IMAGE_NOT_DECODED = "Image could not be decoded: ";
+    private static final Logger logger = LoggerFactory.getLogger(ImageHelper.class);
+
+    private ImageHelper() {
+    }
+
+    /**
+     * Decodes an image at no more than twice the given width and height. Whole rows and columns are skipped by the
+     * reader while decoding, so the full resolution image is never held in memory, however narrow or tall it is.
+     *
+     * @param image     encoded image, typically a JPEG
+     * @param maxWidth  the largest width the image is going to be scaled to
+     * @param maxHeight the largest height the image is going to be scaled to
+     * @return the decoded image, or empty when the format is not supported or the image is broken
+     */
+    public static Optional<BufferedImage> decode(byte[] image, int maxWidth, int maxHeight) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return Optional.empty();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int subsampling = Math.max(1, Math.max(reader.getWidth(0) / (2 * maxWidth),
+                        reader.getHeight(0) / (2 * maxHeight)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return Optional.of(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn(IMAGE_NOT_DECODED + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Scales the image to fit the given width and height, keeping the aspect ratio, and encodes it as JPEG. Images
+     * that already fit are not enlarged.
+     *
+     * @param image     decoded image
+     * @param width     width of the variant
+     * @param maxHeight the largest height of the variant
+     * @return the encoded JPEG
+     * @throws IOException when the JPEG cannot be written
+     */
+    public static byte[] scaledJpeg(BufferedImage image, int width, int maxHeight) throws IOException {
+        float scale = Math.min(1f, Math.min((float) width / image.getWidth(), (float) maxHeight / image.getHeight()));
+        int targetWidth = Math.max(1, Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, Math.round(image.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return encodeJpeg(scaled);
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(JPEG).next();
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(encoded)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return encoded.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package no.unit.bibs.contents;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Size bounded ContentsCache evicting the least recently used entry, where entries also expire after a fixed time
+ * to live. Kept in a static field it survives between warm invocations of the same lambda container.
+ */
+public class LruContentsCache implements ContentsCache {
+
+    private final int maxEntries;
+    private final Duration timeToLive;
+    private final Clock clock;
+    private final Map<String, Entry> entries;
+
+    public LruContentsCache(int maxEntries, Duration timeToLive) {
+        this(maxEntries, timeToLive, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a new LruContentsCache.
+     *
+     * @param maxEntries number of entries kept before the least recently used is evicted
+     * @param timeToLive how long an entry is served after it was put
+     * @param clock      clock deciding expiry
+     */
+    public LruContentsCache(int maxEntries, Duration timeToLive, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > LruContentsCache.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public Optional<ContentsDocument> get(String isbn) {
+        synchronized (entries) {
+            Entry entry = entries.get(isbn);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (entry.expires.isBefore(clock.instant())) {
+                entries.remove(isbn);
+                return Optional.empty();
+            }
+            return Optional.of(entry.contents);
+        }
+    }
+
+    @Override
+    public void put(String isbn, ContentsDocument contents) {
+        Entry entry = new Entry(contents, clock.instant().plus(timeToLive));
+        synchronized (entries) {
+            entries.put(isbn, entry);
+        }
+    }
+
+    @Override
+    public void invalidate(String isbn) {
+        synchronized (entries) {
+            entries.remove(isbn);
+        }
+    }
+
+    /**
+     * Number of entries held, including expired entries not yet looked up.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static class Entry {
+
+        private final ContentsDocument contents;
+        private final Instant expires;
+
+        protected Entry(ContentsDocument contents, Instant expires) {
+            this.contents = contents;
+            this.expires = expires;
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package no.unit.bibs.contents;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import nva.commons.core.JacocoGenerated;
+
+import java.time.Instant;
+import java.util.Objects;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MediaResponse {
+
+    public static final String URL = "url";
+    public static final String EXPIRES = "expires";
+
+    private final String url;
+    private final Instant expires;
+
+    /**
+     * Creates a new MediaResponse.
+     *
+     * @param url     url the file is fetched from
+     * @param expires when a presigned url stops working, or null for urls that do not expire
+     */
+    @JsonCreator
+    public MediaResponse(@JsonProperty(URL) String url, @JsonProperty(EXPIRES) Instant expires) {
+        this.url = url;
+        this.expires = expires;
+    }
+
+    @JsonProperty(URL)
+    public String getUrl() {
+        return url;
+    }
+
+    @JsonProperty(EXPIRES)
+    public Instant getExpires() {
+        return expires;
+    }
+
+    @JacocoGenerated
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MediaResponse)) {
+            return false;
+        }
+        MediaResponse that = (MediaResponse) o;
+        return Objects.equals(url, that.url) && Objects.equals(expires, that.expires);
+    }
+
+    @JacocoGenerated
+    @Override
+    public int hashCode() {
+        return Objects.hash(url, expires);
+    }
+
+}
@@ -0,0 +1,113 @@
+package no.unit.bibs.contents;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+
+/**
+ * Turns stored object keys into urls clients fetch the files from. With MEDIA_BASE_URL set, the files are served by
+ * a CDN in front of the bucket, and the url is the object key resolved against the base url. Otherwise the url is a
+ * presigned GET, reused until {@link #RENEWAL_MARGIN} before it expires, so that repeated requests for a file get
+ * the same url and browsers can cache the file.
+ */
+public class MediaUrls {
+
+    public static final String MEDIA_BASE_URL = "MEDIA_BASE_URL";
+    public static final Duration PRESIGNED_URL_EXPIRY = Duration.ofHours(1);
+    public static final Duration RENEWAL_MARGIN = Duration.ofMinutes(5);
+    public static final Duration CDN_URL_MAX_AGE = Duration.ofDays(1);
+    public static final int MAX_CACHED_URLS = 10_000;
+    public static final String PATH_SEPARATOR = "/";
+
+    private static MediaUrls shared;
+    private final S3Connection s3Connection;
+    private final String baseUrl;
+    private final Clock clock;
+    private final Map<String, MediaResponse> presignedUrls;
+
+    /**
+     * Creates a new MediaUrls.
+     *
+     * @param s3Connection s3Connection presigning urls
+     * @param baseUrl      url of the CDN serving the bucket, or null to presign urls
+     * @param clock        clock deciding when a presigned url is renewed
+     */
+    public MediaUrls(S3Connection s3Connection, String baseUrl, Clock clock) {
+        this.s3Connection = s3Connection;
+        this.baseUrl = baseUrl == null || baseUrl.endsWith(PATH_SEPARATOR) ? baseUrl : baseUrl + PATH_SEPARATOR;
+        this.clock = clock;
+        this.presignedUrls = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MediaResponse> eldest) {
+                return size() > MAX_CACHED_URLS;
+            }
+        };
+    }
+
+    /**
+     * The MediaUrls shared by all handlers created from the environment, so that presigned urls are kept between
+     * warm invocations.
+     *
+     * @param environment environment
+     * @return shared MediaUrls
+     */
+    @JacocoGenerated
+    public static MediaUrls shared(Environment environment) {
+        synchronized (MediaUrls.class) {
+            if (shared == null) {
+                shared = new MediaUrls(new S3Connection(environment),
+                        environment.readEnvOpt(MEDIA_BASE_URL).filter(url -> !url.isBlank()).orElse(null),
+                        Clock.systemUTC());
+            }
+            return shared;
+        }
+    }
+
+    /**
+     * The url of a stored file.
+     *
+     * @param objectKey object key of the file
+     * @return url, with the time it expires when presigned
+     */
+    public MediaResponse url(String objectKey) {
+        if (baseUrl != null) {
+            return new MediaResponse(baseUrl + objectKey, null);
+        }
+        Instant now = clock.instant();
+        synchronized (presignedUrls) {
+            MediaResponse cached = presignedUrls.get(objectKey);
+            if (cached != null && renewalTime(cached).isAfter(now)) {
+                return cached;
+            }
+        }
+        MediaResponse presigned = new MediaResponse(
+                s3Connection.presignDownload(objectKey, PRESIGNED_URL_EXPIRY).toString(),
+                now.plus(PRESIGNED_URL_EXPIRY));
+        synchronized (presignedUrls) {
+            presignedUrls.put(objectKey, presigned);
+        }
+        return presigned;
+    }
+
+    /**
+     * How long a client may keep using the url, which is until it would be renewed here.
+     *
+     * @param media url returned by {@link #url}
+     * @return seconds
+     */
+    public long maxAgeSeconds(MediaResponse media) {
+        if (media.getExpires() == null) {
+            return CDN_URL_MAX_AGE.getSeconds();
+        }
+        return Math.max(0, Duration.between(clock.instant(), renewalTime(media)).getSeconds());
+    }
+
+    private static Instant renewalTime(MediaResponse media) {
+        return media.getExpires().minus(RENEWAL_MARGIN);
+    }
+
+}
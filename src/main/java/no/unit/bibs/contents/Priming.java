@@ -0,0 +1,319 @@
+package no.unit.bibs.contents;
+
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import nva.commons.core.Environment;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.HttpExecuteResponse;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.http.async.AsyncExecuteRequest;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpResponseHandler;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Pushes a synthetic document through the request path once during static initialization of a handler, so the
+ * first real request does not pay for Jackson introspection, SDK marshaller class loading and interpreted code.
+ *
+ * <p>Each handler primes the paths it serves: the read path for GET, and the blocking and the asynchronous write
+ * paths for the create and update handlers. Only the write paths build the asynchronous clients and the Netty
+ * transport, so a function serving reads never loads Netty. The SDK clients used for priming have their own HTTP
+ * client answering every call locally with a canned response, and are closed afterwards. The Netty transport is built
+ * and closed without a request. Nothing is written, no socket is opened, and no credentials or clients are left in
+ * the shared {@link AwsClientFactory}, so the primed state is safe to snapshot and restore.
+ */
+public final class Priming {
+
+    public static final String PRIME_ON_INIT = "PRIME_ON_INIT";
+    public static final String PRIMING_ISBN = "9788205377547";
+    public static final String PRIMING_TITLE = "Pelsjegerliv blandt Nord-Canadas indianere";
+    public static final String PRIMING_SOURCE = "BOKBASE";
+    public static final String PRIMING_IMAGE = "cHJpbWluZw==";
+    public static final String PRIMING_FAILED = "Priming failed, the first request will be slower: ";
+    public static final String PRIMED_IN = "Primed in %d ms";
+    private static final String PRIMING = "priming";
+    private static final String TARGET_HEADER = "X-Amz-Target";
+    private static final String GET_ITEM = ".GetItem";
+    private static final String UPDATE_ITEM = ".UpdateItem";
+    private static final String ITEM = "{\"isbn\":{\"S\":\"" + PRIMING_ISBN + "\"},"
+            + "\"title\":{\"S\":\"" + PRIMING_TITLE + "\"},"
+            + "\"source\":{\"S\":\"" + PRIMING_SOURCE + "\"},"
+            + "\"created\":{\"S\":\"2021-03-01T10:15:30Z\"},"
+            + "\"modified\":{\"S\":\"2022-03-01T10:15:30Z\"},"
+            + "\"etag\":{\"S\":\"0\"}}";
+    private static final int HTTP_OK = 200;
+    private static final Logger logger = LoggerFactory.getLogger(Priming.class);
+    private static final Object LOCK = new Object();
+    private static boolean primed;
+
+    /**
+     * The request paths a handler can have primed.
+     */
+    public enum RequestPath {
+        READ,
+        WRITE
+    }
+
+    private Priming() {
+    }
+
+    /**
+     * Primes when PRIME_ON_INIT is true, as it is in the deployed functions.
+     *
+     * @param environment environment
+     * @param paths       the request paths the handler serves
+     */
+    public static void primeOnInit(Environment environment, RequestPath... paths) {
+        if (environment.readEnvOpt(PRIME_ON_INIT).map(Boolean::parseBoolean).orElse(false)) {
+            prime(paths);
+        }
+    }
+
+    /**
+     * Runs the priming once per JVM. Failures are logged and otherwise ignored.
+     *
+     * @param paths the request paths the handler serves
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    public static void prime(RequestPath... paths) {
+        synchronized (LOCK) {
+            if (primed) {
+                return;
+            }
+            primed = true;
+        }
+        long start = System.nanoTime();
+        try {
+            primeRequestPath(Set.of(paths));
+            logger.info(String.format(PRIMED_IN, Duration.ofNanos(System.nanoTime() - start).toMillis()));
+        } catch (Exception e) {
+            logger.warn(PRIMING_FAILED + e.getMessage(), e);
+        }
+    }
+
+    public static boolean isPrimed() {
+        synchronized (LOCK) {
+            return primed;
+        }
+    }
+
+    /**
+     * Runs the given paths once against canned responses. For the write paths the asynchronous clients get a canned
+     * transport too, but a Netty transport is built and closed as well, so its classes are loaded before the first
+     * write.
+     */
+    static void primeRequestPath(Set<RequestPath> paths) throws IOException, ApiGatewayException {
+        StaticCredentialsProvider credentials =
+                StaticCredentialsProvider.create(AwsBasicCredentials.create(PRIMING, PRIMING));
+        try (DynamoDbClient dynamoDbClient = DynamoDbClient.builder()
+                .region(Region.EU_WEST_1)
+                .credentialsProvider(credentials)
+                .httpClient(new CannedResponseHttpClient())
+                .build()) {
+            if (paths.contains(RequestPath.WRITE)) {
+                primeWritePath(credentials, dynamoDbClient);
+            }
+            if (paths.contains(RequestPath.READ)) {
+                primeReadPath(new DynamoDBClient(dynamoDbClient, uncached()));
+            }
+        }
+    }
+
+    private static void primeWritePath(StaticCredentialsProvider credentials, DynamoDbClient dynamoDbClient)
+            throws IOException, ApiGatewayException {
+        NettyNioAsyncHttpClient.builder().build().close();
+        try (DynamoDbAsyncClient dynamoDbAsyncClient = DynamoDbAsyncClient.builder()
+                .region(Region.EU_WEST_1)
+                .credentialsProvider(credentials)
+                .httpClient(new CannedResponseAsyncHttpClient())
+                .build();
+             S3Client s3Client = S3Client.builder()
+                .region(Region.EU_WEST_1)
+                .credentialsProvider(credentials)
+                .httpClient(new CannedResponseHttpClient())
+                .build();
+             S3AsyncClient s3AsyncClient = S3AsyncClient.builder()
+                .region(Region.EU_WEST_1)
+                .credentialsProvider(credentials)
+                .httpClient(new CannedResponseAsyncHttpClient())
+                .build()) {
+            primeWritePath(new DynamoDBClient(dynamoDbClient, dynamoDbAsyncClient, uncached()),
+                    new S3Connection(s3Client, s3AsyncClient, null, PRIMING));
+        }
+    }
+
+    private static TieredContentsCache uncached() {
+        return new TieredContentsCache(new LruContentsCache(0, Duration.ZERO));
+    }
+
+    private static void primeWritePath(DynamoDBClient dynamoDBClient, S3Connection s3Connection)
+            throws IOException, ApiGatewayException {
+        ContentsDocument document = new ContentsDocument(PRIMING_TITLE,
+                "Helge Ingstad", "1931", PRIMING_ISBN, "Etter &aring; ha brutt opp fra sin sakf&oslash;rerpraksis",
+                null, null, null, null, null, PRIMING_IMAGE, null, null, null, PRIMING_SOURCE, Instant.now(),
+                Instant.now());
+
+        String requestBody = dtoObjectMapper.writeValueAsString(new ContentsRequest(document));
+        ContentsDocument parsed = dtoObjectMapper.readValue(requestBody, ContentsRequest.class).getContents();
+        parsed.isValid();
+        parsed.setAttributeDigests(DynamoDBClient.attributeDigests(parsed));
+        dynamoDBClient.getStoredContents(PRIMING_ISBN);
+        dynamoDBClient.createContents(parsed);
+        ContentsDocument written = dynamoDBClient.upsertContents(parsed);
+        dtoObjectMapper.writeValueAsString(written);
+
+        s3Connection.uploadFile(PRIMING.getBytes(StandardCharsets.UTF_8), PRIMING, PRIMING_ISBN + ".jpg",
+                StorageClient.MIME_TYPE_IMAGE_JPG);
+        StorageClient storageClient = new StorageClient(s3Connection);
+        FutureHelper.join(storageClient.handleFilesAsync(parsed).thenCompose(dynamoDBClient::createContentsAsync));
+        FutureHelper.join(storageClient.handleFilesAsync(parsed).thenCompose(dynamoDBClient::upsertContentsAsync));
+    }
+
+    private static void primeReadPath(DynamoDBClient dynamoDBClient) throws IOException, ApiGatewayException {
+        ContentsDocument read = dynamoDBClient.getContents(PRIMING_ISBN);
+        GetContentsApiHandler.responseHeaders(read);
+        dtoObjectMapper.writeValueAsString(read);
+    }
+
+    /**
+     * Answers DynamoDB and S3 calls with a stored item, an updated item or an empty object, without a network.
+     */
+    private static class CannedResponseHttpClient implements SdkHttpClient {
+
+        @Override
+        public ExecutableHttpRequest prepareRequest(HttpExecuteRequest request) {
+            return new ExecutableHttpRequest() {
+                @Override
+                public HttpExecuteResponse call() throws IOException {
+                    if (request.contentStreamProvider().isPresent()) {
+                        try (InputStream body = request.contentStreamProvider().get().newStream()) {
+                            body.transferTo(OutputStream.nullOutputStream());
+                        }
+                    }
+                    String target = request.httpRequest().firstMatchingHeader(TARGET_HEADER).orElse("");
+                    byte[] body = responseBody(target).getBytes(StandardCharsets.UTF_8);
+                    return HttpExecuteResponse.builder()
+                            .response(SdkHttpResponse.builder()
+                                    .statusCode(HTTP_OK)
+                                    .putHeader("Content-Length", String.valueOf(body.length))
+                                    .build())
+                            .responseBody(AbortableInputStream.create(new ByteArrayInputStream(body)))
+                            .build();
+                }
+
+                @Override
+                public void abort() {
+                    // answered synchronously, nothing to abort
+                }
+            };
+        }
+
+        private static String responseBody(String target) {
+            if (target.endsWith(GET_ITEM)) {
+                return "{\"Item\":" + ITEM + "}";
+            }
+            if (target.endsWith(UPDATE_ITEM)) {
+                return "{\"Attributes\":" + ITEM + "}";
+            }
+            return "{}";
+        }
+
+        @Override
+        public void close() {
+            // holds no connections
+        }
+    }
+
+    /**
+     * Answers the asynchronous clients like {@link CannedResponseHttpClient}, on the calling thread.
+     */
+    private static class CannedResponseAsyncHttpClient implements SdkAsyncHttpClient {
+
+        @Override
+        public CompletableFuture<Void> execute(AsyncExecuteRequest request) {
+            request.requestContentPublisher().subscribe(new DiscardingSubscriber());
+            String target = request.request().firstMatchingHeader(TARGET_HEADER).orElse("");
+            byte[] body = CannedResponseHttpClient.responseBody(target).getBytes(StandardCharsets.UTF_8);
+            SdkAsyncHttpResponseHandler responseHandler = request.responseHandler();
+            responseHandler.onHeaders(SdkHttpResponse.builder()
+                    .statusCode(HTTP_OK)
+                    .putHeader("Content-Length", String.valueOf(body.length))
+                    .build());
+            responseHandler.onStream(subscriber -> subscriber.onSubscribe(new Subscription() {
+                private boolean sent;
+
+                @Override
+                public void request(long n) {
+                    if (!sent) {
+                        sent = true;
+                        subscriber.onNext(ByteBuffer.wrap(body));
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    sent = true;
+                }
+            }));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void close() {
+            // holds no connections
+        }
+    }
+
+    /**
+     * Reads a request body to the end, so checksums computed while it is read are primed too.
+     */
+    private static class DiscardingSubscriber implements Subscriber<ByteBuffer> {
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ByteBuffer byteBuffer) {
+            // discarded
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // nothing was sent
+        }
+
+        @Override
+        public void onComplete() {
+            // nothing to answer
+        }
+    }
+
+}
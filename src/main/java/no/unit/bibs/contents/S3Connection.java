@@ -1,41 +1,117 @@
 package no.unit.bibs.contents;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.security.MessageDigest;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import javax.ws.rs.core.HttpHeaders;
 import nva.commons.core.Environment;
 import nva.commons.core.JacocoGenerated;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListMultipartUploadsRequest;
+import software.amazon.awssdk.services.s3.model.ListMultipartUploadsResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.MultipartUpload;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.AbortMultipartUploadPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.CompleteMultipartUploadPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
+import software.amazon.awssdk.utils.http.SdkHttpUtils;
 
+@SuppressWarnings("PMD.DoNotUseThreads")
 public class S3Connection {
 
     private static final Logger logger = LoggerFactory.getLogger(S3Connection.class);
 
     public static final String ERROR_UPLOADING_FILE = "Error uploading file";
     public static final String CONTENT_DISPOSITION_FILENAME_TEMPLATE = "filename=\"%s\"";
+    public static final String PART_UPLOAD_THREAD_NAME = "contents-part-upload";
+    public static final int PART_SIZE_BYTES = 8 * 1024 * 1024;
+    public static final int MAX_CONCURRENT_PART_UPLOADS = 4;
+    public static final int FIRST_BUFFER_BYTES = 64 * 1024;
+    public static final String CONTENT_SHA256 = "content-sha256";
+    public static final String UPLOAD_SKIPPED = "Skipped upload of %s, stored content has the same digest %s. "
+            + "Since start: %d uploads, %d skipped";
+    public static final String UPLOADED = "Uploaded %s, %s. Since start: %d uploads, %d skipped";
+    public static final String DIGEST_NOT_STORED = "Could not store digest of %s, it will be uploaded again: %s";
+    public static final long MAX_COPY_BYTES = 5L * 1024 * 1024 * 1024;
+    public static final String DIGEST_LOOKUP_FAILED = "Could not read digest of %s, uploading it: %s";
+    public static final String READ_FAILED = "Could not read %s: %s";
+    public static final String DELETE_FAILED = "Could not delete %s, it is left in the bucket: %s";
+    public static final Duration UPLOAD_URL_EXPIRY = Duration.ofHours(1);
+    public static final int MAX_PARTS = 10_000;
+    public static final String NOT_UPLOADED = "%s is not an uploaded file, size %d and content type %s";
+    public static final String UPLOAD_ABORTED = "Aborted multipart upload of %s started %s";
+    private static final ExecutorService PART_UPLOAD_EXECUTOR =
+            DaemonExecutors.newFixedThreadPool(PART_UPLOAD_THREAD_NAME, MAX_CONCURRENT_PART_UPLOADS);
     @SuppressWarnings("PMD.UseUnderscoresInNumericLiterals")
     private static final int PRESIGNED_URL_EXPIRY_MILLISECONDS = 10000;
-    private String bucketName;
-    private S3Presigner s3Presigner;
-    private S3Client s3Client;
-    private static final String AWS_REGION = "AWS_REGION";
+    private final String bucketName;
+    private final Supplier<S3Presigner> s3Presigner;
+    private final Supplier<S3Client> s3Client;
+    private final Supplier<S3AsyncClient> s3AsyncClient;
+    private final AtomicLong uploadCount = new AtomicLong();
+    private final AtomicLong skippedUploadCount = new AtomicLong();
     private static final String BUCKET_NAME = "BUCKET_NAME";
     public static final String CANNOT_CONNECT_TO_S3 = "Cannot connect to S3";
 
+    /**
+     * Creates a new S3Connection. The S3 clients are not built until a file is uploaded or a url presigned.
+     *
+     * @param environment environment
+     */
+    @JacocoGenerated
     public S3Connection(Environment environment) {
-        initS3Client(environment);
+        this.s3Client = () -> AwsClientFactory.s3Client(environment);
+        this.s3AsyncClient = () -> AwsClientFactory.s3AsyncClient(environment);
+        this.s3Presigner = () -> AwsClientFactory.s3Presigner(environment);
+        this.bucketName = readBucketName(environment);
     }
 
     /**
@@ -45,28 +121,37 @@ public class S3Connection {
      * @param bucketName name of s3 bucket
      */
     public S3Connection(S3Client s3Client, S3Presigner s3Presigner, String bucketName) {
-        this.s3Client = s3Client;
-        this.s3Presigner = s3Presigner;
+        this(s3Client, null, s3Presigner, bucketName);
+    }
+
+    /**
+     * Constructor for use in test to inject, with an asynchronous client for {@link #uploadFileAsync}.
+     * @param s3Client aws S3Client
+     * @param s3AsyncClient aws S3AsyncClient, or null to upload with s3Client on the part upload threads
+     * @param s3Presigner aws S3 presigner
+     * @param bucketName name of s3 bucket
+     */
+    public S3Connection(S3Client s3Client, S3AsyncClient s3AsyncClient, S3Presigner s3Presigner, String bucketName) {
+        this.s3Client = () -> s3Client;
+        this.s3AsyncClient = () -> s3AsyncClient;
+        this.s3Presigner = () -> s3Presigner;
         this.bucketName = bucketName;
     }
 
     @JacocoGenerated
-    private void initS3Client(Environment environment) {
+    private static String readBucketName(Environment environment) {
         try {
-            this.s3Client = S3Client.builder()
-                    .region(Region.of(environment.readEnv(AWS_REGION)))
-                    .build();
-            this.s3Presigner = S3Presigner.builder()
-                    .region(Region.of(environment.readEnv(AWS_REGION)))
-                    .build();
-            this.bucketName = environment.readEnv(BUCKET_NAME);
+            return environment.readEnv(BUCKET_NAME);
         } catch (Exception e) {
             logger.error(CANNOT_CONNECT_TO_S3, e);
+            return null;
         }
     }
 
     /**
-     * Uploads inputstream to S3 using a presigned upload write url.
+     * Uploads bytes to S3, unless the object already holds the same bytes. The SHA-256 digest of the content is
+     * stored as object metadata and compared with a HEAD request before uploading, as suppliers resend the same
+     * files with every update.
      *
      * @param bytesArray bytesArray
      * @param objectName  objectName
@@ -76,17 +161,219 @@ public class S3Connection {
     @JacocoGenerated
     @SuppressWarnings("PMD.AssignmentInOperand")
     protected void uploadFile(byte[] bytesArray, String objectName, String filename, String mimeType) {
+        putObject(bytesArray, bytesArray.length, objectName, filename, mimeType);
+    }
+
+    private void putObject(byte[] bytes, int length, String objectName, String filename, String mimeType) {
+        String digest = DigestHelper.sha256Hex(bytes, 0, length);
+        if (isStored(objectName, digest)) {
+            skippedUpload(objectName, digest);
+            return;
+        }
+        try {
+            PutObjectRequest putObjectRequest = createPutObjectRequest(objectName, filename, mimeType, digest);
+            PutObjectResponse putObjectResponse = s3Client.get().putObject(putObjectRequest,
+                    RequestBody.fromInputStream(new ByteArrayInputStream(bytes, 0, length), length));
+            uploaded(objectName, "etag " + putObjectResponse.eTag());
+        } catch (S3Exception e) {
+            logger.error(ERROR_UPLOADING_FILE, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Uploads bytesArray to S3 without blocking the calling thread, so that several files can be in flight at once
+     * without a thread each. Without an asynchronous client the upload runs with {@link #uploadFile} on the part
+     * upload threads.
+     *
+     * @param bytesArray bytesArray
+     * @param objectName  objectName
+     * @param filename    filename
+     * @param mimeType    mimeType
+     * @return completes when the object is stored, or exceptionally with the S3Exception
+     */
+    protected CompletableFuture<Void> uploadFileAsync(byte[] bytesArray, String objectName, String filename,
+                                                      String mimeType) {
+        S3AsyncClient client = s3AsyncClient.get();
+        if (client == null) {
+            return CompletableFuture.runAsync(() -> uploadFile(bytesArray, objectName, filename, mimeType),
+                    PART_UPLOAD_EXECUTOR);
+        }
         try {
-            PutObjectRequest putObjectRequest = createPutObjectRequest(objectName, filename, mimeType);
-            PutObjectResponse putObjectResponse =
-                    s3Client.putObject(putObjectRequest, RequestBody.fromBytes(bytesArray));
-            logger.info("Etag for uploaded file: " + putObjectResponse.eTag());
+            String digest = DigestHelper.sha256Hex(bytesArray, 0, bytesArray.length);
+            PutObjectRequest putObjectRequest = createPutObjectRequest(objectName, filename, mimeType, digest);
+            return client.headObject(createHeadObjectRequest(objectName))
+                    .handle((headObjectResponse, throwable) -> isStored(objectName, digest, headObjectResponse,
+                            throwable))
+                    .thenCompose(stored -> {
+                        if (stored) {
+                            skippedUpload(objectName, digest);
+                            return CompletableFuture.<Void>completedFuture(null);
+                        }
+                        return client.putObject(putObjectRequest, AsyncRequestBody.fromBytes(bytesArray))
+                                .whenComplete((putObjectResponse, throwable) -> {
+                                    if (throwable == null) {
+                                        uploaded(objectName, "etag " + putObjectResponse.eTag());
+                                    } else {
+                                        logger.error(ERROR_UPLOADING_FILE, throwable);
+                                    }
+                                })
+                                .thenAccept(putObjectResponse -> { });
+                    });
         } catch (S3Exception e) {
             logger.error(ERROR_UPLOADING_FILE, e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Streams inputstream to S3 without holding the whole file in memory. Files that fit in a single part are
+     * uploaded with one putObject, and skipped like in {@link #uploadFile} when S3 already holds the same bytes.
+     * Larger files are uploaded as a multipart upload with the parts sent in parallel, hashing the parts as they
+     * are read. The parts are sent before the whole file is read, so they are always transferred, but when S3
+     * already holds the same bytes the upload is aborted instead of completed, and the object is not rewritten.
+     * The first part is read into a buffer of {@link #FIRST_BUFFER_BYTES} that is doubled while it fills up, so a
+     * small file only takes about its own size. Further part buffers are allocated as parts are read, and at most
+     * {@link #MAX_CONCURRENT_PART_UPLOADS} are held per upload whatever the file size.
+     *
+     * @param inputStream inputStream, not closed by this method
+     * @param objectName  objectName
+     * @param filename    filename
+     * @param mimeType    mimeType
+     * @throws IOException when reading inputStream fails
+     */
+    protected void uploadStream(InputStream inputStream, String objectName, String filename, String mimeType)
+            throws IOException {
+        byte[] firstPart = new byte[FIRST_BUFFER_BYTES];
+        int firstPartLength = inputStream.readNBytes(firstPart, 0, firstPart.length);
+        while (firstPartLength == firstPart.length && firstPart.length < PART_SIZE_BYTES) {
+            firstPart = Arrays.copyOf(firstPart, Math.min(2 * firstPart.length, PART_SIZE_BYTES));
+            firstPartLength += inputStream.readNBytes(firstPart, firstPartLength, firstPart.length - firstPartLength);
+        }
+        if (firstPartLength < PART_SIZE_BYTES) {
+            putObject(firstPart, firstPartLength, objectName, filename, mimeType);
+        } else {
+            uploadMultipart(inputStream, firstPart, objectName, filename, mimeType);
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private void uploadMultipart(InputStream inputStream, byte[] firstPart, String objectName, String filename,
+                                 String mimeType) throws IOException {
+        String uploadId = s3Client.get()
+                .createMultipartUpload(createMultipartUploadRequest(objectName, filename, mimeType))
+                .uploadId();
+        BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(MAX_CONCURRENT_PART_UPLOADS);
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        MessageDigest digest = DigestHelper.sha256();
+        try {
+            byte[] buffer = firstPart;
+            int allocated = 1;
+            int length = PART_SIZE_BYTES;
+            long size = 0;
+            int partNumber = 1;
+            while (length > 0 && parts.stream().noneMatch(CompletableFuture::isCompletedExceptionally)) {
+                digest.update(buffer, 0, length);
+                size += length;
+                parts.add(uploadPart(objectName, uploadId, partNumber, buffer, length, buffers));
+                partNumber++;
+                buffer = buffers.poll();
+                if (buffer == null && allocated < MAX_CONCURRENT_PART_UPLOADS) {
+                    buffer = new byte[PART_SIZE_BYTES];
+                    allocated++;
+                } else if (buffer == null) {
+                    buffer = buffers.take();
+                }
+                length = inputStream.readNBytes(buffer, 0, PART_SIZE_BYTES);
+            }
+            CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).join();
+            String contentDigest = DigestHelper.toHex(digest.digest());
+            if (isStored(objectName, contentDigest)) {
+                abortMultipartUpload(objectName, uploadId, parts);
+                skippedUpload(objectName, contentDigest);
+                return;
+            }
+            completeMultipartUpload(objectName, uploadId, parts);
+            uploaded(objectName, parts.size() + " parts");
+            storeDigest(objectName, filename, mimeType, contentDigest, size);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortMultipartUpload(objectName, uploadId, parts);
+            throw new IOException(ERROR_UPLOADING_FILE, e);
+        } catch (IOException | RuntimeException e) {
+            logger.error(ERROR_UPLOADING_FILE, e);
+            abortMultipartUpload(objectName, uploadId, parts);
             throw e;
         }
     }
 
+    private void completeMultipartUpload(String objectName, String uploadId,
+                                         List<CompletableFuture<CompletedPart>> parts) {
+        List<CompletedPart> completedParts = parts.stream()
+                .map(CompletableFuture::join)
+                .sorted(Comparator.comparing(CompletedPart::partNumber))
+                .collect(Collectors.toList());
+        s3Client.get().completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectName)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                .build());
+    }
+
+    /**
+     * The digest of a multipart upload is only known once every part is read, after the upload was started with
+     * its metadata, so it is added by copying the object onto itself. S3 copies objects of up to
+     * {@link #MAX_COPY_BYTES} in one request; larger objects are left without a digest, and always uploaded.
+     */
+    private void storeDigest(String objectName, String filename, String mimeType, String digest, long size) {
+        if (size > MAX_COPY_BYTES) {
+            return;
+        }
+        Map<String, String> metadata = createMetadata(filename, mimeType);
+        metadata.put(CONTENT_SHA256, digest);
+        try {
+            s3Client.get().copyObject(CopyObjectRequest.builder()
+                    .copySource(bucketName + "/" + SdkHttpUtils.urlEncodeIgnoreSlashes(objectName))
+                    .destinationBucket(bucketName)
+                    .destinationKey(objectName)
+                    .metadata(metadata)
+                    .metadataDirective(MetadataDirective.REPLACE)
+                    .build());
+        } catch (SdkException e) {
+            logger.warn(String.format(DIGEST_NOT_STORED, objectName, e.getMessage()));
+        }
+    }
+
+    private CompletableFuture<CompletedPart> uploadPart(String objectName, String uploadId, int partNumber,
+                                                        byte[] buffer, int length, BlockingQueue<byte[]> buffers) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectName)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .build();
+                UploadPartResponse uploadPartResponse = s3Client.get().uploadPart(uploadPartRequest,
+                        RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, length), length));
+                return CompletedPart.builder().partNumber(partNumber).eTag(uploadPartResponse.eTag()).build();
+            } finally {
+                buffers.offer(buffer);
+            }
+        }, PART_UPLOAD_EXECUTOR);
+    }
+
+    private void abortMultipartUpload(String objectName, String uploadId,
+                                      List<CompletableFuture<CompletedPart>> parts) {
+        parts.forEach(part -> part.cancel(false));
+        s3Client.get().abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectName)
+                .uploadId(uploadId)
+                .build());
+    }
+
     /**
      * Generate a pre-signed WRITE URL for an object.
      *
@@ -104,13 +391,309 @@ public class S3Connection {
                 .putObjectRequest(putObjectRequest)
                 .build();
 
-        PresignedPutObjectRequest presignedRequest = s3Presigner.presignPutObject(presignedPutObjectRequest);
+        PresignedPutObjectRequest presignedRequest = s3Presigner.get().presignPutObject(presignedPutObjectRequest);
 
         return presignedRequest.url();
     }
 
+    /**
+     * Presigns a GET of a stored object, letting a client fetch it straight from S3.
+     *
+     * @param objectName String
+     * @param expiry     how long the url is valid
+     * @return URL
+     */
+    public URL presignDownload(String objectName, Duration expiry) {
+        return s3Presigner.get().presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(expiry)
+                .getObjectRequest(GetObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectName)
+                        .build())
+                .build()).url();
+    }
+
+    /**
+     * Presigns a single PUT of an object for a client uploading straight to S3. The signed headers carry the object
+     * metadata, and must be sent with the PUT as they are.
+     *
+     * @param objectName String
+     * @param filename   String
+     * @param mimeType   String
+     * @return the presigned request, valid for {@link #UPLOAD_URL_EXPIRY}
+     */
+    public PresignedPutObjectRequest presignUpload(String objectName, String filename, String mimeType) {
+        return s3Presigner.get().presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(UPLOAD_URL_EXPIRY)
+                .putObjectRequest(createPutObjectRequest(objectName, filename, mimeType))
+                .build());
+    }
+
+    /**
+     * Starts a multipart upload for a client uploading the parts straight to S3.
+     *
+     * @param objectName String
+     * @param filename   String
+     * @param mimeType   String
+     * @return the upload id
+     */
+    public String createMultipartUpload(String objectName, String filename, String mimeType) {
+        return s3Client.get()
+                .createMultipartUpload(createMultipartUploadRequest(objectName, filename, mimeType))
+                .uploadId();
+    }
+
+    /**
+     * Presigns the upload of one part of a multipart upload started with {@link #createMultipartUpload}.
+     *
+     * @param objectName String
+     * @param uploadId   String
+     * @param partNumber part number, starting at 1
+     * @return URL, valid for {@link #UPLOAD_URL_EXPIRY}
+     */
+    public URL presignUploadPart(String objectName, String uploadId, int partNumber) {
+        return s3Presigner.get().presignUploadPart(UploadPartPresignRequest.builder()
+                .signatureDuration(UPLOAD_URL_EXPIRY)
+                .uploadPartRequest(UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectName)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .build())
+                .build()).url();
+    }
+
+    /**
+     * Presigns the request completing a multipart upload, which the client sends with the part numbers and etags.
+     *
+     * @param objectName String
+     * @param uploadId   String
+     * @return URL, valid for {@link #UPLOAD_URL_EXPIRY}
+     */
+    public URL presignCompleteMultipartUpload(String objectName, String uploadId) {
+        return s3Presigner.get().presignCompleteMultipartUpload(CompleteMultipartUploadPresignRequest.builder()
+                .signatureDuration(UPLOAD_URL_EXPIRY)
+                .completeMultipartUploadRequest(CompleteMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectName)
+                        .uploadId(uploadId)
+                        .build())
+                .build()).url();
+    }
+
+    /**
+     * Presigns the request aborting a multipart upload, so that a client giving up does not leave parts behind.
+     *
+     * @param objectName String
+     * @param uploadId   String
+     * @return URL, valid for {@link #UPLOAD_URL_EXPIRY}
+     */
+    public URL presignAbortMultipartUpload(String objectName, String uploadId) {
+        return s3Presigner.get().presignAbortMultipartUpload(AbortMultipartUploadPresignRequest.builder()
+                .signatureDuration(UPLOAD_URL_EXPIRY)
+                .abortMultipartUploadRequest(AbortMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectName)
+                        .uploadId(uploadId)
+                        .build())
+                .build()).url();
+    }
+
+    /**
+     * Reads a stored object into memory, unless it is larger than maxBytes.
+     *
+     * @param objectName String
+     * @param maxBytes   largest object read
+     * @return the object, or empty when it is missing, cannot be read or is too large
+     * @throws IOException when reading the object fails
+     */
+    protected Optional<byte[]> readObject(String objectName, int maxBytes) throws IOException {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectName)
+                .build();
+        try (ResponseInputStream<GetObjectResponse> object = s3Client.get().getObject(getObjectRequest)) {
+            Long contentLength = object.response().contentLength();
+            if (contentLength != null && contentLength > maxBytes) {
+                object.abort();
+                return Optional.empty();
+            }
+            byte[] bytes = object.readNBytes(maxBytes + 1);
+            return bytes.length > maxBytes ? Optional.empty() : Optional.of(bytes);
+        } catch (SdkException e) {
+            logger.warn(String.format(READ_FAILED, objectName, e.getMessage()));
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Checks with a HEAD request that a client finished uploading an object through an upload session, before its
+     * key is stored in contents. The object must hold bytes, and carry the content type signed into the session.
+     *
+     * @param objectName String
+     * @param mimeType   the content type the object was uploaded with
+     * @return when the object was last uploaded, or empty when it is not stored with content and the given content
+     *         type
+     */
+    protected Optional<Instant> uploadedAt(String objectName, String mimeType) {
+        try {
+            HeadObjectResponse headObjectResponse = s3Client.get().headObject(createHeadObjectRequest(objectName));
+            Long contentLength = headObjectResponse.contentLength();
+            String contentType = headObjectResponse.metadata().entrySet().stream()
+                    .filter(metadata -> HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(metadata.getKey()))
+                    .map(Map.Entry::getValue)
+                    .findFirst()
+                    .orElse(headObjectResponse.contentType());
+            boolean uploaded = contentLength != null && contentLength > 0 && mimeType.equals(contentType);
+            if (!uploaded) {
+                logger.warn(String.format(NOT_UPLOADED, objectName, contentLength, contentType));
+                return Optional.empty();
+            }
+            return Optional.of(Objects.requireNonNullElse(headObjectResponse.lastModified(), Instant.now()));
+        } catch (SdkException e) {
+            logger.warn(String.format(READ_FAILED, objectName, e.getMessage()));
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Deletes a stored object. A failure is logged, and leaves the object in the bucket.
+     *
+     * @param objectName String
+     */
+    protected void deleteObject(String objectName) {
+        try {
+            s3Client.get().deleteObject(DeleteObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectName)
+                    .build());
+        } catch (SdkException e) {
+            logger.warn(String.format(DELETE_FAILED, objectName, e.getMessage()));
+        }
+    }
+
+    /**
+     * Aborts the multipart uploads started before the given time that were neither completed nor aborted, so that
+     * clients giving up on an upload session do not leave parts behind, stored and billed, in the bucket.
+     *
+     * @param initiatedBefore uploads started before this are aborted
+     * @return number of uploads aborted
+     */
+    public int abortMultipartUploadsInitiatedBefore(Instant initiatedBefore) {
+        int aborted = 0;
+        ListMultipartUploadsRequest request = ListMultipartUploadsRequest.builder().bucket(bucketName).build();
+        ListMultipartUploadsResponse response;
+        do {
+            response = s3Client.get().listMultipartUploads(request);
+            for (MultipartUpload upload : response.uploads()) {
+                if (upload.initiated().isBefore(initiatedBefore)) {
+                    s3Client.get().abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                            .bucket(bucketName)
+                            .key(upload.key())
+                            .uploadId(upload.uploadId())
+                            .build());
+                    logger.info(String.format(UPLOAD_ABORTED, upload.key(), upload.initiated()));
+                    aborted++;
+                }
+            }
+            request = request.toBuilder()
+                    .keyMarker(response.nextKeyMarker())
+                    .uploadIdMarker(response.nextUploadIdMarker())
+                    .build();
+        } while (Boolean.TRUE.equals(response.isTruncated()));
+        return aborted;
+    }
+
     private PutObjectRequest createPutObjectRequest(String objectName, String filename, String mimeType) {
+        return createPutObjectRequest(objectName, filename, mimeType, null);
+    }
+
+    private PutObjectRequest createPutObjectRequest(String objectName, String filename, String mimeType,
+                                                    String digest) {
+        Map<String, String> metadata = createMetadata(filename, mimeType);
+        if (digest != null) {
+            metadata.put(CONTENT_SHA256, digest);
+        }
+        return PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectName)
+                .metadata(metadata)
+                .build();
+    }
+
+    private HeadObjectRequest createHeadObjectRequest(String objectName) {
+        return HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectName)
+                .build();
+    }
+
+    private boolean isStored(String objectName, String digest) {
+        try {
+            return isStored(objectName, digest, s3Client.get().headObject(createHeadObjectRequest(objectName)), null);
+        } catch (SdkException e) {
+            return isStored(objectName, digest, null, e);
+        }
+    }
+
+    /**
+     * A missing object, or one that cannot be looked up, is uploaded. Only lookup failures other than not found
+     * are logged. S3 only answers not found for a missing key when the role may list the bucket; without
+     * s3:ListBucket it answers forbidden, and every first upload is logged.
+     */
+    private boolean isStored(String objectName, String digest, HeadObjectResponse headObjectResponse,
+                             Throwable throwable) {
+        if (throwable != null) {
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause()
+                    : throwable;
+            if (!(cause instanceof S3Exception)
+                    || ((S3Exception) cause).statusCode() != HttpURLConnection.HTTP_NOT_FOUND) {
+                logger.warn(String.format(DIGEST_LOOKUP_FAILED, objectName, cause.getMessage()));
+            }
+            return false;
+        }
+        return headObjectResponse != null && digest.equals(headObjectResponse.metadata().get(CONTENT_SHA256));
+    }
+
+    private void skippedUpload(String objectName, String digest) {
+        skippedUploadCount.incrementAndGet();
+        logger.info(String.format(UPLOAD_SKIPPED, objectName, digest, uploadCount.get(), skippedUploadCount.get()));
+    }
 
+    private void uploaded(String objectName, String detail) {
+        uploadCount.incrementAndGet();
+        logger.info(String.format(UPLOADED, objectName, detail, uploadCount.get(), skippedUploadCount.get()));
+    }
+
+    /**
+     * Number of objects uploaded by this connection.
+     *
+     * @return upload count
+     */
+    public long getUploadCount() {
+        return uploadCount.get();
+    }
+
+    /**
+     * Number of uploads skipped by this connection because S3 already held the same content.
+     *
+     * @return skipped upload count
+     */
+    public long getSkippedUploadCount() {
+        return skippedUploadCount.get();
+    }
+
+    private CreateMultipartUploadRequest createMultipartUploadRequest(String objectName, String filename,
+                                                                      String mimeType) {
+        return CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectName)
+                .metadata(createMetadata(filename, mimeType))
+                .build();
+    }
+
+    private Map<String, String> createMetadata(String filename, String mimeType) {
         Map<String, String> metadata = new HashMap<>();
         if (filename != null && !filename.isEmpty()) {
             metadata.put(HttpHeaders.CONTENT_DISPOSITION,
@@ -120,12 +703,7 @@ public class S3Connection {
         if (mimeType != null && !mimeType.isEmpty() && mimeType.contains("/")) {
             metadata.put(HttpHeaders.CONTENT_TYPE, mimeType);
         }
-
-        return PutObjectRequest.builder()
-                .bucket(bucketName)
-                .key(objectName)
-                .metadata(metadata)
-                .build();
+        return metadata;
     }
 
 }
@@ -1,19 +1,34 @@
 package no.unit.bibs.contents;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Base64;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import nva.commons.core.Environment;
 import nva.commons.core.JacocoGenerated;
 import nva.commons.core.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 
+@SuppressWarnings("PMD.DoNotUseThreads")
 public class StorageClient {
 
     private static final Logger logger = LoggerFactory.getLogger(StorageClient.class);
@@ -34,14 +49,35 @@ public class StorageClient {
     public static final String MIME_TYPE_IMAGE_JPG = "image/jpg";
     public static final String MIME_TYPE_AUDIO_MP3 = "audio/mpeg";
     public static final String HTTP_PREFIX = "http";
+    public static final String HTTP_STATUS = "HTTP status ";
+    public static final String TRANSFER_THREAD_NAME = "contents-transfer";
+    public static final int MAX_CONCURRENT_TRANSFERS = 4;
+    public static final String DERIVE_COVER_VARIANTS = "DERIVE_COVER_VARIANTS";
+    public static final int SMALL_IMAGE_WIDTH = 150;
+    public static final int SMALL_IMAGE_MAX_HEIGHT = 300;
+    public static final int LARGE_IMAGE_WIDTH = 600;
+    public static final int LARGE_IMAGE_MAX_HEIGHT = 1200;
+    public static final int MAX_ORIGINAL_BYTES = 25 * 1024 * 1024;
+    public static final String ERROR_DERIVING_IMAGE = "Could not derive %s image for ISBN '%s': %s";
+    public static final String HOST = "host";
+    public static final int DOWNLOAD_CONNECT_TIMEOUT_MILLIS = 5_000;
+    public static final int DOWNLOAD_READ_TIMEOUT_MILLIS = 30_000;
+    public static final String NOT_MODIFIED = "ISBN '%s' has the same file at '%s' as when written at %s";
+
+    private static final ExecutorService TRANSFER_EXECUTOR =
+            DaemonExecutors.newFixedThreadPool(TRANSFER_THREAD_NAME, MAX_CONCURRENT_TRANSFERS);
 
     private final S3Connection s3Connection;
+    private final ExecutorService executor;
+    private final boolean deriveCoverVariants;
 
     /**
-     * Creates a new StorageClient.
+     * Creates a new StorageClient. Cover variants are derived from the original unless DERIVE_COVER_VARIANTS is
+     * false.
      */
     public StorageClient(Environment environment) {
-        s3Connection = new S3Connection(environment);
+        this(new S3Connection(environment), TRANSFER_EXECUTOR,
+                environment.readEnvOpt(DERIVE_COVER_VARIANTS).map(Boolean::parseBoolean).orElse(true));
     }
 
     /**
@@ -50,41 +86,31 @@ public class StorageClient {
      * @param s3Connection s3Connection
      */
     public StorageClient(S3Connection s3Connection) {
-        this.s3Connection = s3Connection;
+        this(s3Connection, TRANSFER_EXECUTOR);
     }
 
-    private boolean isStringBase64Encoded(String input) {
-        if (StringUtils.isNotEmpty(input)) {
-            Pattern base64Pattern = Pattern.compile(
-                "^(?:[A-Za-z0-9+\\/]{4})*(?:[A-Za-z0-9+\\/]{2}==|[A-Za-z0-9+\\/]{3}=|[A-Za-z0-9+\\/]{4})$");
-            Matcher matcher = base64Pattern.matcher(input);
-            return matcher.matches();
-        } else {
-            return false;
-        }
+    /**
+     * Creates a new StorageClient running file transfers on the given executor.
+     *
+     * @param s3Connection s3Connection
+     * @param executor     executor running the download and upload of each file
+     */
+    public StorageClient(S3Connection s3Connection, ExecutorService executor) {
+        this(s3Connection, executor, true);
     }
 
     /**
-     * Decode Base64 encoded image file.
+     * Creates a new StorageClient running file transfers on the given executor.
      *
-     * @param isbn          isbn
-     * @param input         contentsDocument imageSmall, imageNormal, imageLarge, audioFile
-     * @param type          IMAGE or AUDIO
-     * @param subtype       SMALL, LARGE, ORIGINAL, MP3
-     * @param fileExtension jpg, mp3
-     * @param mimeType      "image/jpg", "audio/mpeg
-     * @return String objectKey
+     * @param s3Connection        s3Connection
+     * @param executor            executor running the download and upload of each file
+     * @param deriveCoverVariants whether the small and large images the supplier did not give are derived from
+     *                            the original when one is given
      */
-    @JacocoGenerated
-    private String decodeBase64Attributes(String isbn, String input, String type, String subtype,
-                                                   String fileExtension, String mimeType) {
-        return putFileS3(
-                isbn,
-                Base64.getDecoder().decode(input),
-                type,
-                subtype,
-                fileExtension,
-                mimeType);
+    public StorageClient(S3Connection s3Connection, ExecutorService executor, boolean deriveCoverVariants) {
+        this.s3Connection = s3Connection;
+        this.executor = executor;
+        this.deriveCoverVariants = deriveCoverVariants;
     }
 
     /**
@@ -96,32 +122,32 @@ public class StorageClient {
      * @param subtype       SMALL, LARGE, ORIGINAL, MP3
      * @param fileExtension jpg, mp3
      * @param mimeType      "image/jpg", "audio/mpeg
+     * @param since         when a file given by url is only to be downloaded if modified after this, or null
      * @return String s3 objectKey
      */
-    @JacocoGenerated
     private String sendToS3Bucket(String isbn, String input, String type, String subtype, String fileExtension,
-                                  String mimeType) {
+                                  String mimeType, Instant since) {
         if (StringUtils.isNotEmpty(input)) {
-            if (isStringBase64Encoded(input)) {
-                return decodeBase64Attributes(
+            Optional<byte[]> decoded = Base64Helper.decode(input);
+            if (decoded.isPresent()) {
+                return putFileS3(
                     isbn,
-                    input,
+                    decoded.get(),
                     type,
                     subtype,
                     fileExtension,
                     mimeType);
-            } else {
+            } else if (input.startsWith(HTTP_PREFIX)) {
                 try {
-                    if (isDownloadableFile(input)) {
-                        return putFileS3(
-                            isbn,
-                            input,
-                            type,
-                            subtype,
-                            fileExtension,
-                            mimeType
-                        );
-                    }
+                    return putFileS3(
+                        isbn,
+                        input,
+                        type,
+                        subtype,
+                        fileExtension,
+                        mimeType,
+                        since
+                    );
                 } catch (IOException e) {
                     logger.error(ERROR_STORING_FILE + e.getMessage(), e);
                 }
@@ -151,87 +177,245 @@ public class StorageClient {
     }
 
     /**
-     * Uploads files found in ContentsDocument to S3 replacing url with s3 object key.
+     * Uploads files found in ContentsDocument to S3 replacing url with s3 object key. The files are transferred
+     * concurrently, and the document is updated once all transfers are done. When an original image is given, the
+     * small and large images the supplier left out are derived from it, fetching the original once.
      *
      * @param contentsDocument contentsDocument
      */
-    @JacocoGenerated
     public void handleFiles(ContentsDocument contentsDocument) {
+        Map<String, CompletableFuture<String>> transfers = startTransfers(contentsDocument, false, Set.of(), null);
+        CompletableFuture.allOf(transfers.values().toArray(new CompletableFuture[0]))
+                .exceptionally(throwable -> null)
+                .join();
+        transfers.forEach((subtype, transfer) ->
+                updateContentDocumentWithObjectKey(contentsDocument, awaitObjectKey(transfer), subtype));
+    }
+
+    /**
+     * Uploads files found in ContentsDocument to S3 like {@link #handleFiles}, without blocking the calling thread.
+     * Inline files are sent with the asynchronous S3 client and need no thread while in flight. Files given by url
+     * are downloaded with a blocking connection, and are still transferred on the transfer threads.
+     *
+     * @param contentsDocument contentsDocument
+     * @return the document with object keys, completing when the last transfer is done
+     */
+    public CompletableFuture<ContentsDocument> handleFilesAsync(ContentsDocument contentsDocument) {
+        return handleFilesAsync(contentsDocument, Set.of(), null);
+    }
+
+    /**
+     * Uploads files like {@link #handleFilesAsync(ContentsDocument)}, for an update of a stored item. The resent
+     * files are the ones given as they were when the item was last written, and they are only transferred when their
+     * content may have changed since: an inline file never has, a file given by url is downloaded with
+     * If-Modified-Since and left alone when the supplier answers 304, and an object key counts as changed when the
+     * client uploaded the object after the item was written. Files that have not changed are left empty, as files
+     * that could not be transferred are, so that neither is written.
+     *
+     * @param contentsDocument contentsDocument
+     * @param resent           names of the file attributes holding the same value as the stored item
+     * @param storedSince      when the stored item was last written, or null when there is none
+     * @return the document with object keys, completing when the last transfer is done
+     */
+    public CompletableFuture<ContentsDocument> handleFilesAsync(ContentsDocument contentsDocument, Set<String> resent,
+                                                                Instant storedSince) {
+        Map<String, CompletableFuture<String>> transfers =
+                startTransfers(contentsDocument, true, resent, storedSince);
+        return CompletableFuture.allOf(transfers.values().toArray(new CompletableFuture[0]))
+                .exceptionally(throwable -> null)
+                .thenApply(done -> {
+                    transfers.forEach((subtype, transfer) ->
+                            updateContentDocumentWithObjectKey(contentsDocument, awaitObjectKey(transfer), subtype));
+                    return contentsDocument;
+                });
+    }
 
+    private Map<String, CompletableFuture<String>> startTransfers(ContentsDocument contentsDocument, boolean async,
+                                                                  Set<String> resent, Instant storedSince) {
+        String isbn = contentsDocument.getIsbn();
+        Map<String, CompletableFuture<String>> transfers = new LinkedHashMap<>();
         String imageSmall = contentsDocument.getImageSmall();
         String imageOriginal = contentsDocument.getImageOriginal();
         String imageLarge = contentsDocument.getImageLarge();
+        boolean variantMissing = StringUtils.isEmpty(imageSmall) || StringUtils.isEmpty(imageLarge);
+        if (deriveCoverVariants && StringUtils.isNotEmpty(imageOriginal) && variantMissing) {
+            startCoverTransfers(transfers, isbn, imageOriginal, imageSmall, imageLarge, async,
+                    attribute -> since(resent, attribute, storedSince));
+        } else {
+            if (StringUtils.isNotEmpty(imageSmall)) {
+                transfers.put(SMALL, startTransfer(async, isbn, imageSmall, IMAGES, SMALL, FILE_EXTENSION_JPG,
+                        MIME_TYPE_IMAGE_JPG, since(resent, ContentsDocument.IMAGE_SMALL, storedSince)));
+            }
+            if (StringUtils.isNotEmpty(imageOriginal)) {
+                transfers.put(ORIGINAL, startTransfer(async, isbn, imageOriginal, IMAGES, ORIGINAL,
+                        FILE_EXTENSION_JPG, MIME_TYPE_IMAGE_JPG,
+                        since(resent, ContentsDocument.IMAGE_ORIGINAL, storedSince)));
+            }
+            if (StringUtils.isNotEmpty(imageLarge)) {
+                transfers.put(LARGE, startTransfer(async, isbn, imageLarge, IMAGES, LARGE, FILE_EXTENSION_JPG,
+                        MIME_TYPE_IMAGE_JPG, since(resent, ContentsDocument.IMAGE_LARGE, storedSince)));
+            }
+        }
 
-        if (StringUtils.isNotEmpty(imageSmall)) {
-            String objectKey = sendToS3Bucket(
-                contentsDocument.getIsbn(),
-                imageSmall,
-                IMAGES,
-                SMALL,
-                FILE_EXTENSION_JPG,
-                MIME_TYPE_IMAGE_JPG
-            );
-            updateContentDocumentWithObjectKey(contentsDocument, objectKey, SMALL);
+        String audioFile = contentsDocument.getAudioFile();
+        if (StringUtils.isNotEmpty(audioFile)) {
+            transfers.put(MP3, startTransfer(async, isbn, audioFile, AUDIO, MP3, FILE_EXTENSION_MP3,
+                    MIME_TYPE_AUDIO_MP3, since(resent, ContentsDocument.AUDIO_FILE, storedSince)));
         }
+        return transfers;
+    }
 
-        if (StringUtils.isNotEmpty(imageOriginal)) {
-            String objectKey = sendToS3Bucket(
-                contentsDocument.getIsbn(),
-                imageOriginal,
-                IMAGES,
-                ORIGINAL,
-                FILE_EXTENSION_JPG,
-                MIME_TYPE_IMAGE_JPG
-            );
-            updateContentDocumentWithObjectKey(contentsDocument, objectKey, ORIGINAL);
+    private static Instant since(Set<String> resent, String attribute, Instant storedSince) {
+        return resent.contains(attribute) ? storedSince : null;
+    }
+
+    /**
+     * Fetches the original once, stores it, and derives the small and large images the supplier did not give from
+     * it. Images given by the supplier are transferred as they are.
+     */
+    private void startCoverTransfers(Map<String, CompletableFuture<String>> transfers, String isbn,
+                                     String imageOriginal, String imageSmall, String imageLarge, boolean async,
+                                     Function<String, Instant> since) {
+        Instant originalSince = since.apply(ContentsDocument.IMAGE_ORIGINAL);
+        CompletableFuture<Original> original =
+                CompletableFuture.supplyAsync(() -> fetchOriginal(isbn, imageOriginal, originalSince), executor);
+        transfers.put(ORIGINAL, original.thenCompose(fetched -> fetched.objectKey == null && fetched.bytes != null
+                ? uploadBytes(async, isbn, fetched.bytes, IMAGES, ORIGINAL, FILE_EXTENSION_JPG, MIME_TYPE_IMAGE_JPG)
+                : CompletableFuture.completedFuture(fetched.objectKey)));
+        CompletableFuture<Optional<BufferedImage>> decoded = original.thenApplyAsync(fetched -> fetched.bytes == null
+                ? Optional.empty()
+                : ImageHelper.decode(fetched.bytes, LARGE_IMAGE_WIDTH, LARGE_IMAGE_MAX_HEIGHT), executor);
+        transfers.put(SMALL, coverVariant(decoded, async, isbn, imageSmall, SMALL, SMALL_IMAGE_WIDTH,
+                SMALL_IMAGE_MAX_HEIGHT, since.apply(ContentsDocument.IMAGE_SMALL)));
+        transfers.put(LARGE, coverVariant(decoded, async, isbn, imageLarge, LARGE, LARGE_IMAGE_WIDTH,
+                LARGE_IMAGE_MAX_HEIGHT, since.apply(ContentsDocument.IMAGE_LARGE)));
+    }
+
+    private CompletableFuture<String> coverVariant(CompletableFuture<Optional<BufferedImage>> decoded, boolean async,
+                                                   String isbn, String supplied, String subtype, int width,
+                                                   int maxHeight, Instant since) {
+        if (StringUtils.isNotEmpty(supplied)) {
+            return startTransfer(async, isbn, supplied, IMAGES, subtype, FILE_EXTENSION_JPG, MIME_TYPE_IMAGE_JPG,
+                    since);
         }
+        return decoded.thenCompose(image -> image
+                .flatMap(value -> scaledJpeg(isbn, value, subtype, width, maxHeight))
+                .map(derived -> uploadBytes(async, isbn, derived, IMAGES, subtype, FILE_EXTENSION_JPG,
+                        MIME_TYPE_IMAGE_JPG))
+                .orElseGet(() -> CompletableFuture.completedFuture(null)));
+    }
 
-        if (StringUtils.isNotEmpty(imageLarge)) {
-            String objectKey = sendToS3Bucket(contentsDocument.getIsbn(),
-                imageLarge,
-                IMAGES,
-                LARGE,
-                FILE_EXTENSION_JPG,
-                MIME_TYPE_IMAGE_JPG
-            );
-            updateContentDocumentWithObjectKey(contentsDocument, objectKey, LARGE);
+    private static Optional<byte[]> scaledJpeg(String isbn, BufferedImage image, String subtype, int width,
+                                               int maxHeight) {
+        try {
+            return Optional.of(ImageHelper.scaledJpeg(image, width, maxHeight));
+        } catch (IOException e) {
+            logger.warn(String.format(ERROR_DERIVING_IMAGE, subtype, isbn, e.getMessage()));
+            return Optional.empty();
         }
+    }
 
-        String audioFile = contentsDocument.getAudioFile();
-        if (StringUtils.isNotEmpty(audioFile)) {
-            String objectKey = sendToS3Bucket(contentsDocument.getIsbn(),
-                audioFile,
-                AUDIO,
-                MP3,
-                FILE_EXTENSION_MP3,
-                MIME_TYPE_AUDIO_MP3
-            );
-            updateContentDocumentWithObjectKey(contentsDocument, objectKey, MP3);
+    /**
+     * Inline files are uploaded with the asynchronous S3 client when async is set, everything else is
+     * transferred on the transfer threads. Files uploaded by the client through an upload session are given by
+     * their object key, and kept as they are once a HEAD request shows the upload is there, with content and the
+     * content type of the session. Otherwise the field is left empty, as for a file that could not be downloaded.
+     * With since, the file is resent, and left empty unless it may have changed after since.
+     */
+    private CompletableFuture<String> startTransfer(boolean async, String isbn, String input, String type,
+                                                    String subtype, String fileExtension, String mimeType,
+                                                    Instant since) {
+        if (isObjectKey(isbn, input, type, subtype, fileExtension)) {
+            return transfer(() -> isUploadedAfter(input, mimeType, since) ? input : null);
+        }
+        if (since != null && !input.startsWith(HTTP_PREFIX)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (async) {
+            Optional<byte[]> decoded = Base64Helper.decode(input);
+            if (decoded.isPresent()) {
+                return uploadBytes(true, isbn, decoded.get(), type, subtype, fileExtension, mimeType);
+            }
         }
+        return transfer(() -> sendToS3Bucket(isbn, input, type, subtype, fileExtension, mimeType, since));
     }
 
-    @JacocoGenerated
-    private boolean isDownloadableFile(String fileUrl) throws IOException {
-        if (StringUtils.isNotEmpty(fileUrl) && fileUrl.startsWith(HTTP_PREFIX)) {
-            URL url = new URL(fileUrl);
-            HttpURLConnection.setFollowRedirects(true);
-            HttpURLConnection huc = (HttpURLConnection) url.openConnection();
-            huc.setRequestMethod("HEAD");
-            int responseCode = huc.getResponseCode();
-            return responseCode < 300;
+    /**
+     * An object the client uploaded counts as changed when it was uploaded after since, when the item holding its
+     * key was last written.
+     */
+    private boolean isUploadedAfter(String objectKey, String mimeType, Instant since) {
+        return s3Connection.uploadedAt(objectKey, mimeType)
+                .filter(uploaded -> since == null || uploaded.isAfter(since))
+                .isPresent();
+    }
+
+    private CompletableFuture<String> uploadBytes(boolean async, String isbn, byte[] bytes, String type,
+                                                  String subtype, String fileExtension, String mimeType) {
+        if (!async) {
+            return transfer(() -> putFileS3(isbn, bytes, type, subtype, fileExtension, mimeType));
+        }
+        String fileName = String.format(FILE_NAME_TEMPLATE, isbn, fileExtension);
+        String objectKey = objectKey(isbn, type, subtype, fileName);
+        return s3Connection.uploadFileAsync(bytes, objectKey, fileName, mimeType)
+                .thenApply(uploaded -> objectKey);
+    }
+
+    /**
+     * The original is held in memory to derive the other images from. An original already uploaded by the client is
+     * checked like other uploaded files, and read back from S3. A downloaded original larger than
+     * {@link #MAX_ORIGINAL_BYTES} is streamed to S3 from the same response, and nothing is derived from it. A resent
+     * original that has not changed after since is not fetched, so neither it nor the images derived from it are
+     * written again.
+     */
+    private Original fetchOriginal(String isbn, String input, Instant since) {
+        boolean objectKey = isObjectKey(isbn, input, IMAGES, ORIGINAL, FILE_EXTENSION_JPG);
+        if (since != null && !objectKey && !input.startsWith(HTTP_PREFIX)) {
+            return new Original(null, null);
+        }
+        Optional<byte[]> decoded = Base64Helper.decode(input);
+        if (decoded.isPresent()) {
+            return new Original(decoded.get(), null);
+        }
+        try {
+            if (objectKey) {
+                return isUploadedAfter(input, MIME_TYPE_IMAGE_JPG, since)
+                        ? new Original(s3Connection.readObject(input, MAX_ORIGINAL_BYTES).orElse(null), input)
+                        : new Original(null, null);
+            }
+            if (input.startsWith(HTTP_PREFIX)) {
+                return download(isbn, input, since);
+            }
+        } catch (IOException e) {
+            logger.warn(String.format(ERROR_DOWNLOADING_FILE, isbn, input, ORIGINAL, IMAGES, e.getMessage()));
+        }
+        return new Original(null, null);
+    }
+
+    private CompletableFuture<String> transfer(Supplier<String> upload) {
+        return CompletableFuture.supplyAsync(upload, executor);
+    }
+
+    /**
+     * Waits for a single transfer. Failures that are not isolated by sendToS3Bucket are rethrown as they were
+     * before the transfers ran concurrently, but only after every other transfer has finished.
+     */
+    private String awaitObjectKey(CompletableFuture<String> transfer) {
+        try {
+            return transfer.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
-        return false;
     }
 
     @JacocoGenerated
     protected String putFileS3(String isbn, byte[] bytesArray, String type, String subtype, String fileExtension,
                                String mimeType) {
         String fileName = String.format(FILE_NAME_TEMPLATE, isbn, fileExtension);
-
-        String secondLinkPart = isbn.substring(isbn.length() - 2, isbn.length() - 1);
-        String firstLinkPart = isbn.substring(isbn.length() - 1);
-
-        String objectKey = String.format(OBJECT_KEY_TEMPLATE, type, subtype, firstLinkPart, secondLinkPart, fileName);
+        String objectKey = objectKey(isbn, type, subtype, fileName);
         s3Connection.uploadFile(
                 bytesArray,
                 objectKey,
@@ -241,9 +425,75 @@ public class StorageClient {
         return objectKey;
     }
 
-    @JacocoGenerated
+    /**
+     * Starts an upload session letting a client upload a file straight to S3, under the object key the file would
+     * get if it was sent in the contents document. Files larger than {@link S3Connection#PART_SIZE_BYTES} are
+     * uploaded in parts, so that each part can be sent, and retried, on its own.
+     *
+     * @param isbn    isbn
+     * @param subtype SMALL, LARGE, ORIGINAL, MP3
+     * @param size    size of the file in bytes, or null when not known
+     * @return the urls to upload the file with
+     */
+    public UploadSessionResponse startUploadSession(String isbn, String subtype, Long size) {
+        boolean audio = MP3.equals(subtype);
+        String type = audio ? AUDIO : IMAGES;
+        String fileExtension = audio ? FILE_EXTENSION_MP3 : FILE_EXTENSION_JPG;
+        String mimeType = audio ? MIME_TYPE_AUDIO_MP3 : MIME_TYPE_IMAGE_JPG;
+        String fileName = String.format(FILE_NAME_TEMPLATE, isbn, fileExtension);
+        String objectKey = objectKey(isbn, type, subtype, fileName);
+        Instant expires = Instant.now().plus(S3Connection.UPLOAD_URL_EXPIRY);
+        if (size == null || size <= S3Connection.PART_SIZE_BYTES) {
+            PresignedPutObjectRequest presigned = s3Connection.presignUpload(objectKey, fileName, mimeType);
+            Map<String, String> headers = new LinkedHashMap<>();
+            presigned.signedHeaders().forEach((name, values) -> {
+                if (!HOST.equalsIgnoreCase(name)) {
+                    headers.put(name, String.join(",", values));
+                }
+            });
+            return new UploadSessionResponse(objectKey, presigned.url().toString(), headers, null, null, null, null,
+                    null, expires);
+        }
+        String uploadId = s3Connection.createMultipartUpload(objectKey, fileName, mimeType);
+        long parts = (size + S3Connection.PART_SIZE_BYTES - 1) / S3Connection.PART_SIZE_BYTES;
+        List<String> partUrls = new ArrayList<>();
+        for (int partNumber = 1; partNumber <= parts; partNumber++) {
+            partUrls.add(s3Connection.presignUploadPart(objectKey, uploadId, partNumber).toString());
+        }
+        return new UploadSessionResponse(objectKey, null, null, uploadId, S3Connection.PART_SIZE_BYTES, partUrls,
+                s3Connection.presignCompleteMultipartUpload(objectKey, uploadId).toString(),
+                s3Connection.presignAbortMultipartUpload(objectKey, uploadId).toString(), expires);
+    }
+
+    private static boolean isObjectKey(String isbn, String input, String type, String subtype,
+                                       String fileExtension) {
+        return isbn.length() > 1
+                && input.equals(objectKey(isbn, type, subtype, String.format(FILE_NAME_TEMPLATE, isbn,
+                        fileExtension)));
+    }
+
+    private static String objectKey(String isbn, String type, String subtype, String fileName) {
+        String secondLinkPart = isbn.substring(isbn.length() - 2, isbn.length() - 1);
+        String firstLinkPart = isbn.substring(isbn.length() - 1);
+        return String.format(OBJECT_KEY_TEMPLATE, type, subtype, firstLinkPart, secondLinkPart, fileName);
+    }
+
+    /**
+     * Downloads url with a single GET and streams the body to S3 when the response is successful. With since, the
+     * GET is conditional, and nothing is transferred when the supplier answers that the file is not modified.
+     *
+     * @param isbn          isbn
+     * @param url           url of the file to download
+     * @param type          IMAGE or AUDIO
+     * @param subtype       SMALL, LARGE, ORIGINAL, MP3
+     * @param fileExtension jpg, mp3
+     * @param mimeType      "image/jpg", "audio/mpeg
+     * @param since         sent as If-Modified-Since, or null to download unconditionally
+     * @return String s3 objectKey, or null when the file could not be downloaded or is not modified
+     * @throws IOException when the download fails
+     */
     protected String putFileS3(String isbn, String url, String type, String subtype, String fileExtension,
-                               String mimeType) throws IOException {
+                               String mimeType, Instant since) throws IOException {
         String fileName = String.format(FILE_NAME_TEMPLATE, isbn, fileExtension);
         URL downloadUrl;
         try {
@@ -253,13 +503,22 @@ public class StorageClient {
             throw e;
         }
 
-        String secondLinkPart = isbn.substring(isbn.length() - 2, isbn.length() - 1);
-        String firstLinkPart = isbn.substring(isbn.length() - 1);
-
-        String objectKey = String.format(OBJECT_KEY_TEMPLATE, type, subtype, firstLinkPart, secondLinkPart, fileName);
-        try (InputStream inputStream = downloadUrl.openStream()) {
-            s3Connection.uploadFile(
-                inputStream.readAllBytes(),
+        String objectKey = objectKey(isbn, type, subtype, fileName);
+        HttpURLConnection connection = openConnection(downloadUrl, since);
+        int responseCode = connection.getResponseCode();
+        if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            logger.info(String.format(NOT_MODIFIED, isbn, url, since));
+            return null;
+        }
+        if (responseCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+            logger.warn(String.format(ERROR_DOWNLOADING_FILE, isbn, url, fileName, type,
+                    HTTP_STATUS + responseCode));
+            closeErrorStream(connection);
+            return null;
+        }
+        try (InputStream inputStream = connection.getInputStream()) {
+            s3Connection.uploadStream(
+                inputStream,
                 objectKey,
                 fileName,
                 mimeType
@@ -267,4 +526,90 @@ public class StorageClient {
         }
         return objectKey;
     }
+
+    /**
+     * Downloads the original with a single GET. It is read into memory, unless it is larger than
+     * {@link #MAX_ORIGINAL_BYTES}, in which case the response is streamed on to S3.
+     *
+     * @param isbn  isbn
+     * @param url   url of the original image
+     * @param since sent as If-Modified-Since, or null to download unconditionally
+     * @return the image, the object key when it was streamed to S3, or neither when the download is unsuccessful
+     *         or the original is not modified
+     * @throws IOException when the download fails
+     */
+    private Original download(String isbn, String url, Instant since) throws IOException {
+        HttpURLConnection connection = openConnection(new URL(url), since);
+        int responseCode = connection.getResponseCode();
+        if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            logger.info(String.format(NOT_MODIFIED, isbn, url, since));
+            return new Original(null, null);
+        }
+        if (responseCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+            logger.warn(String.format(ERROR_DOWNLOADING_FILE, isbn, url, ORIGINAL, IMAGES,
+                    HTTP_STATUS + responseCode));
+            closeErrorStream(connection);
+            return new Original(null, null);
+        }
+        String fileName = String.format(FILE_NAME_TEMPLATE, isbn, FILE_EXTENSION_JPG);
+        String objectKey = objectKey(isbn, IMAGES, ORIGINAL, fileName);
+        try (InputStream inputStream = connection.getInputStream()) {
+            byte[] head = new byte[0];
+            if (connection.getContentLengthLong() <= MAX_ORIGINAL_BYTES) {
+                head = inputStream.readNBytes(MAX_ORIGINAL_BYTES + 1);
+                if (head.length <= MAX_ORIGINAL_BYTES) {
+                    return new Original(head, null);
+                }
+            }
+            s3Connection.uploadStream(new SequenceInputStream(new ByteArrayInputStream(head), inputStream),
+                    objectKey, fileName, MIME_TYPE_IMAGE_JPG);
+            return new Original(null, objectKey);
+        }
+    }
+
+    /**
+     * An original image as fetched for deriving the other images from.
+     */
+    private static final class Original {
+
+        private final byte[] bytes;
+        private final String objectKey;
+
+        /**
+         * Creates an Original.
+         *
+         * @param bytes     the image, or null when it could not be held in memory
+         * @param objectKey the object key when the image is already stored in S3, or null
+         */
+        private Original(byte[] bytes, String objectKey) {
+            this.bytes = bytes;
+            this.objectKey = objectKey;
+        }
+    }
+
+    /**
+     * Redirects are followed, and a supplier that stops answering fails the download of that file instead of
+     * holding a transfer thread.
+     */
+    private static HttpURLConnection openConnection(URL url, Instant since) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setInstanceFollowRedirects(true);
+        connection.setConnectTimeout(DOWNLOAD_CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(DOWNLOAD_READ_TIMEOUT_MILLIS);
+        if (since != null) {
+            connection.setIfModifiedSince(since.toEpochMilli());
+        }
+        return connection;
+    }
+
+    /**
+     * Reading the error body to the end lets the connection be reused for the next file from the same host.
+     */
+    private void closeErrorStream(HttpURLConnection connection) throws IOException {
+        try (InputStream errorStream = connection.getErrorStream()) {
+            if (errorStream != null) {
+                errorStream.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+    }
 }
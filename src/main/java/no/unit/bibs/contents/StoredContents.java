@@ -0,0 +1,43 @@
+package no.unit.bibs.contents;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A stored item as an update compares itself with it: the digests of the field values last written, when they were
+ * written, and the document. The document is only built when asked for, so that long texts moved to S3 are only
+ * fetched when the update changed nothing and the stored document is the answer.
+ */
+public class StoredContents {
+
+    private final Map<String, String> attributeDigests;
+    private final Instant lastWritten;
+    private final Supplier<ContentsDocument> contents;
+
+    /**
+     * Creates a new StoredContents.
+     *
+     * @param attributeDigests digests stored with the item, by attribute name
+     * @param lastWritten      modified, or created for an item never updated
+     * @param contents         builds the stored document
+     */
+    public StoredContents(Map<String, String> attributeDigests, Instant lastWritten,
+                          Supplier<ContentsDocument> contents) {
+        this.attributeDigests = attributeDigests;
+        this.lastWritten = lastWritten;
+        this.contents = contents;
+    }
+
+    public Map<String, String> getAttributeDigests() {
+        return attributeDigests;
+    }
+
+    public Instant getLastWritten() {
+        return lastWritten;
+    }
+
+    public ContentsDocument getContents() {
+        return contents.get();
+    }
+}
@@ -1,317 +1,452 @@
 package no.unit.bibs.contents;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
 public class StringHelper {
 
-    private static final Pattern pattern = Pattern.compile("&(?:#x([0-9a-fA-F]+)|#([0-9]+)|([0-9A-Za-z]+));");
-    public static final int OVERSIZED_7 = 7;
-    public static final int OVERSIZED_6 = 6;
+    public static final int MAX_HEX_DIGITS = 6;
+    public static final int MAX_DECIMAL_DIGITS = 7;
+    private static final char AMPERSAND = '&';
+    private static final char NUMBER_SIGN = '#';
+    private static final char SEMICOLON = ';';
+    private static final int HEX = 16;
+    private static final int DECIMAL = 10;
+    private static final char HEX_MARKER = 'x';
+    private static final int ASCII = 128;
+    private static final int NO_NODE = -1;
+    private static final int NOT_AN_ENTITY = -1;
+    private static final long NO_ENTITY = -1L;
+    private static final int END_SHIFT = 32;
+    private static final long CODE_POINT_MASK = 0xFFFF_FFFFL;
+    private static final int MAX_NODES = 876;
 
-    private static Set<String> namedEntities = new HashSet<>();
+    /*
+     * Trie of the named HTML 4 entities and apos. Nodes are array indexes, children are kept as a linked list of
+     * siblings, except below the root where the first character indexes a table directly.
+     */
+    private static final int[] ROOT_CHILDREN = new int[ASCII];
+    private static final char[] LABELS = new char[MAX_NODES];
+    private static final int[] FIRST_CHILD = new int[MAX_NODES];
+    private static final int[] NEXT_SIBLING = new int[MAX_NODES];
+    private static final int[] CODE_POINTS = new int[MAX_NODES];
+    private static int nodeCount;
 
     static {
-        namedEntities.add("quot");
-        namedEntities.add("amp");
-        namedEntities.add("lt");
-        namedEntities.add("gt");
-        namedEntities.add("apos");
-        namedEntities.add("nbsp");
-        namedEntities.add("iexcl");
-        namedEntities.add("cent");
-        namedEntities.add("pound");
-        namedEntities.add("curren");
-        namedEntities.add("yen");
-        namedEntities.add("brvbar");
-        namedEntities.add("sect");
-        namedEntities.add("uml");
-        namedEntities.add("copy");
-        namedEntities.add("ordf");
-        namedEntities.add("laquo");
-        namedEntities.add("not");
-        namedEntities.add("shy");
-        namedEntities.add("reg");
-        namedEntities.add("macr");
-        namedEntities.add("deg");
-        namedEntities.add("plusmn");
-        namedEntities.add("sup2");
-        namedEntities.add("sup3");
-        namedEntities.add("acute");
-        namedEntities.add("micro");
-        namedEntities.add("para");
-        namedEntities.add("middot");
-        namedEntities.add("cedil");
-        namedEntities.add("sup1");
-        namedEntities.add("ordm");
-        namedEntities.add("raquo");
-        namedEntities.add("frac14");
-        namedEntities.add("frac12");
-        namedEntities.add("frac34");
-        namedEntities.add("iquest");
-        namedEntities.add("Agrave");
-        namedEntities.add("Aacute");
-        namedEntities.add("Acirc");
-        namedEntities.add("Atilde");
-        namedEntities.add("Auml");
-        namedEntities.add("Aring");
-        namedEntities.add("AElig");
-        namedEntities.add("Ccedil");
-        namedEntities.add("Egrave");
-        namedEntities.add("Eacute");
-        namedEntities.add("Ecirc");
-        namedEntities.add("Euml");
-        namedEntities.add("Igrave");
-        namedEntities.add("Iacute");
-        namedEntities.add("Icirc");
-        namedEntities.add("Iuml");
-        namedEntities.add("ETH");
-        namedEntities.add("Ntilde");
-        namedEntities.add("Ograve");
-        namedEntities.add("Oacute");
-        namedEntities.add("Ocirc");
-        namedEntities.add("Otilde");
-        namedEntities.add("Ouml");
-        namedEntities.add("times");
-        namedEntities.add("Oslash");
-        namedEntities.add("Ugrave");
-        namedEntities.add("Uacute");
-        namedEntities.add("Ucirc");
-        namedEntities.add("Uuml");
-        namedEntities.add("Yacute");
-        namedEntities.add("THORN");
-        namedEntities.add("szlig");
-        namedEntities.add("agrave");
-        namedEntities.add("aacute");
-        namedEntities.add("acirc");
-        namedEntities.add("atilde");
-        namedEntities.add("auml");
-        namedEntities.add("aring");
-        namedEntities.add("aelig");
-        namedEntities.add("ccedil");
-        namedEntities.add("egrave");
-        namedEntities.add("eacute");
-        namedEntities.add("ecirc");
-        namedEntities.add("euml");
-        namedEntities.add("igrave");
-        namedEntities.add("iacute");
-        namedEntities.add("icirc");
-        namedEntities.add("iuml");
-        namedEntities.add("eth");
-        namedEntities.add("ntilde");
-        namedEntities.add("ograve");
-        namedEntities.add("oacute");
-        namedEntities.add("ocirc");
-        namedEntities.add("otilde");
-        namedEntities.add("ouml");
-        namedEntities.add("divide");
-        namedEntities.add("oslash");
-        namedEntities.add("ugrave");
-        namedEntities.add("uacute");
-        namedEntities.add("ucirc");
-        namedEntities.add("uuml");
-        namedEntities.add("yacute");
-        namedEntities.add("thorn");
-        namedEntities.add("yuml");
-        namedEntities.add("OElig");
-        namedEntities.add("oelig");
-        namedEntities.add("Scaron");
-        namedEntities.add("scaron");
-        namedEntities.add("Yuml");
-        namedEntities.add("fnof");
-        namedEntities.add("circ");
-        namedEntities.add("tilde");
-        namedEntities.add("Alpha");
-        namedEntities.add("Beta");
-        namedEntities.add("Gamma");
-        namedEntities.add("Delta");
-        namedEntities.add("Epsilon");
-        namedEntities.add("Zeta");
-        namedEntities.add("Eta");
-        namedEntities.add("Theta");
-        namedEntities.add("Iota");
-        namedEntities.add("Kappa");
-        namedEntities.add("Lambda");
-        namedEntities.add("Mu");
-        namedEntities.add("Nu");
-        namedEntities.add("Xi");
-        namedEntities.add("Omicron");
-        namedEntities.add("Pi");
-        namedEntities.add("Rho");
-        namedEntities.add("Sigma");
-        namedEntities.add("Tau");
-        namedEntities.add("Upsilon");
-        namedEntities.add("Phi");
-        namedEntities.add("Chi");
-        namedEntities.add("Psi");
-        namedEntities.add("Omega");
-        namedEntities.add("alpha");
-        namedEntities.add("beta");
-        namedEntities.add("gamma");
-        namedEntities.add("delta");
-        namedEntities.add("epsilon");
-        namedEntities.add("zeta");
-        namedEntities.add("eta");
-        namedEntities.add("theta");
-        namedEntities.add("iota");
-        namedEntities.add("kappa");
-        namedEntities.add("lambda");
-        namedEntities.add("mu");
-        namedEntities.add("nu");
-        namedEntities.add("xi");
-        namedEntities.add("omicron");
-        namedEntities.add("pi");
-        namedEntities.add("rho");
-        namedEntities.add("sigmaf");
-        namedEntities.add("sigma");
-        namedEntities.add("tau");
-        namedEntities.add("upsilon");
-        namedEntities.add("phi");
-        namedEntities.add("chi");
-        namedEntities.add("psi");
-        namedEntities.add("omega");
-        namedEntities.add("thetasym");
-        namedEntities.add("upsih");
-        namedEntities.add("piv");
-        namedEntities.add("ensp");
-        namedEntities.add("emsp");
-        namedEntities.add("thinsp");
-        namedEntities.add("zwnj");
-        namedEntities.add("zwj");
-        namedEntities.add("lrm");
-        namedEntities.add("rlm");
-        namedEntities.add("ndash");
-        namedEntities.add("mdash");
-        namedEntities.add("lsquo");
-        namedEntities.add("rsquo");
-        namedEntities.add("sbquo");
-        namedEntities.add("ldquo");
-        namedEntities.add("rdquo");
-        namedEntities.add("bdquo");
-        namedEntities.add("dagger");
-        namedEntities.add("Dagger");
-        namedEntities.add("bull");
-        namedEntities.add("hellip");
-        namedEntities.add("permil");
-        namedEntities.add("prime");
-        namedEntities.add("Prime");
-        namedEntities.add("lsaquo");
-        namedEntities.add("rsaquo");
-        namedEntities.add("oline");
-        namedEntities.add("frasl");
-        namedEntities.add("euro");
-        namedEntities.add("weierp");
-        namedEntities.add("image");
-        namedEntities.add("real");
-        namedEntities.add("trade");
-        namedEntities.add("alefsym");
-        namedEntities.add("larr");
-        namedEntities.add("uarr");
-        namedEntities.add("rarr");
-        namedEntities.add("darr");
-        namedEntities.add("harr");
-        namedEntities.add("crarr");
-        namedEntities.add("lArr");
-        namedEntities.add("uArr");
-        namedEntities.add("rArr");
-        namedEntities.add("dArr");
-        namedEntities.add("hArr");
-        namedEntities.add("forall");
-        namedEntities.add("part");
-        namedEntities.add("exist");
-        namedEntities.add("empty");
-        namedEntities.add("nabla");
-        namedEntities.add("isin");
-        namedEntities.add("notin");
-        namedEntities.add("ni");
-        namedEntities.add("prod");
-        namedEntities.add("sum");
-        namedEntities.add("minus");
-        namedEntities.add("lowast");
-        namedEntities.add("radic");
-        namedEntities.add("prop");
-        namedEntities.add("infin");
-        namedEntities.add("ang");
-        namedEntities.add("and");
-        namedEntities.add("or");
-        namedEntities.add("cap");
-        namedEntities.add("cup");
-        namedEntities.add("int");
-        namedEntities.add("there4");
-        namedEntities.add("sim");
-        namedEntities.add("cong");
-        namedEntities.add("asymp");
-        namedEntities.add("ne");
-        namedEntities.add("equiv");
-        namedEntities.add("le");
-        namedEntities.add("ge");
-        namedEntities.add("sub");
-        namedEntities.add("sup");
-        namedEntities.add("nsub");
-        namedEntities.add("sube");
-        namedEntities.add("supe");
-        namedEntities.add("oplus");
-        namedEntities.add("otimes");
-        namedEntities.add("perp");
-        namedEntities.add("sdot");
-        namedEntities.add("lceil");
-        namedEntities.add("rceil");
-        namedEntities.add("lfloor");
-        namedEntities.add("rfloor");
-        namedEntities.add("lang");
-        namedEntities.add("rang");
-        namedEntities.add("loz");
-        namedEntities.add("spades");
-        namedEntities.add("clubs");
-        namedEntities.add("hearts");
-        namedEntities.add("diams");
+        Arrays.fill(ROOT_CHILDREN, NO_NODE);
+        entity("quot", 34);
+        entity("amp", 38);
+        entity("lt", 60);
+        entity("gt", 62);
+        entity("apos", 39);
+        entity("nbsp", 160);
+        entity("iexcl", 161);
+        entity("cent", 162);
+        entity("pound", 163);
+        entity("curren", 164);
+        entity("yen", 165);
+        entity("brvbar", 166);
+        entity("sect", 167);
+        entity("uml", 168);
+        entity("copy", 169);
+        entity("ordf", 170);
+        entity("laquo", 171);
+        entity("not", 172);
+        entity("shy", 173);
+        entity("reg", 174);
+        entity("macr", 175);
+        entity("deg", 176);
+        entity("plusmn", 177);
+        entity("sup2", 178);
+        entity("sup3", 179);
+        entity("acute", 180);
+        entity("micro", 181);
+        entity("para", 182);
+        entity("middot", 183);
+        entity("cedil", 184);
+        entity("sup1", 185);
+        entity("ordm", 186);
+        entity("raquo", 187);
+        entity("frac14", 188);
+        entity("frac12", 189);
+        entity("frac34", 190);
+        entity("iquest", 191);
+        entity("Agrave", 192);
+        entity("Aacute", 193);
+        entity("Acirc", 194);
+        entity("Atilde", 195);
+        entity("Auml", 196);
+        entity("Aring", 197);
+        entity("AElig", 198);
+        entity("Ccedil", 199);
+        entity("Egrave", 200);
+        entity("Eacute", 201);
+        entity("Ecirc", 202);
+        entity("Euml", 203);
+        entity("Igrave", 204);
+        entity("Iacute", 205);
+        entity("Icirc", 206);
+        entity("Iuml", 207);
+        entity("ETH", 208);
+        entity("Ntilde", 209);
+        entity("Ograve", 210);
+        entity("Oacute", 211);
+        entity("Ocirc", 212);
+        entity("Otilde", 213);
+        entity("Ouml", 214);
+        entity("times", 215);
+        entity("Oslash", 216);
+        entity("Ugrave", 217);
+        entity("Uacute", 218);
+        entity("Ucirc", 219);
+        entity("Uuml", 220);
+        entity("Yacute", 221);
+        entity("THORN", 222);
+        entity("szlig", 223);
+        entity("agrave", 224);
+        entity("aacute", 225);
+        entity("acirc", 226);
+        entity("atilde", 227);
+        entity("auml", 228);
+        entity("aring", 229);
+        entity("aelig", 230);
+        entity("ccedil", 231);
+        entity("egrave", 232);
+        entity("eacute", 233);
+        entity("ecirc", 234);
+        entity("euml", 235);
+        entity("igrave", 236);
+        entity("iacute", 237);
+        entity("icirc", 238);
+        entity("iuml", 239);
+        entity("eth", 240);
+        entity("ntilde", 241);
+        entity("ograve", 242);
+        entity("oacute", 243);
+        entity("ocirc", 244);
+        entity("otilde", 245);
+        entity("ouml", 246);
+        entity("divide", 247);
+        entity("oslash", 248);
+        entity("ugrave", 249);
+        entity("uacute", 250);
+        entity("ucirc", 251);
+        entity("uuml", 252);
+        entity("yacute", 253);
+        entity("thorn", 254);
+        entity("yuml", 255);
+        entity("OElig", 338);
+        entity("oelig", 339);
+        entity("Scaron", 352);
+        entity("scaron", 353);
+        entity("Yuml", 376);
+        entity("fnof", 402);
+        entity("circ", 710);
+        entity("tilde", 732);
+        entity("Alpha", 913);
+        entity("Beta", 914);
+        entity("Gamma", 915);
+        entity("Delta", 916);
+        entity("Epsilon", 917);
+        entity("Zeta", 918);
+        entity("Eta", 919);
+        entity("Theta", 920);
+        entity("Iota", 921);
+        entity("Kappa", 922);
+        entity("Lambda", 923);
+        entity("Mu", 924);
+        entity("Nu", 925);
+        entity("Xi", 926);
+        entity("Omicron", 927);
+        entity("Pi", 928);
+        entity("Rho", 929);
+        entity("Sigma", 931);
+        entity("Tau", 932);
+        entity("Upsilon", 933);
+        entity("Phi", 934);
+        entity("Chi", 935);
+        entity("Psi", 936);
+        entity("Omega", 937);
+        entity("alpha", 945);
+        entity("beta", 946);
+        entity("gamma", 947);
+        entity("delta", 948);
+        entity("epsilon", 949);
+        entity("zeta", 950);
+        entity("eta", 951);
+        entity("theta", 952);
+        entity("iota", 953);
+        entity("kappa", 954);
+        entity("lambda", 955);
+        entity("mu", 956);
+        entity("nu", 957);
+        entity("xi", 958);
+        entity("omicron", 959);
+        entity("pi", 960);
+        entity("rho", 961);
+        entity("sigmaf", 962);
+        entity("sigma", 963);
+        entity("tau", 964);
+        entity("upsilon", 965);
+        entity("phi", 966);
+        entity("chi", 967);
+        entity("psi", 968);
+        entity("omega", 969);
+        entity("thetasym", 977);
+        entity("upsih", 978);
+        entity("piv", 982);
+        entity("ensp", 8194);
+        entity("emsp", 8195);
+        entity("thinsp", 8201);
+        entity("zwnj", 8204);
+        entity("zwj", 8205);
+        entity("lrm", 8206);
+        entity("rlm", 8207);
+        entity("ndash", 8211);
+        entity("mdash", 8212);
+        entity("lsquo", 8216);
+        entity("rsquo", 8217);
+        entity("sbquo", 8218);
+        entity("ldquo", 8220);
+        entity("rdquo", 8221);
+        entity("bdquo", 8222);
+        entity("dagger", 8224);
+        entity("Dagger", 8225);
+        entity("bull", 8226);
+        entity("hellip", 8230);
+        entity("permil", 8240);
+        entity("prime", 8242);
+        entity("Prime", 8243);
+        entity("lsaquo", 8249);
+        entity("rsaquo", 8250);
+        entity("oline", 8254);
+        entity("frasl", 8260);
+        entity("euro", 8364);
+        entity("weierp", 8472);
+        entity("image", 8465);
+        entity("real", 8476);
+        entity("trade", 8482);
+        entity("alefsym", 8501);
+        entity("larr", 8592);
+        entity("uarr", 8593);
+        entity("rarr", 8594);
+        entity("darr", 8595);
+        entity("harr", 8596);
+        entity("crarr", 8629);
+        entity("lArr", 8656);
+        entity("uArr", 8657);
+        entity("rArr", 8658);
+        entity("dArr", 8659);
+        entity("hArr", 8660);
+        entity("forall", 8704);
+        entity("part", 8706);
+        entity("exist", 8707);
+        entity("empty", 8709);
+        entity("nabla", 8711);
+        entity("isin", 8712);
+        entity("notin", 8713);
+        entity("ni", 8715);
+        entity("prod", 8719);
+        entity("sum", 8721);
+        entity("minus", 8722);
+        entity("lowast", 8727);
+        entity("radic", 8730);
+        entity("prop", 8733);
+        entity("infin", 8734);
+        entity("ang", 8736);
+        entity("and", 8743);
+        entity("or", 8744);
+        entity("cap", 8745);
+        entity("cup", 8746);
+        entity("int", 8747);
+        entity("there4", 8756);
+        entity("sim", 8764);
+        entity("cong", 8773);
+        entity("asymp", 8776);
+        entity("ne", 8800);
+        entity("equiv", 8801);
+        entity("le", 8804);
+        entity("ge", 8805);
+        entity("sub", 8834);
+        entity("sup", 8835);
+        entity("nsub", 8836);
+        entity("sube", 8838);
+        entity("supe", 8839);
+        entity("oplus", 8853);
+        entity("otimes", 8855);
+        entity("perp", 8869);
+        entity("sdot", 8901);
+        entity("lceil", 8968);
+        entity("rceil", 8969);
+        entity("lfloor", 8970);
+        entity("rfloor", 8971);
+        entity("lang", 9001);
+        entity("rang", 9002);
+        entity("loz", 9674);
+        entity("spades", 9824);
+        entity("clubs", 9827);
+        entity("hearts", 9829);
+        entity("diams", 9830);
+    }
+
+    private static void entity(String name, int codePoint) {
+        char first = name.charAt(0);
+        int node = ROOT_CHILDREN[first];
+        if (node == NO_NODE) {
+            node = newNode(first);
+            ROOT_CHILDREN[first] = node;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            int child = findChild(node, name.charAt(i));
+            if (child == NO_NODE) {
+                child = newNode(name.charAt(i));
+                NEXT_SIBLING[child] = FIRST_CHILD[node];
+                FIRST_CHILD[node] = child;
+            }
+            node = child;
+        }
+        CODE_POINTS[node] = codePoint;
+    }
+
+    private static int newNode(char label) {
+        int node = nodeCount++;
+        LABELS[node] = label;
+        FIRST_CHILD[node] = NO_NODE;
+        NEXT_SIBLING[node] = NO_NODE;
+        CODE_POINTS[node] = NOT_AN_ENTITY;
+        return node;
+    }
+
+    private static int findChild(int node, char label) {
+        int child = FIRST_CHILD[node];
+        while (child != NO_NODE && LABELS[child] != label) {
+            child = NEXT_SIBLING[child];
+        }
+        return child;
     }
 
     /**
      * checks if a String contains an html escaped character.
      * @param string string to check
-     * @return TRUE if the string contains an html escaped char
+     * @return TRUE if the string contains an html escaped char that unescapeHtml decodes
      */
-    @SuppressWarnings("PMD.CognitiveComplexity")
     public static boolean isValidHtmlEscapeCode(String string) {
         if (string == null) {
             return false;
         }
-        Matcher m = pattern.matcher(string);
+        for (int amp = string.indexOf(AMPERSAND); amp >= 0; amp = string.indexOf(AMPERSAND, amp + 1)) {
+            if (decodeEntity(string, amp) != NO_ENTITY) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        if (m.find()) {
-            int codePoint = -1;
-            String entity;
-            try {
-                String group1 = entity = m.group(1);
-                if (group1 != null) {
-                    if (entity.length() > OVERSIZED_6) {
-                        return false;
-                    }
-                    codePoint = Integer.parseInt(entity, 16);
-                } else {
-                    String group2 = entity = m.group(2);
-                    if (group2 != null) {
-                        if (entity.length() > OVERSIZED_7) {
-                            return false;
-                        }
-                        codePoint = Integer.parseInt(entity, 10);
-                    } else {
-                        String group3 = entity = m.group(3);
-                        if (group3 != null) {
-                            return namedEntities.contains(entity);
-                        }
-                    }
+    /**
+     * Decodes named HTML 4 entities, apos and numeric character references in a single pass. References that are
+     * not terminated by a semicolon, name no known entity or give no valid code point are kept as they are.
+     * @param text text that might contain html escaped characters
+     * @return the decoded text, or text itself when it contains nothing to decode
+     */
+    public static String unescapeHtml(String text) {
+        if (text == null) {
+            return null;
+        }
+        int amp = text.indexOf(AMPERSAND);
+        if (amp < 0) {
+            return text;
+        }
+        StringBuilder decoded = null;
+        int copied = 0;
+        while (amp >= 0) {
+            long entity = decodeEntity(text, amp);
+            if (entity == NO_ENTITY) {
+                amp = text.indexOf(AMPERSAND, amp + 1);
+            } else {
+                if (decoded == null) {
+                    decoded = new StringBuilder(text.length());
                 }
-                return 0x00 <= codePoint && codePoint < 0xd800
-                        || 0xdfff < codePoint && codePoint <= 0x10FFFF;
-            } catch (NumberFormatException e) {
-                return false;
+                decoded.append(text, copied, amp).appendCodePoint((int) (entity & CODE_POINT_MASK));
+                copied = (int) (entity >>> END_SHIFT);
+                amp = text.indexOf(AMPERSAND, copied);
             }
-        } else {
-            return false;
         }
+        if (decoded == null) {
+            return text;
+        }
+        return decoded.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * Decodes the reference starting with the ampersand at amp.
+     *
+     * @return the index after the semicolon in the upper half and the code point in the lower half, or NO_ENTITY
+     */
+    private static long decodeEntity(String text, int amp) {
+        int start = amp + 1;
+        if (start >= text.length()) {
+            return NO_ENTITY;
+        }
+        if (text.charAt(start) == NUMBER_SIGN) {
+            return decodeNumeric(text, start + 1);
+        }
+        return decodeNamed(text, start);
+    }
+
+    private static long decodeNamed(String text, int start) {
+        char first = text.charAt(start);
+        int node = first < ASCII ? ROOT_CHILDREN[first] : NO_NODE;
+        for (int pos = start + 1; node != NO_NODE && pos < text.length(); pos++) {
+            char current = text.charAt(pos);
+            if (current == SEMICOLON) {
+                return CODE_POINTS[node] == NOT_AN_ENTITY ? NO_ENTITY : found(pos + 1, CODE_POINTS[node]);
+            }
+            node = findChild(node, current);
+        }
+        return NO_ENTITY;
+    }
+
+    private static long decodeNumeric(String text, int start) {
+        int pos = start;
+        int radix = DECIMAL;
+        int maxDigits = MAX_DECIMAL_DIGITS;
+        if (pos < text.length() && Character.toLowerCase(text.charAt(pos)) == HEX_MARKER) {
+            radix = HEX;
+            maxDigits = MAX_HEX_DIGITS;
+            pos++;
+        }
+        int digitsStart = pos;
+        int codePoint = 0;
+        while (pos < text.length() && pos - digitsStart <= maxDigits) {
+            int digit = asciiDigit(text.charAt(pos), radix);
+            if (digit < 0) {
+                break;
+            }
+            codePoint = codePoint * radix + digit;
+            pos++;
+        }
+        int digits = pos - digitsStart;
+        if (digits == 0 || digits > maxDigits || pos >= text.length() || text.charAt(pos) != SEMICOLON) {
+            return NO_ENTITY;
+        }
+        if (!isValidCodePoint(codePoint)) {
+            return NO_ENTITY;
+        }
+        return found(pos + 1, codePoint);
+    }
+
+    private static boolean isValidCodePoint(int codePoint) {
+        return codePoint < Character.MIN_SURROGATE
+                || codePoint > Character.MAX_SURROGATE && codePoint <= Character.MAX_CODE_POINT;
+    }
+
+    /**
+     * Character.digit also accepts digits from other scripts, which are not part of a character reference.
+     */
+    private static int asciiDigit(char character, int radix) {
+        return character < ASCII ? Character.digit(character, radix) : NOT_AN_ENTITY;
+    }
+
+    private static long found(int end, int codePoint) {
+        return (long) end << END_SHIFT | codePoint;
     }
 }
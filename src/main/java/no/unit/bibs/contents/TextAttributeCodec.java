@@ -0,0 +1,102 @@
+package no.unit.bibs.contents;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores long texts as compressed binary attributes. DynamoDB bills reads and writes by item size, and free text
+ * like descriptions and reviews shrinks to a third or less when deflated. The first byte of a binary attribute
+ * tells how the rest is encoded, so the format can change without rewriting old items. String attributes are read
+ * as they are, which keeps items written before compression readable.
+ */
+public final class TextAttributeCodec {
+
+    public static final int COMPRESSION_THRESHOLD_BYTES = 1024;
+    public static final byte DEFLATE = 1;
+    public static final String UNKNOWN_FORMAT = "Unknown format %d of compressed text attribute";
+    public static final String CORRUPT_TEXT = "Compressed text attribute is corrupt";
+    private static final int BUFFER_SIZE = 8192;
+
+    private TextAttributeCodec() {
+    }
+
+    /**
+     * Encodes the text as a string attribute, or deflated as a binary attribute when it is at least
+     * {@link #COMPRESSION_THRESHOLD_BYTES} long and compressing it saves space.
+     *
+     * @param text text to store
+     * @return attribute value
+     */
+    public static AttributeValue encode(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= COMPRESSION_THRESHOLD_BYTES) {
+            byte[] compressed = deflate(utf8);
+            if (compressed.length < utf8.length) {
+                return AttributeValue.builder().b(SdkBytes.fromByteArray(compressed)).build();
+            }
+        }
+        return AttributeValue.builder().s(text).build();
+    }
+
+    /**
+     * Decodes a text attribute written by {@link #encode}, or as a plain string.
+     *
+     * @param value attribute value
+     * @return the text, or null when the attribute is neither a string nor binary
+     * @throws IllegalStateException when a binary attribute has an unknown format or is corrupt
+     */
+    public static String decode(AttributeValue value) {
+        if (value.b() == null) {
+            return value.s();
+        }
+        byte[] bytes = value.b().asByteArray();
+        if (bytes.length == 0 || bytes[0] != DEFLATE) {
+            throw new IllegalStateException(String.format(UNKNOWN_FORMAT, bytes.length == 0 ? -1 : bytes[0]));
+        }
+        return new String(inflate(bytes), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(byte[] utf8) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(utf8.length / 2 + 1);
+            output.write(DEFLATE);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, 1, bytes.length - 1);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException(CORRUPT_TEXT);
+                }
+                output.write(buffer, 0, inflated);
+            }
+            return output.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException(CORRUPT_TEXT, e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package no.unit.bibs.contents;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two tier ContentsCache. Lookups go to the in-process first tier, then to the second tier, and second tier hits are
+ * copied into the first tier. Puts and invalidations go to both tiers.
+ */
+public class TieredContentsCache implements ContentsCache {
+
+    private final ContentsCache firstTier;
+    private final ContentsCache secondTier;
+    private final AtomicLong firstTierHits = new AtomicLong();
+    private final AtomicLong secondTierHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a TieredContentsCache without a second tier.
+     *
+     * @param firstTier in-process cache
+     */
+    public TieredContentsCache(ContentsCache firstTier) {
+        this(firstTier, new NoContentsCache());
+    }
+
+    /**
+     * Creates a new TieredContentsCache.
+     *
+     * @param firstTier  in-process cache
+     * @param secondTier cache shared between containers, or a stand-in
+     */
+    public TieredContentsCache(ContentsCache firstTier, ContentsCache secondTier) {
+        this.firstTier = firstTier;
+        this.secondTier = secondTier;
+    }
+
+    @Override
+    public Optional<ContentsDocument> get(String isbn) {
+        Optional<ContentsDocument> contents = firstTier.get(isbn);
+        if (contents.isPresent()) {
+            firstTierHits.incrementAndGet();
+            return contents;
+        }
+        contents = secondTier.get(isbn);
+        if (contents.isPresent()) {
+            secondTierHits.incrementAndGet();
+            firstTier.put(isbn, contents.get());
+            return contents;
+        }
+        misses.incrementAndGet();
+        return contents;
+    }
+
+    @Override
+    public void put(String isbn, ContentsDocument contents) {
+        firstTier.put(isbn, contents);
+        secondTier.put(isbn, contents);
+    }
+
+    @Override
+    public void invalidate(String isbn) {
+        firstTier.invalidate(isbn);
+        secondTier.invalidate(isbn);
+    }
+
+    public long getFirstTierHitCount() {
+        return firstTierHits.get();
+    }
+
+    public long getSecondTierHitCount() {
+        return secondTierHits.get();
+    }
+
+    public long getHitCount() {
+        return firstTierHits.get() + secondTierHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private static class NoContentsCache implements ContentsCache {
+
+        @Override
+        public Optional<ContentsDocument> get(String isbn) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void put(String isbn, ContentsDocument contents) {
+            // nothing is cached
+        }
+
+        @Override
+        public void invalidate(String isbn) {
+            // nothing is cached
+        }
+    }
+
+}
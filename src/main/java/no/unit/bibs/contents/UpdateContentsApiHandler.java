@@ -1,10 +1,7 @@
 package no.unit.bibs.contents;
 
 import static java.util.Objects.isNull;
-import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
 import com.amazonaws.services.lambda.runtime.Context;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import no.unit.bibs.contents.exception.CommunicationException;
 import no.unit.bibs.contents.exception.ParameterException;
 import nva.commons.apigateway.ApiGatewayHandler;
 import nva.commons.apigateway.RequestInfo;
@@ -12,27 +9,32 @@ import nva.commons.apigateway.RestRequestHandler;
 import nva.commons.apigateway.exceptions.ApiGatewayException;
 import nva.commons.apigateway.exceptions.BadRequestException;
 import nva.commons.apigateway.exceptions.ConflictException;
-import nva.commons.apigateway.exceptions.GatewayResponseSerializingException;
-import nva.commons.apigateway.exceptions.NotFoundException;
 import nva.commons.core.Environment;
 import nva.commons.core.JacocoGenerated;
-import nva.commons.core.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.HttpURLConnection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 
 public class UpdateContentsApiHandler extends ApiGatewayHandler<ContentsRequest, ContentsDocument> {
 
     public static final String NO_PARAMETERS_GIVEN_TO_HANDLER = "No parameters given to UpdateContentsApiHandler";
     public static final String COULD_NOT_UPDATE_PROVIDED_CONTENTS = "Could not update provided contents. ";
-    public static final String CONTENTS_CREATED = "contents created";
-    public static final String CONTENTS_UPDATED = "contents updated";
+    public static final String CONTENTS_PERSISTED = "contents persisted";
     public static final String FAILED_AFTER_PERSISTING = "failed after persisting: ";
     public static final String THIS_IS_MY_CONTENTS_DOCUMENT_TO_PERSIST = "This is my ContentsDocument to persist: ";
     public static final String JSON_INPUT_LOOKS_LIKE_THAT = "json input looks like that :";
-    public static final int FOURTH_OF_A_SECOND = 250;
+    public static final String NOTHING_CHANGED = "nothing changed, write skipped";
+
+    static {
+        Priming.primeOnInit(new Environment(), Priming.RequestPath.WRITE);
+    }
 
     private final DynamoDBClient dynamoDBClient;
     private final StorageClient storageClient;
@@ -65,7 +67,11 @@ public class UpdateContentsApiHandler extends ApiGatewayHandler<ContentsRequest,
 
     /**
      * Implements the main logic of the handler. Any exception thrown by this method will be handled by {@link
-     * RestRequestHandler#handleExpectedException} method.
+     * RestRequestHandler#handleExpectedException} method. Texts holding the same value as the stored item are
+     * neither transferred nor written. Files holding the same url, object key or content are only transferred when
+     * the file may have changed since the item was written, see {@link StorageClient#handleFilesAsync(
+     * ContentsDocument, Set, java.time.Instant)}. When nothing is left to write, the stored contents from the same
+     * read are returned, marked unchanged, with 200 instead of 201.
      *
      * @param request     The input object to the method. Usually a deserialized json.
      * @param requestInfo Request headers and path.
@@ -84,20 +90,31 @@ public class UpdateContentsApiHandler extends ApiGatewayHandler<ContentsRequest,
         logger.info(JSON_INPUT_LOOKS_LIKE_THAT + contentsDocument.toString());
 
         if (contentsDocument.isValid()) {
-
-            storageClient.handleFiles(contentsDocument);
-
             logger.debug(THIS_IS_MY_CONTENTS_DOCUMENT_TO_PERSIST + contentsDocument.toString());
+            Map<String, String> digests = DynamoDBClient.attributeDigests(contentsDocument);
+            Optional<StoredContents> stored = dynamoDBClient.getStoredContents(contentsDocument.getIsbn());
+            Set<String> unchanged = stored
+                    .map(storedContents -> DynamoDBClient.unchangedAttributes(storedContents.getAttributeDigests(),
+                            digests))
+                    .orElse(Set.of());
+            Set<String> resentFiles = new HashSet<>(unchanged);
+            resentFiles.retainAll(ContentsDocument.FILE_ATTRIBUTES);
+            Set<String> unchangedTexts = new HashSet<>(unchanged);
+            unchangedTexts.removeAll(ContentsDocument.FILE_ATTRIBUTES);
+            ContentsDocument changed = unchangedTexts.isEmpty() ? contentsDocument : withoutFields(contentsDocument,
+                    unchangedTexts);
+            changed.setAttributeDigests(digests);
+            CompletableFuture<ContentsDocument> filesStored = storageClient.handleFilesAsync(changed, resentFiles,
+                    stored.map(StoredContents::getLastWritten).orElse(null));
             try {
-                String contents = dynamoDBClient.getContents(contentsDocument.getIsbn());
-                if (StringUtils.isEmpty(contents)) {
-                    return createContents(contentsDocument);
-                } else {
-                    return updateContents(contentsDocument);
-                }
-            } catch (NotFoundException e) {
-                return createContents(contentsDocument);
+                ContentsDocument contents = FutureHelper.join(filesStored.thenCompose(transferred ->
+                        writeChanges(transferred, stored.orElse(null), digests.size())));
+                logger.info(CONTENTS_PERSISTED);
+                return contents;
             } catch (Exception e) {
+                if (filesStored.isCompletedExceptionally()) {
+                    throw e;
+                }
                 String msg = FAILED_AFTER_PERSISTING + e.getMessage();
                 logger.error(msg, e);
                 throw new ConflictException(msg);
@@ -108,46 +125,32 @@ public class UpdateContentsApiHandler extends ApiGatewayHandler<ContentsRequest,
         }
     }
 
-    private ContentsDocument createContents(ContentsDocument contentsDocument) throws CommunicationException,
-            NotFoundException, GatewayResponseSerializingException {
-        dynamoDBClient.createContents(contentsDocument);
-        this.waitAMoment(FOURTH_OF_A_SECOND);
-        String createdContents = dynamoDBClient.getContents(contentsDocument.getIsbn());
-        logger.info(CONTENTS_CREATED);
-        try {
-            ContentsDocument contents = dtoObjectMapper.readValue(createdContents, ContentsDocument.class);
-            return contents;
-        } catch (JsonProcessingException ex) {
-            throw new GatewayResponseSerializingException(ex);
-        }
-    }
-
-    private ContentsDocument updateContents(ContentsDocument contentsDocument) throws CommunicationException,
-            GatewayResponseSerializingException, NotFoundException {
-        dynamoDBClient.updateContents(contentsDocument);
-        logger.info(CONTENTS_UPDATED);
-        this.waitAMoment(FOURTH_OF_A_SECOND);
-        String updatedContents = dynamoDBClient.getContents(contentsDocument.getIsbn());
-        try {
-            ContentsDocument contents = dtoObjectMapper.readValue(updatedContents, ContentsDocument.class);
-            return contents;
-        } catch (JsonProcessingException ex) {
-            throw new GatewayResponseSerializingException(ex);
+    /**
+     * Writes what is left of the update once unchanged texts and files are taken out, or answers with the stored
+     * contents when nothing is left.
+     */
+    private CompletableFuture<ContentsDocument> writeChanges(ContentsDocument transferred, StoredContents stored,
+                                                             int fieldCount) {
+        int written = transferred.updatableValues().size();
+        dynamoDBClient.countUpdate(transferred.getIsbn(), fieldCount - written, fieldCount,
+                written > 0 || stored == null);
+        if (written == 0 && stored != null) {
+            logger.info(NOTHING_CHANGED);
+            ContentsDocument contents = stored.getContents();
+            contents.setUnchanged(true);
+            return CompletableFuture.completedFuture(contents);
         }
+        return dynamoDBClient.upsertContentsAsync(transferred);
     }
 
-    @JacocoGenerated
-    private void waitAMoment(int millisec) {
-        try {
-            Thread.sleep(millisec);
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-        }
+    private static ContentsDocument withoutFields(ContentsDocument contentsDocument, Set<String> fields) {
+        Set<String> kept = new HashSet<>(ContentsDocument.ATTRIBUTES);
+        kept.removeAll(fields);
+        return contentsDocument.project(kept);
     }
 
-
     @Override
     protected Integer getSuccessStatusCode(ContentsRequest input, ContentsDocument output) {
-        return HttpURLConnection.HTTP_CREATED;
+        return output != null && output.isUnchanged() ? HttpURLConnection.HTTP_OK : HttpURLConnection.HTTP_CREATED;
     }
 }
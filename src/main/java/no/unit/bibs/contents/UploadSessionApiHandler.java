@@ -0,0 +1,93 @@
+package no.unit.bibs.contents;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import nva.commons.apigateway.ApiGatewayHandler;
+import nva.commons.apigateway.RequestInfo;
+import nva.commons.apigateway.RestRequestHandler;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import nva.commons.apigateway.exceptions.BadRequestException;
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.HttpURLConnection;
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+
+public class UploadSessionApiHandler extends ApiGatewayHandler<UploadSessionRequest, UploadSessionResponse> {
+
+    public static final String NO_PARAMETERS_GIVEN_TO_HANDLER = "No parameters given to UploadSessionApiHandler";
+    public static final String INVALID_ISBN = "Invalid isbn: ";
+    public static final String INVALID_FILE = "file must be one of image_small, image_large, image_original or "
+            + "audio_file, was: ";
+    public static final String INVALID_SIZE = "size must be between 1 and %d bytes, was: %d";
+    public static final long MAX_SIZE = (long) S3Connection.PART_SIZE_BYTES * S3Connection.MAX_PARTS;
+    public static final int MIN_ISBN_LENGTH = 2;
+    private static final Map<String, String> SUBTYPES = Map.of(
+            ContentsDocument.IMAGE_SMALL, StorageClient.SMALL,
+            ContentsDocument.IMAGE_LARGE, StorageClient.LARGE,
+            ContentsDocument.IMAGE_ORIGINAL, StorageClient.ORIGINAL,
+            ContentsDocument.AUDIO_FILE, StorageClient.MP3);
+
+    private final StorageClient storageClient;
+
+    @JacocoGenerated
+    public UploadSessionApiHandler() {
+        this(new Environment());
+    }
+
+    @JacocoGenerated
+    public UploadSessionApiHandler(Environment environment) {
+        this(environment, new StorageClient(environment));
+    }
+
+    /**
+     * Constructor for injecting used in testing.
+     *
+     * @param environment   environment
+     * @param storageClient storageClient
+     */
+    public UploadSessionApiHandler(Environment environment, StorageClient storageClient) {
+        super(UploadSessionRequest.class, environment);
+        this.storageClient = storageClient;
+    }
+
+    /**
+     * Implements the main logic of the handler. Any exception thrown by this method will be handled by {@link
+     * RestRequestHandler#handleExpectedException} method.
+     *
+     * @param request     The input object to the method. Usually a deserialized json.
+     * @param requestInfo Request headers and path.
+     * @param context     the ApiGateway context.
+     * @return the urls to upload the file straight to S3 with
+     * @throws ApiGatewayException all exceptions are caught by writeFailure and mapped to error codes through the
+     *                             method {@link RestRequestHandler#getFailureStatusCode}
+     */
+    @Override
+    protected UploadSessionResponse processInput(UploadSessionRequest request, RequestInfo requestInfo,
+                                                 Context context) throws ApiGatewayException {
+        if (isNull(request)) {
+            throw new BadRequestException(NO_PARAMETERS_GIVEN_TO_HANDLER);
+        }
+        String isbn = request.getIsbn();
+        if (StringUtils.isBlank(isbn) || isbn.trim().length() < MIN_ISBN_LENGTH) {
+            throw new BadRequestException(INVALID_ISBN + isbn);
+        }
+        String subtype = isNull(request.getFile()) ? null : SUBTYPES.get(request.getFile());
+        if (isNull(subtype)) {
+            throw new BadRequestException(INVALID_FILE + request.getFile());
+        }
+        Long size = request.getSize();
+        if (size != null && (size < 1 || size > MAX_SIZE)) {
+            throw new BadRequestException(String.format(INVALID_SIZE, MAX_SIZE, size));
+        }
+        return storageClient.startUploadSession(isbn.trim(), subtype, size);
+    }
+
+    @Override
+    protected Integer getSuccessStatusCode(UploadSessionRequest input, UploadSessionResponse output) {
+        return HttpURLConnection.HTTP_CREATED;
+    }
+
+}
@@ -0,0 +1,69 @@
+package no.unit.bibs.contents;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import nva.commons.core.JacocoGenerated;
+
+import java.util.Objects;
+
+public class UploadSessionRequest {
+
+    public static final String ISBN = "isbn";
+    public static final String FILE = "file";
+    public static final String SIZE = "size";
+
+    private final String isbn;
+    private final String file;
+    private final Long size;
+
+    /**
+     * Creates a request for uploading one file of a contents document.
+     *
+     * @param isbn isbn of the contents the file belongs to
+     * @param file image_small, image_large, image_original or audio_file
+     * @param size size of the file in bytes, deciding whether it is uploaded in parts
+     */
+    @JsonCreator
+    public UploadSessionRequest(@JsonProperty(ISBN) String isbn,
+                                @JsonProperty(FILE) String file,
+                                @JsonProperty(SIZE) Long size) {
+        this.isbn = isbn;
+        this.file = file;
+        this.size = size;
+    }
+
+    @JsonProperty(ISBN)
+    public String getIsbn() {
+        return isbn;
+    }
+
+    @JsonProperty(FILE)
+    public String getFile() {
+        return file;
+    }
+
+    @JsonProperty(SIZE)
+    public Long getSize() {
+        return size;
+    }
+
+    @JacocoGenerated
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UploadSessionRequest)) {
+            return false;
+        }
+        UploadSessionRequest that = (UploadSessionRequest) o;
+        return Objects.equals(isbn, that.isbn) && Objects.equals(file, that.file) && Objects.equals(size, that.size);
+    }
+
+    @JacocoGenerated
+    @Override
+    public int hashCode() {
+        return Objects.hash(isbn, file, size);
+    }
+
+}
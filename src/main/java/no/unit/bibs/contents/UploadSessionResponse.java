@@ -0,0 +1,139 @@
+package no.unit.bibs.contents;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import nva.commons.core.JacocoGenerated;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Where and how a client uploads a file straight to S3. Files up to {@link S3Connection#PART_SIZE_BYTES} get a
+ * single upload url with the headers to send. Larger files get an upload id with one url per part of part_size
+ * bytes, and the urls completing or aborting the upload. The object key is then given in the contents document.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UploadSessionResponse {
+
+    public static final String OBJECT_KEY = "object_key";
+    public static final String UPLOAD_URL = "upload_url";
+    public static final String HEADERS = "headers";
+    public static final String UPLOAD_ID = "upload_id";
+    public static final String PART_SIZE = "part_size";
+    public static final String PART_URLS = "part_urls";
+    public static final String COMPLETE_URL = "complete_url";
+    public static final String ABORT_URL = "abort_url";
+    public static final String EXPIRES = "expires";
+
+    private final String objectKey;
+    private final String uploadUrl;
+    private final Map<String, String> headers;
+    private final String uploadId;
+    private final Integer partSize;
+    private final List<String> partUrls;
+    private final String completeUrl;
+    private final String abortUrl;
+    private final Instant expires;
+
+    /**
+     * Creates an UploadSessionResponse with given properties.
+     */
+    @JsonCreator
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    public UploadSessionResponse(@JsonProperty(OBJECT_KEY) String objectKey,
+                                 @JsonProperty(UPLOAD_URL) String uploadUrl,
+                                 @JsonProperty(HEADERS) Map<String, String> headers,
+                                 @JsonProperty(UPLOAD_ID) String uploadId,
+                                 @JsonProperty(PART_SIZE) Integer partSize,
+                                 @JsonProperty(PART_URLS) List<String> partUrls,
+                                 @JsonProperty(COMPLETE_URL) String completeUrl,
+                                 @JsonProperty(ABORT_URL) String abortUrl,
+                                 @JsonProperty(EXPIRES) Instant expires) {
+        this.objectKey = objectKey;
+        this.uploadUrl = uploadUrl;
+        this.headers = headers;
+        this.uploadId = uploadId;
+        this.partSize = partSize;
+        this.partUrls = partUrls;
+        this.completeUrl = completeUrl;
+        this.abortUrl = abortUrl;
+        this.expires = expires;
+    }
+
+    @JsonProperty(OBJECT_KEY)
+    public String getObjectKey() {
+        return objectKey;
+    }
+
+    @JsonProperty(UPLOAD_URL)
+    public String getUploadUrl() {
+        return uploadUrl;
+    }
+
+    @JsonProperty(HEADERS)
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @JsonProperty(UPLOAD_ID)
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    @JsonProperty(PART_SIZE)
+    public Integer getPartSize() {
+        return partSize;
+    }
+
+    @JsonProperty(PART_URLS)
+    public List<String> getPartUrls() {
+        return partUrls;
+    }
+
+    @JsonProperty(COMPLETE_URL)
+    public String getCompleteUrl() {
+        return completeUrl;
+    }
+
+    @JsonProperty(ABORT_URL)
+    public String getAbortUrl() {
+        return abortUrl;
+    }
+
+    @JsonProperty(EXPIRES)
+    public Instant getExpires() {
+        return expires;
+    }
+
+    @JacocoGenerated
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UploadSessionResponse)) {
+            return false;
+        }
+        UploadSessionResponse that = (UploadSessionResponse) o;
+        return Objects.equals(objectKey, that.objectKey)
+                && Objects.equals(uploadUrl, that.uploadUrl)
+                && Objects.equals(headers, that.headers)
+                && Objects.equals(uploadId, that.uploadId)
+                && Objects.equals(partSize, that.partSize)
+                && Objects.equals(partUrls, that.partUrls)
+                && Objects.equals(completeUrl, that.completeUrl)
+                && Objects.equals(abortUrl, that.abortUrl)
+                && Objects.equals(expires, that.expires);
+    }
+
+    @JacocoGenerated
+    @Override
+    public int hashCode() {
+        return Objects.hash(objectKey, uploadUrl, headers, uploadId, partSize, partUrls, completeUrl, abortUrl,
+                expires);
+    }
+
+}
@@ -0,0 +1,33 @@
+package no.unit.bibs.contents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import java.time.Instant;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class AbortIncompleteUploadsHandlerTest {
+
+    @Test
+    void handlerAbortsUploadsStartedMoreThanADayAgo() {
+        S3Connection s3Connection = mock(S3Connection.class);
+        when(s3Connection.abortMultipartUploadsInitiatedBefore(any(Instant.class))).thenReturn(3);
+        Instant before = Instant.now().minus(AbortIncompleteUploadsHandler.ABANDONED_UPLOAD_AGE);
+
+        Integer aborted = new AbortIncompleteUploadsHandler(s3Connection).handleRequest(Map.of(),
+                mock(Context.class));
+
+        assertEquals(3, aborted);
+        ArgumentCaptor<Instant> initiatedBefore = ArgumentCaptor.forClass(Instant.class);
+        verify(s3Connection).abortMultipartUploadsInitiatedBefore(initiatedBefore.capture());
+        assertTrue(!initiatedBefore.getValue().isBefore(before)
+                && initiatedBefore.getValue().isBefore(Instant.now().minus(S3Connection.UPLOAD_URL_EXPIRY)));
+    }
+}
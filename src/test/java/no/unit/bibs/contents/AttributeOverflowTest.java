@@ -0,0 +1,155 @@
+package no.unit.bibs.contents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+public class AttributeOverflowTest {
+
+    public static final String ISBN = "9788205377547";
+    public static final String TEXT = "Kapittel 1 Kapittel 2 Kapittel 3 ".repeat(10);
+
+    private InMemoryS3Connection s3Connection;
+    private AttributeOverflow overflow;
+
+    @BeforeEach
+    public void init() {
+        s3Connection = new InMemoryS3Connection();
+        overflow = new AttributeOverflow(s3Connection, 100);
+    }
+
+    @Test
+    public void offloadKeepsValuesUpToTheOverflowSize() {
+        AttributeValue value = AttributeValue.builder().s("x".repeat(100)).build();
+
+        assertSame(value, overflow.offload(ISBN, ContentsDocument.REVIEW, value));
+        assertTrue(s3Connection.objects.isEmpty());
+    }
+
+    @Test
+    public void offloadStoresLargerValuesInS3AndReturnsPointer() {
+        AttributeValue pointer = overflow.offload(ISBN, ContentsDocument.REVIEW, text());
+
+        assertTrue(AttributeOverflow.isPointer(pointer));
+        String objectKey = pointer.m().get(AttributeOverflow.POINTER_KEY).s();
+        String digest = pointer.m().get(AttributeOverflow.POINTER_SHA256).s();
+        assertEquals(DigestHelper.sha256Hex(TEXT), digest);
+        assertEquals(String.format(AttributeOverflow.OBJECT_KEY_TEMPLATE, ISBN, ContentsDocument.REVIEW, digest),
+                objectKey);
+        assertEquals(Integer.toString(TEXT.length()), pointer.m().get(AttributeOverflow.POINTER_SIZE).n());
+        assertEquals(TEXT, new String(s3Connection.objects.get(objectKey), StandardCharsets.UTF_8));
+        assertSame(pointer, overflow.offload(ISBN, ContentsDocument.REVIEW, pointer));
+    }
+
+    @Test
+    public void offloadMeasuresCompressedValuesAsStored() {
+        AttributeValue compressed = TextAttributeCodec.encode(TextAttributeCodecTest.LONG_TEXT);
+        AttributeValue pointer = new AttributeOverflow(s3Connection, 10).offload(ISBN, ContentsDocument.REVIEW,
+                compressed);
+
+        assertSame(compressed, new AttributeOverflow(s3Connection, 1000).offload(ISBN, ContentsDocument.REVIEW,
+                compressed));
+        assertEquals(TextAttributeCodecTest.LONG_TEXT, overflow.resolve(
+                Map.of(ContentsDocument.REVIEW, pointer)).get(ContentsDocument.REVIEW).s());
+    }
+
+    @Test
+    public void resolveReadsPointersFromS3AndLeavesOtherValues() {
+        AttributeValue title = AttributeValue.builder().s("title").build();
+        AttributeValue pointer = overflow.offload(ISBN, ContentsDocument.REVIEW, text());
+
+        Map<String, AttributeValue> resolved = overflow.resolve(
+                Map.of(ContentsDocument.TITLE, title, ContentsDocument.REVIEW, pointer));
+
+        assertSame(title, resolved.get(ContentsDocument.TITLE));
+        assertEquals(TEXT, resolved.get(ContentsDocument.REVIEW).s());
+        assertEquals(1, s3Connection.reads.get());
+    }
+
+    @Test
+    public void deleteReplacedDeletesTextsNoLongerPointedTo() {
+        AttributeValue kept = overflow.offload(ISBN, ContentsDocument.REVIEW, text());
+        AttributeValue replaced = overflow.offload(ISBN, ContentsDocument.SUMMARY, text());
+        AttributeValue removed = overflow.offload(ISBN, ContentsDocument.DESCRIPTION_LONG, text());
+        AttributeValue summary = overflow.offload(ISBN, ContentsDocument.SUMMARY,
+                AttributeValue.builder().s(TEXT + TEXT).build());
+
+        overflow.deleteReplaced(Map.of(ContentsDocument.REVIEW, kept, ContentsDocument.SUMMARY, replaced,
+                        ContentsDocument.DESCRIPTION_LONG, removed, ContentsDocument.TITLE, text()),
+                Map.of(ContentsDocument.REVIEW, kept, ContentsDocument.SUMMARY, summary));
+
+        assertEquals(Set.of(replaced.m().get(AttributeOverflow.POINTER_KEY).s(),
+                removed.m().get(AttributeOverflow.POINTER_KEY).s()), s3Connection.deleted);
+        assertTrue(s3Connection.objects.containsKey(kept.m().get(AttributeOverflow.POINTER_KEY).s()));
+    }
+
+    @Test
+    public void resolveReturnsItemWithoutPointersAsItIs() {
+        Map<String, AttributeValue> item = Map.of(ContentsDocument.TITLE, AttributeValue.builder().s("title").build());
+
+        assertSame(item, overflow.resolve(item));
+    }
+
+    @Test
+    public void resolveThrowsWhenOverflowedTextIsMissingOrChanged() {
+        AttributeValue pointer = overflow.offload(ISBN, ContentsDocument.REVIEW, text());
+        Map<String, AttributeValue> item = Map.of(ContentsDocument.REVIEW, pointer);
+        String objectKey = pointer.m().get(AttributeOverflow.POINTER_KEY).s();
+
+        s3Connection.objects.put(objectKey, "changed".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalStateException.class, () -> overflow.resolve(item));
+        s3Connection.objects.remove(objectKey);
+        assertThrows(IllegalStateException.class, () -> overflow.resolve(item));
+    }
+
+    @Test
+    public void isPointerIsFalseForOtherValues() {
+        assertFalse(AttributeOverflow.isPointer(null));
+        assertFalse(AttributeOverflow.isPointer(AttributeValue.builder().s(TEXT).build()));
+        assertFalse(AttributeOverflow.isPointer(AttributeValue.builder().m(Map.of()).build()));
+    }
+
+    private static AttributeValue text() {
+        return AttributeValue.builder().s(TEXT).build();
+    }
+
+    private static class InMemoryS3Connection extends S3Connection {
+
+        private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        private final AtomicInteger reads = new AtomicInteger();
+        private final Set<String> deleted = ConcurrentHashMap.newKeySet();
+
+        InMemoryS3Connection() {
+            super(null, null, "bucketname");
+        }
+
+        @Override
+        protected void uploadFile(byte[] bytesArray, String objectName, String filename, String mimeType) {
+            objects.put(objectName, bytesArray);
+        }
+
+        @Override
+        protected Optional<byte[]> readObject(String objectName, int maxBytes) {
+            reads.incrementAndGet();
+            return Optional.ofNullable(objects.get(objectName));
+        }
+
+        @Override
+        protected void deleteObject(String objectName) {
+            objects.remove(objectName);
+            deleted.add(objectName);
+        }
+    }
+}
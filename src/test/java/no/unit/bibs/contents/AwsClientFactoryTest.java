@@ -0,0 +1,50 @@
+package no.unit.bibs.contents;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import nva.commons.core.Environment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+public class AwsClientFactoryTest {
+
+    public static final String REGION = "eu-west-1";
+    public static final String LOCAL_DYNAMODB = "http://localhost:8000";
+    private Environment environment;
+
+    /**
+     * javadoc for checkstyle.
+     */
+    @BeforeEach
+    public void init() {
+        environment = mock(Environment.class);
+        when(environment.readEnv(AwsClientFactory.AWS_REGION)).thenReturn(REGION);
+        when(environment.readEnvOpt(AwsClientFactory.DYNAMODB_ENDPOINT)).thenReturn(Optional.of(LOCAL_DYNAMODB));
+    }
+
+    @Test
+    public void dynamoDbClientIsBuiltOnceAndShared() {
+        DynamoDbClient client = AwsClientFactory.dynamoDbClient(environment);
+        assertSame(client, AwsClientFactory.dynamoDbClient(mock(Environment.class)));
+    }
+
+    @Test
+    public void dynamoDbAsyncClientIsBuiltOnceAndShared() {
+        DynamoDbAsyncClient client = AwsClientFactory.dynamoDbAsyncClient(environment);
+        assertSame(client, AwsClientFactory.dynamoDbAsyncClient(mock(Environment.class)));
+    }
+
+    @Test
+    public void s3ClientsAreBuiltOnceAndShared() {
+        assertSame(AwsClientFactory.s3Client(environment), AwsClientFactory.s3Client(mock(Environment.class)));
+        assertSame(AwsClientFactory.s3Presigner(environment), AwsClientFactory.s3Presigner(mock(Environment.class)));
+        assertSame(AwsClientFactory.s3AsyncClient(environment),
+                AwsClientFactory.s3AsyncClient(mock(Environment.class)));
+    }
+
+}
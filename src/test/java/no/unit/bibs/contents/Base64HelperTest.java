@@ -0,0 +1,34 @@
+package no.unit.bibs.contents;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class Base64HelperTest {
+
+    @Test
+    public void decodeReturnsSameBytesAsJavaDecoderForAllPaddings() {
+        for (String text : new String[]{"Pelsjegerliv", "Pelsjegerliv!", "Pelsjegerliv!!", "Ø"}) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            String encoded = Base64.getEncoder().encodeToString(bytes);
+            assertArrayEquals(bytes, Base64Helper.decode(encoded).orElseThrow());
+        }
+    }
+
+    @Test
+    public void decodeReturnsEmptyForInputThatIsNotBase64() {
+        assertFalse(Base64Helper.decode(null).isPresent());
+        assertFalse(Base64Helper.decode("").isPresent());
+        assertFalse(Base64Helper.decode("abc").isPresent());
+        assertFalse(Base64Helper.decode("https://example.com/cover.jpg").isPresent());
+        assertFalse(Base64Helper.decode("ab==cdef").isPresent());
+        assertFalse(Base64Helper.decode("a===").isPresent());
+        assertFalse(Base64Helper.decode("not a file").isPresent());
+        assertFalse(Base64Helper.decode("gøy=").isPresent());
+    }
+
+}
@@ -0,0 +1,200 @@
+package no.unit.bibs.contents;
+
+import static no.unit.bibs.contents.CreateContentsApiHandlerTest.TEST_ISBN;
+import static java.util.Objects.isNull;
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import static nva.commons.apigateway.ApiGatewayHandler.ALLOWED_ORIGIN_ENV;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.net.HttpURLConnection;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import nva.commons.apigateway.RequestInfo;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import nva.commons.apigateway.exceptions.BadRequestException;
+import nva.commons.core.Environment;
+import nva.commons.core.ioutils.IoUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BulkContentsApiHandlerTest {
+
+    public static final String CREATE_CONTENTS_EVENT = "createContentsEvent.json";
+    public static final String INVALID_ISBN = "9788205377548";
+    public static final String OTHER_ISBN = "9788215027227";
+    public static final String THIRD_ISBN = "9788202148684";
+    public static final String ISBN_10 = "820537754";
+    private Environment environment;
+    private DynamoDBClient dynamoDBClient;
+    private StorageClient storageClient;
+    private BulkContentsApiHandler handler;
+
+    /**
+     * javadoc for checkstyle.
+     */
+    @BeforeEach
+    public void init() {
+        environment = mock(Environment.class);
+        when(environment.readEnv(ALLOWED_ORIGIN_ENV)).thenReturn("*");
+        dynamoDBClient = mock(DynamoDBClient.class);
+        storageClient = mock(StorageClient.class);
+        handler = new BulkContentsApiHandler(environment, dynamoDBClient, storageClient);
+    }
+
+    @Test
+    void getSuccessStatusCodeReturnsOK() {
+        Integer statusCode = handler.getSuccessStatusCode(null, null);
+        assertEquals(statusCode, HttpURLConnection.HTTP_OK);
+    }
+
+    @Test
+    void handlerReportsStatusPerIsbn() throws ApiGatewayException, JsonProcessingException {
+        String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
+        ContentsDocument valid = dtoObjectMapper.readValue(contents, ContentsDocument.class);
+        ContentsDocument invalid = new ContentsDocument(null, null, null, INVALID_ISBN, null, null, null, null, null,
+                null, null, null, null, null, null, null, null);
+        when(storageClient.handleFilesAsync(valid)).thenReturn(CompletableFuture.completedFuture(valid));
+        when(dynamoDBClient.createContentsBatch(List.of(valid)))
+                .thenReturn(Map.of(TEST_ISBN, BulkContentsResponse.CREATED));
+
+        BulkContentsResponse response = handler.processInput(new BulkContentsRequest(List.of(valid, invalid)),
+                new RequestInfo(), mock(Context.class));
+
+        assertEquals(BulkContentsResponse.CREATED, response.getStatus().get(TEST_ISBN));
+        assertEquals(BulkContentsResponse.INVALID, response.getStatus().get(INVALID_ISBN));
+        verify(storageClient).handleFilesAsync(valid);
+        verify(storageClient, never()).handleFiles(any());
+    }
+
+    @Test
+    void handlerStartsAllTransfersBeforeWaitingForAny() throws Exception {
+        ContentsDocument first = validDocument(TEST_ISBN);
+        ContentsDocument second = validDocument(OTHER_ISBN);
+        CompletableFuture<ContentsDocument> firstTransfer = new CompletableFuture<>();
+        when(storageClient.handleFilesAsync(first)).thenReturn(firstTransfer);
+        when(storageClient.handleFilesAsync(second)).thenAnswer(invocation -> {
+            firstTransfer.complete(first);
+            return CompletableFuture.completedFuture(second);
+        });
+        when(dynamoDBClient.createContentsBatch(List.of(first, second))).thenReturn(
+                Map.of(TEST_ISBN, BulkContentsResponse.CREATED, OTHER_ISBN, BulkContentsResponse.CREATED));
+
+        BulkContentsResponse response = handler.processInput(new BulkContentsRequest(List.of(first, second)),
+                new RequestInfo(), mock(Context.class));
+
+        assertEquals(Map.of(TEST_ISBN, BulkContentsResponse.CREATED, OTHER_ISBN, BulkContentsResponse.CREATED),
+                response.getStatus());
+    }
+
+    @Test
+    void handlerReportsFailedTransfersPerDocumentAndWritesTheRest() throws Exception {
+        ContentsDocument failing = validDocument(TEST_ISBN);
+        ContentsDocument throwing = validDocument(THIRD_ISBN);
+        ContentsDocument succeeding = validDocument(OTHER_ISBN);
+        when(storageClient.handleFilesAsync(failing))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("download failed")));
+        when(storageClient.handleFilesAsync(throwing)).thenThrow(new IllegalArgumentException("bad base64"));
+        when(storageClient.handleFilesAsync(succeeding)).thenReturn(CompletableFuture.completedFuture(succeeding));
+        when(dynamoDBClient.createContentsBatch(List.of(succeeding)))
+                .thenReturn(Map.of(OTHER_ISBN, BulkContentsResponse.CREATED));
+
+        BulkContentsResponse response = handler.processInput(
+                new BulkContentsRequest(List.of(failing, throwing, succeeding)), new RequestInfo(),
+                mock(Context.class));
+
+        assertEquals(Map.of(TEST_ISBN, BulkContentsResponse.FAILED, THIRD_ISBN, BulkContentsResponse.FAILED,
+                OTHER_ISBN, BulkContentsResponse.CREATED), response.getStatus());
+    }
+
+    @Test
+    void handlerKeepsOneEntryPerSubmittedDocument() throws Exception {
+        ContentsDocument lowerCase = validDocument(ISBN_10 + "x");
+        ContentsDocument repeated = validDocument(ISBN_10 + "X");
+        ContentsDocument withoutIsbn = validDocument(null);
+        when(storageClient.handleFilesAsync(lowerCase)).thenReturn(CompletableFuture.completedFuture(lowerCase));
+        when(dynamoDBClient.createContentsBatch(List.of(lowerCase)))
+                .thenReturn(Map.of(ISBN_10 + "X", BulkContentsResponse.CREATED));
+
+        List<ContentsDocument> contents = Arrays.asList(lowerCase, null, repeated, withoutIsbn);
+        BulkContentsResponse response = handler.processInput(new BulkContentsRequest(contents), new RequestInfo(),
+                mock(Context.class));
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put(ISBN_10 + "X", BulkContentsResponse.CREATED);
+        expected.put("#1", BulkContentsResponse.INVALID);
+        expected.put(ISBN_10 + "X#2", BulkContentsResponse.INVALID);
+        expected.put("#3", BulkContentsResponse.INVALID);
+        assertEquals(expected, response.getStatus());
+        verify(storageClient, never()).handleFilesAsync(repeated);
+    }
+
+    @Test
+    void handlerSkipsBatchWriteWhenNoDocumentIsValid() throws ApiGatewayException {
+        ContentsDocument invalid = new ContentsDocument(null, null, null, INVALID_ISBN, null, null, null, null, null,
+                null, null, null, null, null, null, null, null);
+        BulkContentsResponse response = handler.processInput(new BulkContentsRequest(List.of(invalid)),
+                new RequestInfo(), mock(Context.class));
+        assertEquals(Map.of(INVALID_ISBN, BulkContentsResponse.INVALID), response.getStatus());
+        verify(dynamoDBClient, never()).createContentsBatch(anyList());
+    }
+
+    @Test
+    void handlerReportsTransfersNotDoneWithinTheBudgetAsFailed() throws Exception {
+        when(environment.readEnvOpt(BulkContentsApiHandler.TRANSFER_BUDGET_MILLIS)).thenReturn(Optional.of("50"));
+        BulkContentsApiHandler budgeted = new BulkContentsApiHandler(environment, dynamoDBClient, storageClient);
+        ContentsDocument hanging = validDocument(TEST_ISBN);
+        ContentsDocument succeeding = validDocument(OTHER_ISBN);
+        when(storageClient.handleFilesAsync(hanging)).thenReturn(new CompletableFuture<>());
+        when(storageClient.handleFilesAsync(succeeding)).thenReturn(CompletableFuture.completedFuture(succeeding));
+        when(dynamoDBClient.createContentsBatch(List.of(succeeding)))
+                .thenReturn(Map.of(OTHER_ISBN, BulkContentsResponse.CREATED));
+
+        BulkContentsResponse response = budgeted.processInput(
+                new BulkContentsRequest(List.of(hanging, succeeding)), new RequestInfo(), mock(Context.class));
+
+        assertEquals(Map.of(TEST_ISBN, BulkContentsResponse.FAILED, OTHER_ISBN, BulkContentsResponse.CREATED),
+                response.getStatus());
+    }
+
+    @Test
+    void handlerRejectsMoreContentsThanCanBeWrittenInTime() throws Exception {
+        List<ContentsDocument> contents =
+                Collections.nCopies(BulkContentsApiHandler.MAX_CONTENTS + 1, validDocument(TEST_ISBN));
+
+        assertThrows(BadRequestException.class, () -> handler.processInput(new BulkContentsRequest(contents),
+                new RequestInfo(), mock(Context.class)));
+        verify(storageClient, never()).handleFilesAsync(any());
+    }
+
+    private ContentsDocument validDocument(String isbn) throws JsonProcessingException {
+        String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT))
+                .replace('"' + TEST_ISBN + '"', isNull(isbn) ? "null" : '"' + isbn + '"');
+        return dtoObjectMapper.readValue(contents, ContentsDocument.class);
+    }
+
+    @Test
+    void handlerThrowsExceptionWithEmptyRequest() {
+        Exception exception = assertThrows(BadRequestException.class, () -> {
+            handler.processInput(new BulkContentsRequest(List.of()), new RequestInfo(), mock(Context.class));
+        });
+        assertTrue(exception.getMessage().contains(BulkContentsApiHandler.NO_CONTENTS_GIVEN_TO_HANDLER));
+    }
+
+}
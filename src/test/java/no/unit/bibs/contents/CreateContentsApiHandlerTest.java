@@ -6,16 +6,18 @@ import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.Mockito.anyString;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import java.net.HttpURLConnection;
 import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
+import no.unit.bibs.contents.exception.CommunicationException;
 import nva.commons.apigateway.RequestInfo;
 import nva.commons.apigateway.exceptions.ApiGatewayException;
 import nva.commons.apigateway.exceptions.BadRequestException;
@@ -60,11 +62,27 @@ public class CreateContentsApiHandlerTest {
         var handler = new CreateContentsApiHandler(environment, dynamoDBClient, storageClient);
         String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
         ContentsDocument contentsDocument = dtoObjectMapper.readValue(contents, ContentsDocument.class);
-        doNothing().when(dynamoDBClient).createContents(contentsDocument);
-        when(dynamoDBClient.getContents(anyString())).thenReturn(contents);
+        when(storageClient.handleFilesAsync(contentsDocument))
+                .thenReturn(CompletableFuture.completedFuture(contentsDocument));
+        when(dynamoDBClient.createContentsAsync(contentsDocument))
+                .thenReturn(CompletableFuture.completedFuture(contentsDocument));
         ContentsRequest request = new ContentsRequest(contentsDocument);
         var actual = handler.processInput(request, new RequestInfo(), mock(Context.class));
         assertEquals(contentsDocument, actual);
+        verify(dynamoDBClient, never()).getContents(contentsDocument.getIsbn());
+    }
+
+    @Test
+    void handlerThrowsCommunicationExceptionWhenCreationFails() throws JsonProcessingException {
+        String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
+        ContentsDocument contentsDocument = dtoObjectMapper.readValue(contents, ContentsDocument.class);
+        when(storageClient.handleFilesAsync(contentsDocument))
+                .thenReturn(CompletableFuture.completedFuture(contentsDocument));
+        when(dynamoDBClient.createContentsAsync(contentsDocument)).thenReturn(CompletableFuture.failedFuture(
+                new CommunicationException(DynamoDBClient.CREATION_ERROR, new IllegalStateException())));
+        ContentsRequest request = new ContentsRequest(contentsDocument);
+        assertThrows(CommunicationException.class,
+            () -> handler.processInput(request, new RequestInfo(), mock(Context.class)));
     }
 
     @Test
@@ -72,8 +90,6 @@ public class CreateContentsApiHandlerTest {
         String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
         contents = contents.replace(TEST_ISBN, EMPTY_STRING);
         ContentsDocument contentsDocument = dtoObjectMapper.readValue(contents, ContentsDocument.class);
-        doNothing().when(dynamoDBClient).createContents(contentsDocument);
-        when(dynamoDBClient.getContents(anyString())).thenReturn(contents);
         ContentsRequest request = new ContentsRequest(contentsDocument);
         var handler = new CreateContentsApiHandler(environment, dynamoDBClient, storageClient);
         Exception exception = assertThrows(BadRequestException.class, () -> {
@@ -0,0 +1,32 @@
+package no.unit.bibs.contents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+public class DigestHelperTest {
+
+    @Test
+    public void sha256HexOfEmptyStringIsTheKnownDigest() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", DigestHelper.sha256Hex(""));
+    }
+
+    @Test
+    public void sha256HexOfByteRangeHashesOnlyTheRange() {
+        byte[] bytes = "xabcx".getBytes(StandardCharsets.UTF_8);
+        assertEquals(DigestHelper.sha256Hex("abc"), DigestHelper.sha256Hex(bytes, 1, 3));
+    }
+
+    @Test
+    public void sha256HexHashesUtf8Bytes() {
+        assertEquals("6c228cdba89548a1af198f33819536422fb01b66e51f761cf2ec38d1fb4178a6",
+                DigestHelper.sha256Hex("æøå"));
+    }
+
+    @Test
+    public void toHexWritesTwoDigitsPerByte() {
+        assertEquals("00ff7f80", DigestHelper.toHex(new byte[]{0, -1, 127, -128}));
+    }
+
+}
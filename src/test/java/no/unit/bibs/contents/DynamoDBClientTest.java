@@ -1,37 +1,64 @@
 package no.unit.bibs.contents;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import no.unit.bibs.contents.exception.CommunicationException;
 import nva.commons.apigateway.exceptions.ApiGatewayException;
 import nva.commons.apigateway.exceptions.NotFoundException;
 import nva.commons.core.ioutils.IoUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static no.unit.bibs.contents.DynamoDBClient.DOCUMENT_WITH_ID_WAS_NOT_FOUND;
 import static no.unit.bibs.contents.DynamoDBClient.PRIMARYKEY_ISBN;
 import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DynamoDBClientTest {
@@ -88,8 +115,112 @@ public class DynamoDBClientTest {
         returnedItem.put(PRIMARYKEY_ISBN, AttributeValue.builder().s(SAMPLE_TERM).build());
         when(client.getItem(any(GetItemRequest.class))).thenReturn(getItemResponse);
         when(getItemResponse.item()).thenReturn(returnedItem);
-        String getContentsResponse = dbClient.getContents(SAMPLE_TERM);
-        assertNotNull(getContentsResponse);
+        ContentsDocument getContentsResponse = dbClient.getContents(SAMPLE_TERM);
+        assertEquals(SAMPLE_TERM, getContentsResponse.getIsbn());
+    }
+
+    @Test
+    public void getContentsWithFieldsReadsOnlyThoseAttributes() throws ApiGatewayException {
+        GetItemResponse getItemResponse = mock(GetItemResponse.class);
+        Map<String, AttributeValue> returnedItem = new HashMap<>();
+        returnedItem.put(PRIMARYKEY_ISBN, AttributeValue.builder().s(SAMPLE_TERM).build());
+        returnedItem.put(ContentsDocument.TITLE, AttributeValue.builder().s("title").build());
+        returnedItem.put(ContentsDocument.ETAG, AttributeValue.builder().s("abc").build());
+        returnedItem.put(ContentsDocument.MODIFIED, AttributeValue.builder().s("2022-03-01T10:15:30Z").build());
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(getItemResponse);
+        when(getItemResponse.item()).thenReturn(returnedItem);
+
+        ContentsDocument projected = dbClient.getContents(SAMPLE_TERM,
+                Set.of(ContentsDocument.TITLE, ContentsDocument.SOURCE));
+
+        ArgumentCaptor<GetItemRequest> request = ArgumentCaptor.forClass(GetItemRequest.class);
+        verify(client).getItem(request.capture());
+        assertEquals("#created, #etag, #isbn, #modified, #source, #title, #version",
+                request.getValue().projectionExpression());
+        assertNull(projected.getModified());
+        assertEquals(Instant.parse("2022-03-01T10:15:30Z"), projected.getLastModified());
+        assertEquals(ContentsDocument.SOURCE, request.getValue().expressionAttributeNames().get("#source"));
+        assertEquals("title", projected.getTitle());
+        assertEquals(SAMPLE_TERM, projected.getIsbn());
+        assertTrue(projected.getEtag().startsWith("abc" + DynamoDBClient.PROJECTION_ETAG_SEPARATOR));
+        assertEquals(0, dbClient.getContentsCache().getHitCount());
+    }
+
+    @Test
+    public void getContentsWithFieldsIsProjectedFromCachedContents() throws ApiGatewayException {
+        ContentsDocument document = documentWithIsbn(SAMPLE_TERM);
+        document.setEtag("abc");
+        DynamoDBClient cachedClient = new DynamoDBClient(client, new TieredContentsCache(
+                new LruContentsCache(10, Duration.ofMinutes(1))));
+        cachedClient.getContentsCache().put(SAMPLE_TERM, document);
+
+        ContentsDocument projected = cachedClient.getContents(SAMPLE_TERM, Set.of(ContentsDocument.SOURCE));
+
+        assertEquals(document.getSource(), projected.getSource());
+        assertNull(projected.getTitle());
+        assertNotEquals(document.getEtag(), projected.getEtag());
+        assertEquals(projected.getEtag(),
+                cachedClient.getContents(SAMPLE_TERM, Set.of(ContentsDocument.SOURCE)).getEtag());
+        verify(client, never()).getItem(any(GetItemRequest.class));
+    }
+
+    @Test
+    public void getContentsIsServedFromCacheUntilContentsAreWritten() throws ApiGatewayException, IOException {
+        GetItemResponse getItemResponse = mock(GetItemResponse.class);
+        Map<String, AttributeValue> returnedItem = new HashMap<>();
+        returnedItem.put(PRIMARYKEY_ISBN, AttributeValue.builder().s(SAMPLE_TERM).build());
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(getItemResponse);
+        when(getItemResponse.item()).thenReturn(returnedItem);
+
+        ContentsDocument first = dbClient.getContents(SAMPLE_TERM);
+        assertEquals(first, dbClient.getContents(SAMPLE_TERM));
+        verify(client, times(1)).getItem(any(GetItemRequest.class));
+        assertEquals(1, dbClient.getContentsCache().getHitCount());
+        assertEquals(1, dbClient.getContentsCache().getMissCount());
+
+        dbClient.createContents(documentWithIsbn(SAMPLE_TERM));
+        dbClient.getContents(SAMPLE_TERM);
+        verify(client, times(2)).getItem(any(GetItemRequest.class));
+    }
+
+    @Test
+    public void getContentsWithSecondTierCacheDoesNotReadDynamoDB() throws ApiGatewayException {
+        InMemoryContentsCache secondTier = new InMemoryContentsCache();
+        ContentsDocument document = documentWithIsbn(SAMPLE_TERM);
+        secondTier.put(SAMPLE_TERM, document);
+        DynamoDBClient cachedClient = new DynamoDBClient(client,
+                new TieredContentsCache(new InMemoryContentsCache(), secondTier));
+        assertEquals(document, cachedClient.getContents(SAMPLE_TERM));
+        verify(client, never()).getItem(any(GetItemRequest.class));
+    }
+
+    @Test
+    public void toContentsDocumentMapsLikeTheJsonRoundTrip() throws IOException {
+        String contents = IoUtils.stringFromResources(Path.of(GET_CONTENTS_JSON));
+        Map<String, String> attributes = dtoObjectMapper.readValue(contents, new TypeReference<>() {});
+        attributes.put(ContentsDocument.CREATED, "2022-01-01T10:15:30Z");
+        attributes.put(ContentsDocument.MODIFIED, "2022-02-01T10:15:30.123Z");
+        Map<String, AttributeValue> item = new HashMap<>();
+        attributes.forEach((key, value) -> item.put(key, AttributeValue.builder().s(value).build()));
+        item.put("unknown", AttributeValue.builder().n("1").build());
+
+        ContentsDocument mapped = DynamoDBClient.toContentsDocument(item);
+
+        ContentsDocument roundTripped = dtoObjectMapper.readValue(dtoObjectMapper.writeValueAsString(attributes),
+                ContentsDocument.class);
+        assertEquals(roundTripped.toJsonString(), mapped.toJsonString());
+        assertEquals(Instant.parse("2022-02-01T10:15:30.123Z"), mapped.getModified());
+    }
+
+    @Test
+    public void getContentsThrowsNotFoundExceptionWhenItemHasInvalidTimestamp() {
+        GetItemResponse getItemResponse = mock(GetItemResponse.class);
+        Map<String, AttributeValue> returnedItem = new HashMap<>();
+        returnedItem.put(PRIMARYKEY_ISBN, AttributeValue.builder().s(SAMPLE_TERM).build());
+        returnedItem.put(ContentsDocument.CREATED, AttributeValue.builder().s(SAMPLE_TERM).build());
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(getItemResponse);
+        when(getItemResponse.item()).thenReturn(returnedItem);
+        assertThrows(NotFoundException.class, () -> dbClient.getContents(SAMPLE_TERM));
     }
 
     @Test
@@ -114,19 +245,527 @@ public class DynamoDBClientTest {
         PutItemResponse putItemReponse = mock(PutItemResponse.class);
         when(client.putItem(any(PutItemRequest.class))).thenReturn(putItemReponse);
         when(putItemReponse.hasAttributes()).thenReturn(true);
-        dbClient.createContents(document);
+        ContentsDocument created = dbClient.createContents(document);
+        assertEquals(document.getIsbn(), created.getIsbn());
+        assertEquals(document.getTitle(), created.getTitle());
+        assertNotNull(created.getCreated());
     }
 
     @Test
-    public void testUpdateContents() throws CommunicationException, JsonProcessingException {
+    public void testUpsertContentsSendsSingleUpdateItem() throws IOException, CommunicationException {
         UpdateItemResponse updateItemResponse = mock(UpdateItemResponse.class);
-        when(client.updateItem(any(UpdateItemRequest.class))).thenReturn(updateItemResponse);
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        when(client.updateItem(captor.capture())).thenReturn(updateItemResponse);
         Map<String, AttributeValue> returnedItem = new HashMap<>();
         returnedItem.put(PRIMARYKEY_ISBN, AttributeValue.builder().s(SAMPLE_TERM).build());
         when(updateItemResponse.attributes()).thenReturn(returnedItem);
-        String contents = IoUtils.stringFromResources(Path.of(GET_CONTENTS_JSON));
+        String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
+        ContentsDocument document = dtoObjectMapper.readValue(contents, ContentsDocument.class);
+
+        ContentsDocument upserted = dbClient.upsertContents(document);
+
+        assertEquals(SAMPLE_TERM, upserted.getIsbn());
+        UpdateItemRequest request = captor.getValue();
+        assertEquals(document.getIsbn(), request.key().get(PRIMARYKEY_ISBN).s());
+        assertTrue(request.updateExpression().contains("#created = if_not_exists(#created, :created)"));
+        assertTrue(request.updateExpression().contains("#source = if_not_exists(#source, :source)"));
+        assertTrue(request.updateExpression().contains("#title = :title"));
+        assertTrue(request.expressionAttributeValues().containsKey(":modified"));
+        assertTrue(request.updateExpression().endsWith(" ADD #version :version"));
+        assertEquals("1", request.expressionAttributeValues().get(":" + DynamoDBClient.VERSION).n());
+        verify(client, never()).getItem(any(GetItemRequest.class));
+    }
+
+    @Test
+    public void writesStoreEtagOfTheWrittenValues() throws CommunicationException {
+        ArgumentCaptor<PutItemRequest> putCaptor = ArgumentCaptor.forClass(PutItemRequest.class);
+        when(client.putItem(putCaptor.capture())).thenReturn(mock(PutItemResponse.class));
+        ContentsDocument document = new ContentsDocument("title", null, null, SAMPLE_TERM, "description", null,
+                null, null, null, null, null, null, null, null, "BOKBASE", null, Instant.parse("2022-01-01T00:00:00Z"));
+
+        ContentsDocument created = dbClient.createContents(document);
+        dbClient.createContents(document);
+
+        Map<String, AttributeValue> item = putCaptor.getAllValues().get(0).item();
+        assertEquals(64, item.get(ContentsDocument.ETAG).s().length());
+        assertEquals(item.get(ContentsDocument.ETAG).s(), created.getEtag());
+        Map<String, AttributeValue> sameItem = putCaptor.getAllValues().get(1).item();
+        assertEquals(item.get(ContentsDocument.ETAG), sameItem.get(ContentsDocument.ETAG));
+
+        UpdateItemRequest upsert = dbClient.createUpsertRequest(document);
+        AttributeValue upsertEtag = upsert.expressionAttributeValues().get(":" + ContentsDocument.ETAG);
+        assertNotNull(upsertEtag);
+        assertNotEquals(item.get(ContentsDocument.ETAG), upsertEtag);
+    }
+
+    @Test
+    public void etagOfUpdatedItemIsCombinedWithItsVersion() throws NotFoundException {
+        AttributeValue etag = AttributeValue.builder().s("abc").build();
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(
+                GetItemResponse.builder().item(Map.of(PRIMARYKEY_ISBN, AttributeValue.builder().s("1").build(),
+                        ContentsDocument.ETAG, etag)).build(),
+                GetItemResponse.builder().item(Map.of(PRIMARYKEY_ISBN, AttributeValue.builder().s("2").build(),
+                        ContentsDocument.ETAG, etag, DynamoDBClient.VERSION, version(1))).build(),
+                GetItemResponse.builder().item(Map.of(PRIMARYKEY_ISBN, AttributeValue.builder().s("3").build(),
+                        ContentsDocument.ETAG, etag, DynamoDBClient.VERSION, version(2))).build());
+
+        String put = dbClient.getContents("1").getEtag();
+        String firstUpdate = dbClient.getContents("2").getEtag();
+        String secondUpdate = dbClient.getContents("3").getEtag();
+
+        assertEquals("abc", put);
+        assertNotEquals(put, firstUpdate);
+        assertNotEquals(firstUpdate, secondUpdate);
+    }
+
+    @Test
+    public void upsertAnswersWithTheEtagTheItemIsReadWith() throws CommunicationException, NotFoundException {
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        when(client.updateItem(captor.capture())).thenReturn(UpdateItemResponse.builder()
+                .attributes(Map.of(DynamoDBClient.VERSION, version(4)))
+                .build());
+
+        ContentsDocument upserted = dbClient.upsertContents(documentWithIsbn(SAMPLE_TERM));
+
+        Map<String, AttributeValue> item = new HashMap<>();
+        captor.getValue().expressionAttributeValues().forEach((name, value) -> item.put(name.substring(1), value));
+        item.put(PRIMARYKEY_ISBN, captor.getValue().key().get(PRIMARYKEY_ISBN));
+        item.put(DynamoDBClient.VERSION, version(5));
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().item(item).build());
+        assertEquals(dbClient.getContents(SAMPLE_TERM).getEtag(), upserted.getEtag());
+    }
+
+    @Test
+    public void createContentsAsyncPutsItemWithAsyncClient() throws IOException {
+        DynamoDbAsyncClient asyncClient = mock(DynamoDbAsyncClient.class);
+        when(asyncClient.putItem(any(PutItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutItemResponse.builder().build()));
+        DynamoDBClient asyncDbClient = new DynamoDBClient(client, asyncClient, new TieredContentsCache(
+                new LruContentsCache(DynamoDBClient.DEFAULT_CACHE_MAX_ENTRIES, Duration.ofMinutes(1))));
+        String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
+        ContentsDocument document = dtoObjectMapper.readValue(contents, ContentsDocument.class);
+
+        ContentsDocument created = asyncDbClient.createContentsAsync(document).join();
+
+        assertEquals(document.getIsbn(), created.getIsbn());
+        assertNotNull(created.getEtag());
+        verify(client, never()).putItem(any(PutItemRequest.class));
+    }
+
+    @Test
+    public void upsertContentsAsyncCompletesWithCommunicationExceptionAndInvalidatesCache() throws IOException {
+        DynamoDbAsyncClient asyncClient = mock(DynamoDbAsyncClient.class);
+        when(asyncClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("unavailable")));
+        TieredContentsCache cache = new TieredContentsCache(
+                new LruContentsCache(DynamoDBClient.DEFAULT_CACHE_MAX_ENTRIES, Duration.ofMinutes(1)));
+        DynamoDBClient asyncDbClient = new DynamoDBClient(client, asyncClient, cache);
+        String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
+        ContentsDocument document = dtoObjectMapper.readValue(contents, ContentsDocument.class);
+        cache.put(document.getIsbn(), document);
+
+        CompletableFuture<ContentsDocument> upserted = asyncDbClient.upsertContentsAsync(document);
+
+        CompletionException exception = assertThrows(CompletionException.class, upserted::join);
+        assertTrue(exception.getCause() instanceof CommunicationException);
+        assertTrue(exception.getCause().getMessage().startsWith(DynamoDBClient.UPSERT_ERROR));
+        assertTrue(cache.get(document.getIsbn()).isEmpty());
+    }
+
+    @Test
+    public void asyncWritesWithoutAsyncClientUseTheSyncClient() throws IOException {
+        UpdateItemResponse updateItemResponse = mock(UpdateItemResponse.class);
+        when(client.updateItem(any(UpdateItemRequest.class))).thenReturn(updateItemResponse);
+        when(updateItemResponse.attributes())
+                .thenReturn(Map.of(PRIMARYKEY_ISBN, AttributeValue.builder().s(SAMPLE_TERM).build()));
+        when(client.putItem(any(PutItemRequest.class))).thenThrow(IllegalArgumentException.class);
+        String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
+        ContentsDocument document = dtoObjectMapper.readValue(contents, ContentsDocument.class);
+
+        assertEquals(SAMPLE_TERM, dbClient.upsertContentsAsync(document).join().getIsbn());
+        CompletionException exception =
+                assertThrows(CompletionException.class, () -> dbClient.createContentsAsync(document).join());
+        assertTrue(exception.getCause() instanceof CommunicationException);
+    }
+
+    @Test
+    public void testUpsertContentsThrowsCommunicationException() throws IOException {
+        when(client.updateItem(any(UpdateItemRequest.class))).thenThrow(IllegalArgumentException.class);
+        String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
         ContentsDocument document = dtoObjectMapper.readValue(contents, ContentsDocument.class);
-        dbClient.updateContents(document);
+        assertThrows(CommunicationException.class, () -> dbClient.upsertContents(document));
+    }
+
+    @Test
+    public void createContentsBatchUpsertsEachItemKeepingCreated() {
+        List<ContentsDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            documents.add(documentWithIsbn("97882053775" + (10 + i)));
+        }
+        documents.add(documentWithIsbn("9788205377510"));
+        List<UpdateItemRequest> requests = new CopyOnWriteArrayList<>();
+        when(client.updateItem(any(UpdateItemRequest.class))).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(0));
+            return UpdateItemResponse.builder().build();
+        });
+
+        Map<String, String> status = dbClient.createContentsBatch(documents);
+
+        assertEquals(30, status.size());
+        assertTrue(status.values().stream().allMatch(BulkContentsResponse.CREATED::equals));
+        assertEquals(30, requests.size());
+        UpdateItemRequest request = requests.get(0);
+        assertTrue(request.updateExpression().contains("#created = if_not_exists(#created, :created)"));
+        assertTrue(request.expressionAttributeValues().containsKey(":" + ContentsDocument.MODIFIED));
+        assertEquals(ReturnValue.ALL_OLD, request.returnValues());
+    }
+
+    @Test
+    public void createContentsBatchReportsFailedAndOversizedItemsOnTheirOwn() {
+        ContentsDocument failing = documentWithIsbn("9788205377510");
+        ContentsDocument oversized = new ContentsDocument("x".repeat(DynamoDBClient.MAX_ITEM_BYTES), null, null,
+                "9788205377511", null, null, null, null, null, null, null, null, null, null, "BOKBASE", null, null);
+        ContentsDocument written = documentWithIsbn("9788205377512");
+        when(client.updateItem(any(UpdateItemRequest.class))).thenAnswer(invocation -> {
+            UpdateItemRequest request = invocation.getArgument(0);
+            if ("9788205377510".equals(request.key().get(PRIMARYKEY_ISBN).s())) {
+                throw DynamoDbException.builder().message("invalid").build();
+            }
+            return UpdateItemResponse.builder().build();
+        });
+
+        Map<String, String> status = dbClient.createContentsBatch(List.of(failing, oversized, written));
+
+        assertEquals(BulkContentsResponse.FAILED, status.get("9788205377510"));
+        assertEquals(BulkContentsResponse.FAILED, status.get("9788205377511"));
+        assertEquals(BulkContentsResponse.CREATED, status.get("9788205377512"));
+        verify(client, times(2)).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    public void getContentsBatchReadsChunksAndLeavesOutMisses() throws CommunicationException {
+        List<String> isbns = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            isbns.add("9788205377" + (100 + i));
+        }
+        String missing = isbns.get(120);
+        AtomicInteger calls = new AtomicInteger();
+        when(client.batchGetItem(any(BatchGetItemRequest.class))).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            BatchGetItemRequest request = invocation.getArgument(0);
+            List<Map<String, AttributeValue>> items = new ArrayList<>();
+            request.requestItems().values().iterator().next().keys().stream()
+                    .filter(key -> !missing.equals(key.get(PRIMARYKEY_ISBN).s()))
+                    .forEach(key -> items.add(new HashMap<>(key)));
+            return batchGetItemResponse(items, new HashMap<>());
+        });
+
+        Map<String, ContentsDocument> contents = dbClient.getContentsBatch(isbns);
+
+        assertEquals(149, contents.size());
+        assertFalse(contents.containsKey(missing));
+        assertEquals(isbns.get(0), contents.get(isbns.get(0)).getIsbn());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void getContentsBatchRetriesUnprocessedKeys() throws CommunicationException {
+        Map<String, AttributeValue> first = Map.of(PRIMARYKEY_ISBN, AttributeValue.builder().s(SAMPLE_TERM).build());
+        Map<String, AttributeValue> second = Map.of(PRIMARYKEY_ISBN, AttributeValue.builder().s("other").build());
+        Map<String, KeysAndAttributes> unprocessed = new HashMap<>();
+        unprocessed.put(null, KeysAndAttributes.builder().keys(List.of(second)).build());
+        BatchGetItemResponse partlyProcessed = batchGetItemResponse(List.of(first), unprocessed);
+        BatchGetItemResponse processed = batchGetItemResponse(List.of(second), new HashMap<>());
+        when(client.batchGetItem(any(BatchGetItemRequest.class))).thenReturn(partlyProcessed, processed);
+
+        Map<String, ContentsDocument> contents = dbClient.getContentsBatch(List.of(SAMPLE_TERM, "other", "other"));
+
+        assertEquals(2, contents.size());
+        verify(client, times(2)).batchGetItem(any(BatchGetItemRequest.class));
+    }
+
+    @Test
+    public void getContentsBatchThrowsCommunicationExceptionWhenReadFails() {
+        when(client.batchGetItem(any(BatchGetItemRequest.class))).thenThrow(IllegalArgumentException.class);
+        assertThrows(CommunicationException.class, () -> dbClient.getContentsBatch(List.of(SAMPLE_TERM)));
+    }
+
+    @Test
+    public void writesCompressLongTextsAndReadsThemBack() throws CommunicationException {
+        ArgumentCaptor<PutItemRequest> putCaptor = ArgumentCaptor.forClass(PutItemRequest.class);
+        when(client.putItem(putCaptor.capture())).thenReturn(mock(PutItemResponse.class));
+        ContentsDocument document = documentWithLongTexts();
+
+        ContentsDocument created = dbClient.createContents(document);
+
+        Map<String, AttributeValue> item = putCaptor.getValue().item();
+        assertNotNull(item.get(ContentsDocument.DESCRIPTION_LONG).b());
+        assertNotNull(item.get(ContentsDocument.REVIEW).b());
+        assertEquals("short", item.get(ContentsDocument.SUMMARY).s());
+        assertNotNull(item.get(ContentsDocument.TITLE).s());
+        assertEquals(TextAttributeCodecTest.LONG_TEXT, created.getDescriptionLong());
+        assertEquals(TextAttributeCodecTest.LONG_TEXT, created.getReview());
+
+        UpdateItemRequest upsert = dbClient.createUpsertRequest(document);
+        assertNotNull(upsert.expressionAttributeValues().get(":" + ContentsDocument.DESCRIPTION_LONG).b());
+    }
+
+    @Test
+    public void etagDoesNotDependOnCompression() {
+        Map<String, AttributeValue> item = dbClient.generateItemMap(documentWithLongTexts());
+        Map<String, AttributeValue> uncompressed = new HashMap<>();
+        item.forEach((attribute, value) ->
+                uncompressed.put(attribute, AttributeValue.builder().s(TextAttributeCodec.decode(value)).build()));
+
+        assertEquals(item.get(ContentsDocument.ETAG), DynamoDBClient.etagOf(uncompressed));
+    }
+
+    @Test
+    public void getContentsReadsUncompressedAndCompressedItems() throws NotFoundException {
+        Map<String, AttributeValue> compressed = dbClient.generateItemMap(documentWithLongTexts());
+        Map<String, AttributeValue> uncompressed = new HashMap<>();
+        compressed.forEach((attribute, value) ->
+                uncompressed.put(attribute, AttributeValue.builder().s(TextAttributeCodec.decode(value)).build()));
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(
+                GetItemResponse.builder().item(uncompressed).build(),
+                GetItemResponse.builder().item(compressed).build());
+
+        ContentsDocument fromUncompressed = dbClient.getContents(SAMPLE_TERM);
+        dbClient.getContentsCache().invalidate(SAMPLE_TERM);
+        ContentsDocument fromCompressed = dbClient.getContents(SAMPLE_TERM);
+
+        assertEquals(TextAttributeCodecTest.LONG_TEXT, fromUncompressed.getDescriptionLong());
+        assertEquals(TextAttributeCodecTest.LONG_TEXT, fromCompressed.getDescriptionLong());
+        assertEquals(fromUncompressed.getReview(), fromCompressed.getReview());
+        assertEquals(fromUncompressed.getEtag(), fromCompressed.getEtag());
+    }
+
+    @Test
+    public void writesMoveOversizedTextsToS3() throws CommunicationException, IOException {
+        S3Connection s3Connection = mock(S3Connection.class);
+        DynamoDBClient overflowingClient = overflowingClient(s3Connection);
+        ArgumentCaptor<PutItemRequest> putCaptor = ArgumentCaptor.forClass(PutItemRequest.class);
+        when(client.putItem(putCaptor.capture())).thenReturn(mock(PutItemResponse.class));
+        ArgumentCaptor<UpdateItemRequest> updateCaptor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        when(client.updateItem(updateCaptor.capture())).thenAnswer(invocation -> UpdateItemResponse.builder()
+                .attributes(updateCaptor.getValue().expressionAttributeValues().entrySet().stream()
+                        .collect(Collectors.toMap(value -> value.getKey().substring(1),
+                                Map.Entry::getValue)))
+                .build());
+
+        ContentsDocument created = overflowingClient.createContents(documentWithLongTexts());
+        ContentsDocument upserted = overflowingClient.upsertContents(documentWithLongTexts());
+
+        Map<String, AttributeValue> item = putCaptor.getValue().item();
+        assertTrue(AttributeOverflow.isPointer(item.get(ContentsDocument.REVIEW)));
+        assertTrue(AttributeOverflow.isPointer(item.get(ContentsDocument.DESCRIPTION_LONG)));
+        assertEquals("short", item.get(ContentsDocument.SUMMARY).s());
+        assertEquals(DynamoDBClient.etagOf(dbClient.generateItemMap(documentWithLongTexts())),
+                item.get(ContentsDocument.ETAG));
+        assertTrue(AttributeOverflow.isPointer(
+                updateCaptor.getValue().expressionAttributeValues().get(":" + ContentsDocument.REVIEW)));
+        assertEquals(TextAttributeCodecTest.LONG_TEXT, created.getReview());
+        assertEquals(TextAttributeCodecTest.LONG_TEXT, upserted.getReview());
+        verify(s3Connection, times(4)).uploadFile(any(), any(), any(), any());
+        verify(s3Connection, never()).readObject(any(), anyInt());
+    }
+
+    @Test
+    public void upsertDeletesReplacedTextsAndAnswersWithoutReadingS3() throws Exception {
+        S3Connection s3Connection = mock(S3Connection.class);
+        DynamoDBClient overflowingClient = overflowingClient(s3Connection);
+        AttributeValue review = pointer("attributes/" + SAMPLE_TERM + "/review/old.txt");
+        AttributeValue descriptionLong = pointer("attributes/" + SAMPLE_TERM + "/description_long/kept.txt");
+        Map<String, AttributeValue> previous = Map.of(PRIMARYKEY_ISBN, AttributeValue.builder().s(SAMPLE_TERM).build(),
+                ContentsDocument.REVIEW, review, ContentsDocument.DESCRIPTION_LONG, descriptionLong,
+                ContentsDocument.CREATED, AttributeValue.builder().s("2021-01-01T00:00:00Z").build());
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        when(client.updateItem(captor.capture())).thenReturn(UpdateItemResponse.builder().attributes(previous).build());
+        ContentsDocument document = new ContentsDocument("title", null, null, SAMPLE_TERM, null, null, null, null,
+                null, TextAttributeCodecTest.LONG_TEXT, null, null, null, null, "BOKBASE", null, null);
+
+        ContentsDocument upserted = overflowingClient.upsertContents(document);
+
+        assertEquals(ReturnValue.ALL_OLD, captor.getValue().returnValues());
+        assertEquals(TextAttributeCodecTest.LONG_TEXT, upserted.getReview());
+        assertNull(upserted.getDescriptionLong());
+        assertEquals("title", upserted.getTitle());
+        assertEquals(Instant.parse("2021-01-01T00:00:00Z"), upserted.getCreated());
+        verify(s3Connection).deleteObject(review.m().get(AttributeOverflow.POINTER_KEY).s());
+        verify(s3Connection, times(1)).deleteObject(any());
+        verify(s3Connection, never()).readObject(any(), anyInt());
+    }
+
+    @Test
+    public void createDeletesTextsTheReplacedItemHadInS3() throws CommunicationException {
+        S3Connection s3Connection = mock(S3Connection.class);
+        DynamoDBClient overflowingClient = overflowingClient(s3Connection);
+        AttributeValue summary = pointer("attributes/" + SAMPLE_TERM + "/summary/old.txt");
+        ArgumentCaptor<PutItemRequest> captor = ArgumentCaptor.forClass(PutItemRequest.class);
+        when(client.putItem(captor.capture())).thenReturn(PutItemResponse.builder()
+                .attributes(Map.of(ContentsDocument.SUMMARY, summary))
+                .build());
+
+        overflowingClient.createContents(documentWithIsbn(SAMPLE_TERM));
+
+        assertEquals(ReturnValue.ALL_OLD, captor.getValue().returnValues());
+        verify(s3Connection).deleteObject(summary.m().get(AttributeOverflow.POINTER_KEY).s());
+    }
+
+    @Test
+    public void getContentsResolvesOverflowedTextsOnlyWhenTheyAreRead() throws Exception {
+        S3Connection s3Connection = mock(S3Connection.class);
+        DynamoDBClient overflowingClient = overflowingClient(s3Connection);
+        ArgumentCaptor<PutItemRequest> putCaptor = ArgumentCaptor.forClass(PutItemRequest.class);
+        when(client.putItem(putCaptor.capture())).thenReturn(mock(PutItemResponse.class));
+        overflowingClient.createContents(documentWithLongTexts());
+        Map<String, AttributeValue> item = putCaptor.getValue().item();
+        Map<String, AttributeValue> projected = Map.of(PRIMARYKEY_ISBN, item.get(PRIMARYKEY_ISBN),
+                ContentsDocument.TITLE, item.get(ContentsDocument.TITLE));
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(
+                GetItemResponse.builder().item(projected).build(),
+                GetItemResponse.builder().item(item).build());
+        byte[] text = TextAttributeCodecTest.LONG_TEXT.getBytes(StandardCharsets.UTF_8);
+        when(s3Connection.readObject(any(), anyInt())).thenReturn(Optional.of(text));
+
+        ContentsDocument title = overflowingClient.getContents(SAMPLE_TERM, Set.of(ContentsDocument.TITLE));
+        verify(s3Connection, never()).readObject(any(), anyInt());
+        ContentsDocument contents = overflowingClient.getContents(SAMPLE_TERM);
+
+        assertNull(title.getReview());
+        assertEquals(TextAttributeCodecTest.LONG_TEXT, contents.getReview());
+        assertEquals(TextAttributeCodecTest.LONG_TEXT, contents.getDescriptionLong());
+        verify(s3Connection, times(2)).readObject(any(), anyInt());
+    }
+
+    @Test
+    public void writesStoreDigestOfEveryWrittenField() {
+        ContentsDocument document = documentWithLongTexts();
+        Map<String, String> digests = DynamoDBClient.attributeDigests(document);
+
+        Map<String, AttributeValue> item = dbClient.generateItemMap(document);
+        document.setAttributeDigests(Map.of(ContentsDocument.TITLE, "sent", ContentsDocument.AUDIO_FILE, "unsent"));
+        Map<String, AttributeValue> itemFromSentDigests = dbClient.generateItemMap(document);
+
+        assertEquals(digests.keySet(), Set.of(ContentsDocument.TITLE, ContentsDocument.DESCRIPTION_SHORT,
+                ContentsDocument.DESCRIPTION_LONG, ContentsDocument.SUMMARY, ContentsDocument.REVIEW));
+        digests.forEach((attribute, digest) ->
+                assertEquals(digest, item.get(DynamoDBClient.DIGEST_PREFIX + attribute).s()));
+        assertEquals(DynamoDBClient.DIGEST_LENGTH, digests.get(ContentsDocument.TITLE).length());
+        assertEquals("sent", itemFromSentDigests.get(DynamoDBClient.DIGEST_PREFIX + ContentsDocument.TITLE).s());
+        assertFalse(itemFromSentDigests.containsKey(DynamoDBClient.DIGEST_PREFIX + ContentsDocument.AUDIO_FILE));
+        assertEquals(item.get(ContentsDocument.ETAG), itemFromSentDigests.get(ContentsDocument.ETAG));
+        AttributeValue titleDigest = dbClient.createUpsertRequest(document).expressionAttributeValues()
+                .get(":" + DynamoDBClient.DIGEST_PREFIX + ContentsDocument.TITLE);
+        assertEquals("sent", titleDigest.s());
+    }
+
+    @Test
+    public void unchangedAttributesAreTheFieldsMatchingStoredDigestsFilesIncluded() {
+        Map<String, String> digests = Map.of(ContentsDocument.TITLE, "a", ContentsDocument.AUTHOR, "b",
+                ContentsDocument.IMAGE_SMALL, "c", ContentsDocument.IMAGE_ORIGINAL, "d");
+        Map<String, String> stored = Map.of(ContentsDocument.TITLE, "a", ContentsDocument.AUTHOR, "x",
+                ContentsDocument.IMAGE_SMALL, "c");
+
+        Set<String> unchanged = DynamoDBClient.unchangedAttributes(stored, digests);
+
+        assertEquals(Set.of(ContentsDocument.TITLE, ContentsDocument.IMAGE_SMALL), unchanged);
+    }
+
+    @Test
+    public void getStoredContentsReadsTheWholeItemConsistentlyPastTheCache() {
+        Map<String, AttributeValue> stored = new HashMap<>();
+        stored.put(PRIMARYKEY_ISBN, AttributeValue.builder().s(SAMPLE_TERM).build());
+        stored.put(ContentsDocument.TITLE, AttributeValue.builder().s("title").build());
+        stored.put(ContentsDocument.CREATED, AttributeValue.builder().s("2022-05-01T10:15:30Z").build());
+        stored.put(DynamoDBClient.DIGEST_PREFIX + ContentsDocument.TITLE, AttributeValue.builder().s("a").build());
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().item(stored).build());
+        dbClient.getContentsCache().put(SAMPLE_TERM, documentWithIsbn("cached"));
+
+        StoredContents contents = dbClient.getStoredContents(SAMPLE_TERM).orElseThrow();
+
+        assertEquals(Map.of(ContentsDocument.TITLE, "a"), contents.getAttributeDigests());
+        assertEquals(Instant.parse("2022-05-01T10:15:30Z"), contents.getLastWritten());
+        assertEquals(SAMPLE_TERM, contents.getContents().getIsbn());
+        assertEquals("title", contents.getContents().getTitle());
+        ArgumentCaptor<GetItemRequest> request = ArgumentCaptor.forClass(GetItemRequest.class);
+        verify(client).getItem(request.capture());
+        assertTrue(request.getValue().consistentRead());
+        assertNull(request.getValue().projectionExpression());
+        assertEquals(SAMPLE_TERM.toUpperCase(Locale.getDefault()), request.getValue().key().get(PRIMARYKEY_ISBN).s());
+    }
+
+    @Test
+    public void getStoredContentsIsLastWrittenWhenModified() {
+        Map<String, AttributeValue> stored = Map.of(PRIMARYKEY_ISBN, AttributeValue.builder().s(SAMPLE_TERM).build(),
+                ContentsDocument.CREATED, AttributeValue.builder().s("2022-05-01T10:15:30Z").build(),
+                ContentsDocument.MODIFIED, AttributeValue.builder().s("2022-06-01T10:15:30Z").build());
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().item(stored).build());
+
+        StoredContents contents = dbClient.getStoredContents(SAMPLE_TERM).orElseThrow();
+
+        assertEquals(Instant.parse("2022-06-01T10:15:30Z"), contents.getLastWritten());
+        assertTrue(contents.getAttributeDigests().isEmpty());
+    }
+
+    @Test
+    public void getStoredContentsIsEmptyWhenThereIsNoItemOrItCannotBeRead() {
+        when(client.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().build())
+                .thenThrow(DynamoDbException.builder().message("").build());
+
+        assertTrue(dbClient.getStoredContents(SAMPLE_TERM).isEmpty());
+        assertTrue(dbClient.getStoredContents(SAMPLE_TERM).isEmpty());
+    }
+
+    @Test
+    public void countUpdateCountsWrittenAndSkippedUpdatesAndFields() {
+        dbClient.countUpdate(SAMPLE_TERM, 1, 4, true);
+        dbClient.countUpdate(SAMPLE_TERM, 2, 2, false);
+
+        assertEquals(1, dbClient.getWriteCount());
+        assertEquals(1, dbClient.getSkippedWriteCount());
+        assertEquals(3, dbClient.getSkippedAttributeCount());
+        assertEquals(3, dbClient.getWrittenAttributeCount());
+    }
+
+    private DynamoDBClient overflowingClient(S3Connection s3Connection) {
+        return new DynamoDBClient(client, null, new TieredContentsCache(
+                new LruContentsCache(DynamoDBClient.DEFAULT_CACHE_MAX_ENTRIES, Duration.ofMinutes(1))),
+                new AttributeOverflow(s3Connection, 10));
+    }
+
+    private static AttributeValue version(long version) {
+        return AttributeValue.builder().n(Long.toString(version)).build();
+    }
+
+    private static AttributeValue pointer(String objectKey) {
+        return AttributeValue.builder().m(Map.of(
+                AttributeOverflow.POINTER_KEY, AttributeValue.builder().s(objectKey).build(),
+                AttributeOverflow.POINTER_SHA256, AttributeValue.builder().s("0".repeat(64)).build(),
+                AttributeOverflow.POINTER_SIZE, AttributeValue.builder().n("1").build()))
+                .build();
+    }
+
+    private ContentsDocument documentWithLongTexts() {
+        return new ContentsDocument("title", null, null, SAMPLE_TERM, "description", TextAttributeCodecTest.LONG_TEXT,
+                null, null, "short", TextAttributeCodecTest.LONG_TEXT, null, null, null, null, "BOKBASE", null,
+                Instant.parse("2022-01-01T00:00:00Z"));
+    }
+
+    private BatchGetItemResponse batchGetItemResponse(List<Map<String, AttributeValue>> items,
+                                                      Map<String, KeysAndAttributes> unprocessedKeys) {
+        Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+        responses.put(null, items);
+        BatchGetItemResponse response = mock(BatchGetItemResponse.class);
+        when(response.responses()).thenReturn(responses);
+        when(response.unprocessedKeys()).thenReturn(unprocessedKeys);
+        return response;
+    }
+
+    private ContentsDocument documentWithIsbn(String isbn) {
+        return new ContentsDocument("title", null, null, isbn, "description", null, null, null, null, null,
+                null, null, null, null, "BOKBASE", null, null);
     }
 
 }
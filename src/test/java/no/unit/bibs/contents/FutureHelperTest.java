@@ -0,0 +1,41 @@
+package no.unit.bibs.contents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import no.unit.bibs.contents.exception.CommunicationException;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import org.junit.jupiter.api.Test;
+
+public class FutureHelperTest {
+
+    @Test
+    public void joinReturnsResult() throws ApiGatewayException {
+        assertEquals("result", FutureHelper.join(CompletableFuture.completedFuture("result")));
+    }
+
+    @Test
+    public void joinThrowsApiGatewayExceptionThatFailedTheFuture() {
+        CommunicationException failure = new CommunicationException("failed", new IOException());
+        CompletableFuture<String> future = CompletableFuture.<String>failedFuture(failure).thenApply(value -> value);
+        assertSame(failure, assertThrows(CommunicationException.class, () -> FutureHelper.join(future)));
+    }
+
+    @Test
+    public void joinThrowsRuntimeExceptionThatFailedTheFuture() {
+        IllegalStateException failure = new IllegalStateException("failed");
+        CompletableFuture<String> future = CompletableFuture.<String>failedFuture(failure).thenApply(value -> value);
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> FutureHelper.join(future)));
+    }
+
+    @Test
+    public void joinThrowsCompletionExceptionForCheckedExceptions() {
+        CompletableFuture<String> future =
+                CompletableFuture.<String>failedFuture(new IOException()).thenApply(value -> value);
+        assertThrows(CompletionException.class, () -> FutureHelper.join(future));
+    }
+}
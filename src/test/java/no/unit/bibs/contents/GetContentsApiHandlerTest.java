@@ -2,6 +2,8 @@ package no.unit.bibs.contents;
 
 import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -11,7 +13,9 @@ import com.amazonaws.services.lambda.runtime.Context;
 
 import java.net.HttpURLConnection;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.Map;
+import java.util.Set;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import nva.commons.core.ioutils.IoUtils;
@@ -26,6 +30,7 @@ import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 public class GetContentsApiHandlerTest {
 
     public static final String SAMPLE_SEARCH_TERM = "searchTerm";
+    public static final String ETAG = "0123abcd";
     private Environment environment;
     private GetContentsApiHandler getContentsApiHandler;
     private DynamoDbClient client;
@@ -43,7 +48,7 @@ public class GetContentsApiHandlerTest {
 
     @Test
     void getSuccessStatusCodeReturnsOK() {
-        Integer statusCode = getContentsApiHandler.getSuccessStatusCode(null, null);
+        Integer statusCode = getContentsApiHandler.getSuccessStatusCode(null, contentsWithEtag());
         assertEquals(statusCode, HttpURLConnection.HTTP_OK);
     }
 
@@ -53,11 +58,45 @@ public class GetContentsApiHandlerTest {
         var handler = new GetContentsApiHandler(environment, dynamoDBClient);
         String contents = IoUtils.stringFromResources(Path.of(DynamoDBClientTest.GET_CONTENTS_JSON));
         ContentsDocument contentsDocument = dtoObjectMapper.readValue(contents, ContentsDocument.class);
-        when(dynamoDBClient.getContents(SAMPLE_SEARCH_TERM)).thenReturn(contents);
+        when(dynamoDBClient.getContents(SAMPLE_SEARCH_TERM)).thenReturn(contentsDocument);
         var actual = handler.processInput(null, getRequestInfo(), mock(Context.class));
         assertEquals(contentsDocument, actual);
     }
 
+    @Test
+    void handlerReturnsOnlyTheGivenFields() throws ApiGatewayException {
+        DynamoDBClient dynamoDBClient = mock(DynamoDBClient.class);
+        var handler = new GetContentsApiHandler(environment, dynamoDBClient);
+        ContentsDocument projected = contentsWithEtag().project(Set.of(ContentsDocument.TITLE));
+        when(dynamoDBClient.getContents(SAMPLE_SEARCH_TERM,
+                Set.of(ContentsDocument.TITLE, ContentsDocument.IMAGE_SMALL))).thenReturn(projected);
+        RequestInfo requestInfo = new RequestInfo();
+        requestInfo.setQueryParameters(Map.of(GetContentsApiHandler.ISBN, SAMPLE_SEARCH_TERM,
+                GetContentsApiHandler.FIELDS, " title, image_small,"));
+        assertEquals(Map.of(ContentsDocument.TITLE, "title", ContentsDocument.ISBN, SAMPLE_SEARCH_TERM),
+                handler.processInput(null, requestInfo, mock(Context.class)));
+    }
+
+    @Test
+    void handlerRejectsUnknownFields() {
+        DynamoDBClient dynamoDBClient = mock(DynamoDBClient.class);
+        var handler = new GetContentsApiHandler(environment, dynamoDBClient);
+        RequestInfo requestInfo = new RequestInfo();
+        requestInfo.setQueryParameters(Map.of(GetContentsApiHandler.ISBN, SAMPLE_SEARCH_TERM,
+                GetContentsApiHandler.FIELDS, "title,etag,price"));
+        Exception exception = assertThrows(BadRequestException.class, () ->
+                handler.processInput(null, requestInfo, mock(Context.class)));
+        assertEquals(GetContentsApiHandler.UNKNOWN_FIELDS + "etag,price", exception.getMessage());
+    }
+
+    @Test
+    void fullContentsKeepFieldsWithoutValue() throws JsonProcessingException {
+        String json = dtoObjectMapper.writeValueAsString(contentsWithEtag());
+        Map<?, ?> fields = dtoObjectMapper.readValue(json, Map.class);
+        assertTrue(fields.containsKey(ContentsDocument.AUTHOR));
+        assertNull(fields.get(ContentsDocument.AUTHOR));
+    }
+
     @Test
     void handlerReturnsBadRequestExceptionWhenMissingIsbn() {
         DynamoDBClient dynamoDBClient = mock(DynamoDBClient.class);
@@ -68,6 +107,88 @@ public class GetContentsApiHandlerTest {
         assertTrue(exception.getMessage().contains(GetContentsApiHandler.ISBN));
     }
 
+    @Test
+    void handlerReturnsNotModifiedWhenIfNoneMatchHasCurrentEtag() throws ApiGatewayException {
+        DynamoDBClient dynamoDBClient = mock(DynamoDBClient.class);
+        var handler = new GetContentsApiHandler(environment, dynamoDBClient);
+        when(dynamoDBClient.getContents(SAMPLE_SEARCH_TERM)).thenReturn(contentsWithEtag());
+        RequestInfo requestInfo = getRequestInfo();
+        requestInfo.setHeaders(Map.of("if-none-match", "\"other\", W/\"" + ETAG + "\""));
+        var actual = handler.processInput(null, requestInfo, mock(Context.class));
+        assertNull(actual);
+        assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, handler.getSuccessStatusCode(null, actual));
+    }
+
+    @Test
+    void handlerReturnsContentsWhenIfNoneMatchHasOtherEtag() throws ApiGatewayException {
+        DynamoDBClient dynamoDBClient = mock(DynamoDBClient.class);
+        var handler = new GetContentsApiHandler(environment, dynamoDBClient);
+        ContentsDocument contents = contentsWithEtag();
+        when(dynamoDBClient.getContents(SAMPLE_SEARCH_TERM)).thenReturn(contents);
+        RequestInfo requestInfo = getRequestInfo();
+        requestInfo.setHeaders(Map.of(GetContentsApiHandler.IF_NONE_MATCH, "\"other\"",
+                GetContentsApiHandler.IF_MODIFIED_SINCE, "Tue, 01 Mar 2022 10:15:31 GMT"));
+        var actual = handler.processInput(null, requestInfo, mock(Context.class));
+        assertEquals(contents, actual);
+        assertEquals(HttpURLConnection.HTTP_OK, handler.getSuccessStatusCode(null, actual));
+    }
+
+    @Test
+    void isNotModifiedHonoursIfModifiedSince() {
+        ContentsDocument contents = contentsWithEtag();
+        assertTrue(GetContentsApiHandler.isNotModified(contents,
+                requestWithHeader(GetContentsApiHandler.IF_MODIFIED_SINCE, "Tue, 01 Mar 2022 10:15:30 GMT")));
+        assertFalse(GetContentsApiHandler.isNotModified(contents,
+                requestWithHeader(GetContentsApiHandler.IF_MODIFIED_SINCE, "Tue, 01 Mar 2022 10:15:29 GMT")));
+        assertFalse(GetContentsApiHandler.isNotModified(contents,
+                requestWithHeader(GetContentsApiHandler.IF_MODIFIED_SINCE, "yesterday")));
+        assertFalse(GetContentsApiHandler.isNotModified(contents, new RequestInfo()));
+    }
+
+    @Test
+    void isNotModifiedMatchesAnyEtagButNotMissingEtag() {
+        assertTrue(GetContentsApiHandler.isNotModified(contentsWithEtag(),
+                requestWithHeader(GetContentsApiHandler.IF_NONE_MATCH, GetContentsApiHandler.ANY_ETAG)));
+        assertFalse(GetContentsApiHandler.isNotModified(documentWithoutEtag(),
+                requestWithHeader(GetContentsApiHandler.IF_NONE_MATCH, "\"" + ETAG + "\"")));
+        assertFalse(GetContentsApiHandler.isNotModified(documentWithoutEtag(),
+                requestWithHeader(GetContentsApiHandler.IF_MODIFIED_SINCE, "Tue, 01 Mar 2022 10:15:30 GMT")));
+    }
+
+    @Test
+    void responseHeadersHaveQuotedEtagAndLastModified() {
+        Map<String, String> headers = GetContentsApiHandler.responseHeaders(contentsWithEtag());
+        assertEquals("\"" + ETAG + "\"", headers.get(GetContentsApiHandler.ETAG));
+        assertEquals("Tue, 01 Mar 2022 10:15:30 GMT", headers.get(GetContentsApiHandler.LAST_MODIFIED));
+        assertTrue(GetContentsApiHandler.responseHeaders(documentWithoutEtag()).isEmpty());
+    }
+
+    @Test
+    void responseHeadersOfProjectionHaveLastModified() {
+        ContentsDocument projected = contentsWithEtag().project(Set.of(ContentsDocument.TITLE));
+        assertNull(projected.getModified());
+        assertEquals("Tue, 01 Mar 2022 10:15:30 GMT",
+                GetContentsApiHandler.responseHeaders(projected).get(GetContentsApiHandler.LAST_MODIFIED));
+    }
+
+    private ContentsDocument contentsWithEtag() {
+        ContentsDocument contents = new ContentsDocument("title", null, null, SAMPLE_SEARCH_TERM, "description",
+                null, null, null, null, null, null, null, null, null, "BOKBASE",
+                Instant.parse("2022-03-01T10:15:30.500Z"), Instant.parse("2021-03-01T10:15:30Z"));
+        contents.setEtag(ETAG);
+        return contents;
+    }
+
+    private ContentsDocument documentWithoutEtag() {
+        return new ContentsDocument("title", null, null, SAMPLE_SEARCH_TERM, "description",
+                null, null, null, null, null, null, null, null, null, "BOKBASE", null, null);
+    }
+
+    private RequestInfo requestWithHeader(String name, String value) {
+        RequestInfo requestInfo = getRequestInfo();
+        requestInfo.setHeaders(Map.of(name, value));
+        return requestInfo;
+    }
 
     private RequestInfo getRequestInfo() {
         var requestInfo = new RequestInfo();
@@ -0,0 +1,93 @@
+package no.unit.bibs.contents;
+
+import static nva.commons.apigateway.ApiGatewayHandler.ALLOWED_ORIGIN_ENV;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import nva.commons.apigateway.RequestInfo;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import nva.commons.apigateway.exceptions.BadRequestException;
+import nva.commons.core.Environment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GetContentsBatchApiHandlerTest {
+
+    public static final String FOUND_ISBN = "9788205377547";
+    public static final String MISSING_ISBN = "9788205377548";
+    private DynamoDBClient dynamoDBClient;
+    private GetContentsBatchApiHandler handler;
+
+    /**
+     * javadoc for checkstyle.
+     */
+    @BeforeEach
+    public void init() {
+        Environment environment = mock(Environment.class);
+        when(environment.readEnv(ALLOWED_ORIGIN_ENV)).thenReturn("*");
+        dynamoDBClient = mock(DynamoDBClient.class);
+        handler = new GetContentsBatchApiHandler(environment, dynamoDBClient);
+    }
+
+    @Test
+    void getSuccessStatusCodeReturnsOK() {
+        assertEquals(HttpURLConnection.HTTP_OK, handler.getSuccessStatusCode(null, null));
+    }
+
+    @Test
+    void handlerReturnsFoundContentsAndReportsMisses() throws ApiGatewayException {
+        ContentsDocument found = mock(ContentsDocument.class);
+        when(dynamoDBClient.getContentsBatch(List.of(FOUND_ISBN, MISSING_ISBN)))
+                .thenReturn(Map.of(FOUND_ISBN, found));
+
+        ContentsBatchResponse response = handler.processInput(null,
+                getRequestInfo(FOUND_ISBN + ", " + MISSING_ISBN + "," + FOUND_ISBN), mock(Context.class));
+
+        assertEquals(Map.of(FOUND_ISBN, found), response.getContents());
+        assertEquals(List.of(MISSING_ISBN), response.getNotFound());
+    }
+
+    @Test
+    void handlerThrowsBadRequestExceptionWhenNoIsbnsGiven() throws ApiGatewayException {
+        Exception exception = assertThrows(BadRequestException.class,
+            () -> handler.processInput(null, getRequestInfo(" , "), mock(Context.class)));
+        assertTrue(exception.getMessage().contains(GetContentsBatchApiHandler.ISBNS));
+        verify(dynamoDBClient, never()).getContentsBatch(anyCollection());
+    }
+
+    @Test
+    void handlerThrowsBadRequestExceptionWhenTooManyIsbnsGiven() {
+        String isbns = IntStream.rangeClosed(0, GetContentsBatchApiHandler.MAX_ISBNS_PER_REQUEST)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(GetContentsBatchApiHandler.ISBN_SEPARATOR));
+        assertThrows(BadRequestException.class,
+            () -> handler.processInput(null, getRequestInfo(isbns), mock(Context.class)));
+    }
+
+    @Test
+    void handlerThrowsBadRequestExceptionWhenMissingIsbns() {
+        assertThrows(BadRequestException.class,
+            () -> handler.processInput(null, new RequestInfo(), mock(Context.class)));
+    }
+
+    private RequestInfo getRequestInfo(String isbns) {
+        var requestInfo = new RequestInfo();
+        requestInfo.setQueryParameters(Collections.singletonMap(GetContentsBatchApiHandler.ISBNS, isbns));
+        return requestInfo;
+    }
+
+}
@@ -0,0 +1,75 @@
+package no.unit.bibs.contents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import java.net.HttpURLConnection;
+import java.time.Instant;
+import java.util.Map;
+import nva.commons.apigateway.RequestInfo;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import nva.commons.apigateway.exceptions.BadRequestException;
+import nva.commons.core.Environment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GetMediaApiHandlerTest {
+
+    public static final String OBJECT_KEY = "files/images/small/7/4/9788205377547.jpg";
+    private MediaUrls mediaUrls;
+    private GetMediaApiHandler handler;
+    private MediaResponse media;
+
+    /**
+     * javadoc for checkstyle.
+     */
+    @BeforeEach
+    public void init() {
+        mediaUrls = mock(MediaUrls.class);
+        media = new MediaResponse("https://bucket.s3.amazonaws.com/" + OBJECT_KEY, Instant.now());
+        when(mediaUrls.url(OBJECT_KEY)).thenReturn(media);
+        handler = new GetMediaApiHandler(mock(Environment.class), mediaUrls);
+    }
+
+    @Test
+    void getSuccessStatusCodeReturnsFoundWhenRedirecting() {
+        assertEquals(HttpURLConnection.HTTP_MOVED_TEMP, handler.getSuccessStatusCode(null, null));
+        assertEquals(HttpURLConnection.HTTP_OK, handler.getSuccessStatusCode(null, media));
+    }
+
+    @Test
+    void handlerRedirectsByDefault() throws ApiGatewayException {
+        assertNull(handler.processInput(null, requestInfo(Map.of(GetMediaApiHandler.KEY, OBJECT_KEY)),
+                mock(Context.class)));
+    }
+
+    @Test
+    void handlerReturnsUrlWhenNotRedirecting() throws ApiGatewayException {
+        RequestInfo requestInfo = requestInfo(Map.of(GetMediaApiHandler.KEY, OBJECT_KEY,
+                GetMediaApiHandler.REDIRECT, "false"));
+        assertEquals(media, handler.processInput(null, requestInfo, mock(Context.class)));
+    }
+
+    @Test
+    void handlerRejectsKeysOutsideStoredFiles() {
+        assertThrows(BadRequestException.class, () -> handler.processInput(null,
+                requestInfo(Map.of(GetMediaApiHandler.KEY, "files/../secret")), mock(Context.class)));
+        assertThrows(BadRequestException.class, () -> handler.processInput(null,
+                requestInfo(Map.of(GetMediaApiHandler.KEY, "other/file.jpg")), mock(Context.class)));
+        verify(mediaUrls, never()).url(anyString());
+    }
+
+    private static RequestInfo requestInfo(Map<String, String> queryParameters) {
+        RequestInfo requestInfo = new RequestInfo();
+        requestInfo.setQueryParameters(queryParameters);
+        return requestInfo;
+    }
+
+}
@@ -0,0 +1,79 @@
+package no.unit.bibs.contents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+public class ImageHelperTest {
+
+    /**
+     * Encodes a plain cover of the given size as JPEG.
+     *
+     * @param width  width
+     * @param height height
+     * @return JPEG bytes
+     * @throws IOException when the JPEG cannot be written
+     */
+    public static byte[] cover(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width, height / 2);
+        graphics.dispose();
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(image, ImageHelper.JPEG, jpeg);
+        return jpeg.toByteArray();
+    }
+
+    @Test
+    public void decodeSubsamplesToAtMostTwiceTheWidth() throws IOException {
+        BufferedImage decoded = ImageHelper.decode(cover(2000, 3000), 300, 600).orElseThrow();
+        assertTrue(decoded.getWidth() <= 600);
+        assertTrue(decoded.getWidth() >= 300);
+    }
+
+    @Test
+    public void decodeSubsamplesTallImagesToAtMostTwiceTheHeight() throws IOException {
+        BufferedImage decoded = ImageHelper.decode(cover(400, 12000), 300, 600).orElseThrow();
+        assertTrue(decoded.getHeight() <= 1200);
+        assertTrue(decoded.getHeight() >= 600);
+    }
+
+    @Test
+    public void decodeGivesEmptyForSomethingElseThanAnImage() {
+        assertTrue(ImageHelper.decode("hello world".getBytes(StandardCharsets.UTF_8), 300, 600).isEmpty());
+    }
+
+    @Test
+    public void scaledJpegKeepsAspectRatio() throws IOException {
+        BufferedImage decoded = ImageHelper.decode(cover(1200, 1800), 600, 1200).orElseThrow();
+        BufferedImage scaled = ImageIO.read(new ByteArrayInputStream(ImageHelper.scaledJpeg(decoded, 150, 300)));
+        assertEquals(150, scaled.getWidth());
+        assertEquals(225, scaled.getHeight());
+    }
+
+    @Test
+    public void scaledJpegFitsTallImagesToTheHeight() throws IOException {
+        BufferedImage decoded = ImageHelper.decode(cover(400, 4000), 600, 1200).orElseThrow();
+        BufferedImage scaled = ImageIO.read(new ByteArrayInputStream(ImageHelper.scaledJpeg(decoded, 150, 300)));
+        assertEquals(30, scaled.getWidth());
+        assertEquals(300, scaled.getHeight());
+    }
+
+    @Test
+    public void scaledJpegDoesNotEnlarge() throws IOException {
+        BufferedImage decoded = ImageHelper.decode(cover(100, 160), 600, 1200).orElseThrow();
+        BufferedImage scaled = ImageIO.read(new ByteArrayInputStream(ImageHelper.scaledJpeg(decoded, 600, 1200)));
+        assertEquals(100, scaled.getWidth());
+        assertEquals(160, scaled.getHeight());
+    }
+}
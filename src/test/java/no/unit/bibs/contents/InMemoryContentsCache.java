@@ -0,0 +1,33 @@
+package no.unit.bibs.contents;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Unbounded ContentsCache without expiry, standing in for a shared second tier cache in tests.
+ */
+public class InMemoryContentsCache implements ContentsCache {
+
+    private final Map<String, ContentsDocument> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<ContentsDocument> get(String isbn) {
+        return Optional.ofNullable(entries.get(isbn));
+    }
+
+    @Override
+    public void put(String isbn, ContentsDocument contents) {
+        entries.put(isbn, contents);
+    }
+
+    @Override
+    public void invalidate(String isbn) {
+        entries.remove(isbn);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+}
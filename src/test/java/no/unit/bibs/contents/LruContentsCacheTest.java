@@ -0,0 +1,96 @@
+package no.unit.bibs.contents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LruContentsCacheTest {
+
+    public static final String FIRST = "9788205377547";
+    public static final String SECOND = "9788205377548";
+    public static final String THIRD = "9788205377549";
+    public static final ContentsDocument CONTENTS = new ContentsDocument("title", null, null, "9788205377547",
+            "description", null, null, null, null, null, null, null, null, null, "BOKBASE", null, null);
+    private MutableClock clock;
+    private LruContentsCache cache;
+
+    @BeforeEach
+    public void init() {
+        clock = new MutableClock();
+        cache = new LruContentsCache(2, Duration.ofSeconds(10), clock);
+    }
+
+    @Test
+    public void getReturnsPutContents() {
+        cache.put(FIRST, CONTENTS);
+        assertEquals(Optional.of(CONTENTS), cache.get(FIRST));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        cache.put(FIRST, CONTENTS);
+        cache.put(SECOND, CONTENTS);
+        cache.get(FIRST);
+        cache.put(THIRD, CONTENTS);
+        assertEquals(2, cache.size());
+        assertTrue(cache.get(FIRST).isPresent());
+        assertTrue(cache.get(SECOND).isEmpty());
+        assertTrue(cache.get(THIRD).isPresent());
+    }
+
+    @Test
+    public void expiredEntryIsNotReturned() {
+        cache.put(FIRST, CONTENTS);
+        clock.advance(Duration.ofSeconds(10));
+        assertTrue(cache.get(FIRST).isPresent());
+        clock.advance(Duration.ofMillis(1));
+        assertTrue(cache.get(FIRST).isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void invalidatedEntryIsNotReturned() {
+        cache.put(FIRST, CONTENTS);
+        cache.invalidate(FIRST);
+        assertTrue(cache.get(FIRST).isEmpty());
+    }
+
+    @Test
+    public void constructorWithoutClockUsesSystemClock() {
+        LruContentsCache systemCache = new LruContentsCache(1, Duration.ofMinutes(1));
+        systemCache.put(FIRST, CONTENTS);
+        assertTrue(systemCache.get(FIRST).isPresent());
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2022-01-01T00:00:00Z");
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+}
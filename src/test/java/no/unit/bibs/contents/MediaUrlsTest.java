@@ -0,0 +1,94 @@
+package no.unit.bibs.contents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MediaUrlsTest {
+
+    public static final String OBJECT_KEY = "files/images/small/7/4/9788205377547.jpg";
+    private S3Connection s3Connection;
+    private MutableClock clock;
+
+    /**
+     * javadoc for checkstyle.
+     */
+    @BeforeEach
+    public void init() throws MalformedURLException {
+        s3Connection = mock(S3Connection.class);
+        when(s3Connection.presignDownload(OBJECT_KEY, MediaUrls.PRESIGNED_URL_EXPIRY))
+                .thenReturn(new URL("https://bucket.s3.amazonaws.com/" + OBJECT_KEY + "?X-Amz-Signature=first"))
+                .thenReturn(new URL("https://bucket.s3.amazonaws.com/" + OBJECT_KEY + "?X-Amz-Signature=second"));
+        clock = new MutableClock();
+    }
+
+    @Test
+    public void urlReusesPresignedUrlUntilShortlyBeforeItExpires() {
+        MediaUrls mediaUrls = new MediaUrls(s3Connection, null, clock);
+
+        MediaResponse first = mediaUrls.url(OBJECT_KEY);
+        clock.advance(MediaUrls.PRESIGNED_URL_EXPIRY.minus(MediaUrls.RENEWAL_MARGIN).minusSeconds(1));
+        assertSame(first, mediaUrls.url(OBJECT_KEY));
+        assertEquals(1, mediaUrls.maxAgeSeconds(first));
+
+        clock.advance(Duration.ofSeconds(1));
+        MediaResponse renewed = mediaUrls.url(OBJECT_KEY);
+        assertNotEquals(first.getUrl(), renewed.getUrl());
+        assertEquals(clock.instant().plus(MediaUrls.PRESIGNED_URL_EXPIRY), renewed.getExpires());
+        verify(s3Connection, times(2)).presignDownload(OBJECT_KEY, MediaUrls.PRESIGNED_URL_EXPIRY);
+    }
+
+    @Test
+    public void urlResolvesObjectKeyAgainstCdnWithoutPresigning() {
+        MediaUrls mediaUrls = new MediaUrls(s3Connection, "https://cdn.example.org", clock);
+
+        MediaResponse media = mediaUrls.url(OBJECT_KEY);
+
+        assertEquals("https://cdn.example.org/" + OBJECT_KEY, media.getUrl());
+        assertNull(media.getExpires());
+        assertEquals(MediaUrls.CDN_URL_MAX_AGE.getSeconds(), mediaUrls.maxAgeSeconds(media));
+        verify(s3Connection, never()).presignDownload(anyString(), any());
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2022-01-01T00:00:00Z");
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package no.unit.bibs.contents;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.Set;
+import nva.commons.core.Environment;
+import org.junit.jupiter.api.Test;
+
+class PrimingTest {
+
+    @Test
+    void primeOnInitOnlyPrimesWhenEnabledAndThenOnlyOnce() {
+        Environment environment = mock(Environment.class);
+        when(environment.readEnvOpt(Priming.PRIME_ON_INIT)).thenReturn(Optional.empty());
+        Priming.primeOnInit(environment, Priming.RequestPath.READ);
+        assertFalse(Priming.isPrimed());
+
+        when(environment.readEnvOpt(Priming.PRIME_ON_INIT)).thenReturn(Optional.of("true"));
+        Priming.primeOnInit(environment, Priming.RequestPath.READ);
+        assertTrue(Priming.isPrimed());
+
+        Priming.prime(Priming.RequestPath.WRITE);
+        assertTrue(Priming.isPrimed());
+    }
+
+    @Test
+    void primeRequestPathRunsTheBlockingAndTheAsynchronousPathWithoutNetwork() {
+        assertDoesNotThrow(() -> Priming.primeRequestPath(Set.of(Priming.RequestPath.WRITE)));
+    }
+
+    @Test
+    void primeRequestPathRunsTheReadPathWithoutNetwork() {
+        assertDoesNotThrow(() -> Priming.primeRequestPath(Set.of(Priming.RequestPath.READ)));
+    }
+}
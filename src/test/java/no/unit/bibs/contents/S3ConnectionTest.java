@@ -2,17 +2,75 @@ package no.unit.bibs.contents;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListMultipartUploadsRequest;
+import software.amazon.awssdk.services.s3.model.ListMultipartUploadsResponse;
+import software.amazon.awssdk.services.s3.model.MultipartUpload;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class S3ConnectionTest {
@@ -47,4 +105,399 @@ public class S3ConnectionTest {
                 .generatePresignedWriteUrl(SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME, SAMPLE_MIME_TYPE);
         assertNotNull(url);
     }
+
+    @Test
+    void presignDownloadSignsGetOfObject() {
+        S3Presigner presigner = S3Presigner.builder()
+                .region(Region.EU_WEST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("id", "secret")))
+                .build();
+        S3Connection connection = new S3Connection(s3Client, presigner, bucketName);
+        URL url = connection.presignDownload(SAMPLE_OBJECT_NAME, Duration.ofMinutes(10));
+        assertTrue(url.toString().contains(SAMPLE_OBJECT_NAME));
+        assertTrue(url.getQuery().contains("X-Amz-Expires=600"));
+    }
+
+    @Test
+    void readObjectReadsStoredObject() throws IOException {
+        byte[] cover = {1, 2, 3};
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength(3L).build(),
+                AbortableInputStream.create(new ByteArrayInputStream(cover))));
+        assertArrayEquals(cover, s3Connection.readObject(SAMPLE_OBJECT_NAME, 10).orElseThrow());
+    }
+
+    @Test
+    void readObjectGivesEmptyForTooLargeOrMissingObject() throws IOException {
+        when(s3Client.getObject(any(GetObjectRequest.class)))
+                .thenReturn(new ResponseInputStream<>(GetObjectResponse.builder().contentLength(30L).build(),
+                        AbortableInputStream.create(new ByteArrayInputStream(new byte[30]))))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+        assertTrue(s3Connection.readObject(SAMPLE_OBJECT_NAME, 10).isEmpty());
+        assertTrue(s3Connection.readObject(SAMPLE_OBJECT_NAME, 10).isEmpty());
+    }
+
+    @Test
+    void deleteObjectDeletesTheKeyAndKeepsGoingWhenThatFails() {
+        ArgumentCaptor<DeleteObjectRequest> captor = ArgumentCaptor.forClass(DeleteObjectRequest.class);
+        when(s3Client.deleteObject(captor.capture()))
+                .thenReturn(DeleteObjectResponse.builder().build())
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+
+        s3Connection.deleteObject(SAMPLE_OBJECT_NAME);
+        s3Connection.deleteObject(SAMPLE_OBJECT_NAME);
+
+        assertEquals(bucketName, captor.getValue().bucket());
+        assertEquals(SAMPLE_OBJECT_NAME, captor.getValue().key());
+        verify(s3Client, times(2)).deleteObject(any(DeleteObjectRequest.class));
+    }
+
+    @Test
+    void uploadedAtChecksThatTheObjectHasContentAndTheContentTypeOfTheSession() {
+        Instant uploaded = Instant.parse("2022-05-01T10:15:30Z");
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder().contentLength(10L).lastModified(uploaded)
+                        .metadata(Map.of("content-type", SAMPLE_MIME_TYPE)).build())
+                .thenReturn(HeadObjectResponse.builder().contentLength(0L)
+                        .metadata(Map.of("content-type", SAMPLE_MIME_TYPE)).build())
+                .thenReturn(HeadObjectResponse.builder().contentLength(10L).contentType("text/html").build())
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+        assertEquals(Optional.of(uploaded), s3Connection.uploadedAt(SAMPLE_OBJECT_NAME, SAMPLE_MIME_TYPE));
+        assertTrue(s3Connection.uploadedAt(SAMPLE_OBJECT_NAME, SAMPLE_MIME_TYPE).isEmpty());
+        assertTrue(s3Connection.uploadedAt(SAMPLE_OBJECT_NAME, SAMPLE_MIME_TYPE).isEmpty());
+        assertTrue(s3Connection.uploadedAt(SAMPLE_OBJECT_NAME, SAMPLE_MIME_TYPE).isEmpty());
+    }
+
+    @Test
+    void abortMultipartUploadsInitiatedBeforeAbortsOnlyOldUploadsOnEveryPage() {
+        Instant now = Instant.now();
+        when(s3Client.listMultipartUploads(any(ListMultipartUploadsRequest.class)))
+                .thenReturn(ListMultipartUploadsResponse.builder()
+                        .uploads(upload("old", now.minus(Duration.ofDays(2))), upload("new", now))
+                        .isTruncated(true).nextKeyMarker("new").nextUploadIdMarker("new-id").build())
+                .thenReturn(ListMultipartUploadsResponse.builder()
+                        .uploads(upload("older", now.minus(Duration.ofDays(3))))
+                        .isTruncated(false).build());
+
+        int aborted = s3Connection.abortMultipartUploadsInitiatedBefore(now.minus(Duration.ofDays(1)));
+
+        assertEquals(2, aborted);
+        ArgumentCaptor<AbortMultipartUploadRequest> aborts =
+                ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(s3Client, times(2)).abortMultipartUpload(aborts.capture());
+        assertEquals(List.of("old-id", "older-id"), aborts.getAllValues().stream()
+                .map(AbortMultipartUploadRequest::uploadId).collect(Collectors.toList()));
+        ArgumentCaptor<ListMultipartUploadsRequest> lists = ArgumentCaptor.forClass(ListMultipartUploadsRequest.class);
+        verify(s3Client, times(2)).listMultipartUploads(lists.capture());
+        assertEquals("new-id", lists.getAllValues().get(1).uploadIdMarker());
+    }
+
+    private static MultipartUpload upload(String key, Instant initiated) {
+        return MultipartUpload.builder().key(key).uploadId(key + "-id").initiated(initiated).build();
+    }
+
+    @Test
+    void uploadStreamSendsSmallFileInSinglePut() throws IOException {
+        LocalS3Client localS3Client = new LocalS3Client();
+        S3Connection connection = new S3Connection(localS3Client, s3Presigner, bucketName);
+        connection.uploadStream(new GeneratedInputStream(1024), SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME,
+                SAMPLE_MIME_TYPE);
+        assertEquals(1, localS3Client.puts.get());
+        assertEquals(0, localS3Client.partDigests.size());
+        assertEquals(1024, localS3Client.bytesReceived.get());
+    }
+
+    @Test
+    void uploadStreamGrowsTheFirstBufferToFitFilesOfAnySize() throws IOException {
+        int first = S3Connection.FIRST_BUFFER_BYTES;
+        int[] sizes = {0, 1, first - 1, first, first + 1, 3 * first + 5, S3Connection.PART_SIZE_BYTES - 1};
+        LocalS3Client localS3Client = new LocalS3Client();
+        S3Connection connection = new S3Connection(localS3Client, s3Presigner, bucketName);
+        for (int size : sizes) {
+            connection.uploadStream(new GeneratedInputStream(size), SAMPLE_OBJECT_NAME + size, SAMPLE_FILE_NAME,
+                    SAMPLE_MIME_TYPE);
+            byte[] expected = new GeneratedInputStream(size).readAllBytes();
+            assertEquals(DigestHelper.sha256Hex(expected, 0, size),
+                    localS3Client.metadata.get(SAMPLE_OBJECT_NAME + size).get(S3Connection.CONTENT_SHA256));
+        }
+        assertEquals(sizes.length, localS3Client.puts.get());
+        assertEquals(0, localS3Client.completed.get());
+        assertEquals(Arrays.stream(sizes).asLongStream().sum(), localS3Client.bytesReceived.get());
+    }
+
+    @Test
+    void uploadStreamSendsFileOfExactlyOnePartAsMultipartUpload() throws IOException {
+        LocalS3Client localS3Client = new LocalS3Client();
+        S3Connection connection = new S3Connection(localS3Client, s3Presigner, bucketName);
+        connection.uploadStream(new GeneratedInputStream(S3Connection.PART_SIZE_BYTES), SAMPLE_OBJECT_NAME,
+                SAMPLE_FILE_NAME, SAMPLE_MIME_TYPE);
+        assertEquals(0, localS3Client.puts.get());
+        assertEquals(1, localS3Client.completed.get());
+        assertEquals(1, localS3Client.partDigests.size());
+        assertEquals(S3Connection.PART_SIZE_BYTES, localS3Client.bytesReceived.get());
+    }
+
+    @Test
+    void uploadStreamSendsLargeFileAsParallelMultipartUpload() throws IOException, NoSuchAlgorithmException {
+        long size = 3L * S3Connection.PART_SIZE_BYTES + 12_345;
+        LocalS3Client localS3Client = new LocalS3Client();
+        S3Connection connection = new S3Connection(localS3Client, s3Presigner, bucketName);
+
+        connection.uploadStream(new GeneratedInputStream(size), SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME,
+                SAMPLE_MIME_TYPE);
+
+        assertEquals(0, localS3Client.puts.get());
+        assertEquals(1, localS3Client.completed.get());
+        assertEquals(size, localS3Client.bytesReceived.get());
+        assertTrue(localS3Client.maxPartsInFlight.get() <= S3Connection.MAX_CONCURRENT_PART_UPLOADS);
+        InputStream expected = new GeneratedInputStream(size);
+        byte[] buffer = new byte[S3Connection.PART_SIZE_BYTES];
+        for (int partNumber = 1; partNumber <= 4; partNumber++) {
+            int length = expected.readNBytes(buffer, 0, buffer.length);
+            assertArrayEquals(sha256(buffer, length), localS3Client.partDigests.get(partNumber));
+        }
+        assertEquals(4, localS3Client.partDigests.size());
+    }
+
+    @Test
+    void uploadStreamStoresDigestOfLargeFileAndAbortsUploadOfTheSameContent() throws IOException {
+        long size = S3Connection.PART_SIZE_BYTES + 12_345L;
+        LocalS3Client localS3Client = new LocalS3Client();
+        S3Connection connection = new S3Connection(localS3Client, s3Presigner, bucketName);
+
+        connection.uploadStream(new GeneratedInputStream(size), SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME,
+                SAMPLE_MIME_TYPE);
+        connection.uploadStream(new GeneratedInputStream(size), SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME,
+                SAMPLE_MIME_TYPE);
+
+        byte[] expected = new GeneratedInputStream(size).readAllBytes();
+        assertEquals(DigestHelper.sha256Hex(expected, 0, expected.length),
+                localS3Client.metadata.get(SAMPLE_OBJECT_NAME).get(S3Connection.CONTENT_SHA256));
+        assertEquals(1, localS3Client.completed.get());
+        assertEquals(1, localS3Client.aborted.get());
+        assertEquals(1, connection.getUploadCount());
+        assertEquals(1, connection.getSkippedUploadCount());
+    }
+
+    @Test
+    void uploadFileAsyncPutsObjectWithAsyncClient() {
+        S3AsyncClient s3AsyncClient = mock(S3AsyncClient.class);
+        when(s3AsyncClient.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().statusCode(404).build()));
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().eTag("etag").build()));
+        S3Connection connection = new S3Connection(s3Client, s3AsyncClient, s3Presigner, bucketName);
+        connection.uploadFileAsync(new byte[]{1, 2, 3}, SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME, SAMPLE_MIME_TYPE)
+                .join();
+        assertEquals(1, connection.getUploadCount());
+    }
+
+    @Test
+    void uploadFileAsyncSkipsPutWhenStoredDigestMatches() {
+        byte[] bytes = {1, 2, 3};
+        S3AsyncClient s3AsyncClient = mock(S3AsyncClient.class);
+        when(s3AsyncClient.headObject(any(HeadObjectRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                HeadObjectResponse.builder()
+                        .metadata(Map.of(S3Connection.CONTENT_SHA256, DigestHelper.sha256Hex(bytes, 0, 3)))
+                        .build()));
+        S3Connection connection = new S3Connection(s3Client, s3AsyncClient, s3Presigner, bucketName);
+        connection.uploadFileAsync(bytes, SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME, SAMPLE_MIME_TYPE).join();
+        verify(s3AsyncClient, never()).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+        assertEquals(1, connection.getSkippedUploadCount());
+    }
+
+    @Test
+    void uploadFileAsyncCompletesExceptionallyWhenPutFails() {
+        S3AsyncClient s3AsyncClient = mock(S3AsyncClient.class);
+        when(s3AsyncClient.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(403).build()));
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().message("failed").build()));
+        S3Connection connection = new S3Connection(s3Client, s3AsyncClient, s3Presigner, bucketName);
+        CompletableFuture<Void> upload =
+                connection.uploadFileAsync(new byte[]{1}, SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME, SAMPLE_MIME_TYPE);
+        CompletionException exception = assertThrows(CompletionException.class, upload::join);
+        assertInstanceOf(S3Exception.class, exception.getCause());
+    }
+
+    @Test
+    void uploadFileAsyncWithoutAsyncClientUploadsWithSyncClient() {
+        LocalS3Client localS3Client = new LocalS3Client();
+        S3Connection connection = new S3Connection(localS3Client, s3Presigner, bucketName);
+        connection.uploadFileAsync(new byte[]{1, 2, 3}, SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME, SAMPLE_MIME_TYPE)
+                .join();
+        assertEquals(1, localS3Client.puts.get());
+        assertEquals(3, localS3Client.bytesReceived.get());
+    }
+
+    @Test
+    void uploadFileSkipsPutWhenObjectHoldsTheSameContent() {
+        LocalS3Client localS3Client = new LocalS3Client();
+        S3Connection connection = new S3Connection(localS3Client, s3Presigner, bucketName);
+        byte[] cover = {1, 2, 3};
+
+        connection.uploadFile(cover, SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME, SAMPLE_MIME_TYPE);
+        connection.uploadFile(cover, SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME, SAMPLE_MIME_TYPE);
+        connection.uploadFile(new byte[]{4}, SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME, SAMPLE_MIME_TYPE);
+
+        assertEquals(2, localS3Client.puts.get());
+        assertEquals(2, connection.getUploadCount());
+        assertEquals(1, connection.getSkippedUploadCount());
+    }
+
+    @Test
+    void uploadStreamSkipsPutOfSmallFileWhenObjectHoldsTheSameContent() throws IOException {
+        LocalS3Client localS3Client = new LocalS3Client();
+        S3Connection connection = new S3Connection(localS3Client, s3Presigner, bucketName);
+        connection.uploadStream(new GeneratedInputStream(1024), SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME,
+                SAMPLE_MIME_TYPE);
+        connection.uploadStream(new GeneratedInputStream(1024), SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME,
+                SAMPLE_MIME_TYPE);
+        assertEquals(1, localS3Client.puts.get());
+        assertEquals(1, connection.getSkippedUploadCount());
+    }
+
+    @Test
+    void uploadFileUploadsWhenDigestCannotBeRead() {
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenReturn(PutObjectResponse.builder().build());
+        s3Connection.uploadFile(new byte[]{1}, SAMPLE_OBJECT_NAME, SAMPLE_FILE_NAME, SAMPLE_MIME_TYPE);
+        assertEquals(1, s3Connection.getUploadCount());
+    }
+
+    private static byte[] sha256(byte[] bytes, int length) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(bytes, 0, length);
+        return digest.digest();
+    }
+
+    /**
+     * Deterministic stream of the given size that is never held in memory as a whole.
+     */
+    private static class GeneratedInputStream extends InputStream {
+
+        private final long size;
+        private long position;
+
+        GeneratedInputStream(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            if (position >= size) {
+                return -1;
+            }
+            return (int) (position++ % 251);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position >= size) {
+                return -1;
+            }
+            int count = (int) Math.min(length, size - position);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) (position++ % 251);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Local stand-in for S3 that only keeps a digest of each received part.
+     */
+    private static class LocalS3Client implements S3Client {
+
+        private final Map<Integer, byte[]> partDigests = new ConcurrentHashMap<>();
+        private final AtomicLong bytesReceived = new AtomicLong();
+        private final AtomicInteger puts = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger aborted = new AtomicInteger();
+        private final AtomicInteger partsInFlight = new AtomicInteger();
+        private final AtomicInteger maxPartsInFlight = new AtomicInteger();
+        private final Map<String, Map<String, String>> metadata = new ConcurrentHashMap<>();
+
+        @Override
+        public PutObjectResponse putObject(PutObjectRequest putObjectRequest, RequestBody requestBody) {
+            puts.incrementAndGet();
+            consume(requestBody);
+            metadata.put(putObjectRequest.key(), putObjectRequest.metadata());
+            return PutObjectResponse.builder().eTag("etag").build();
+        }
+
+        @Override
+        public HeadObjectResponse headObject(HeadObjectRequest headObjectRequest) {
+            Map<String, String> stored = metadata.get(headObjectRequest.key());
+            if (stored == null) {
+                throw NoSuchKeyException.builder().statusCode(404).build();
+            }
+            return HeadObjectResponse.builder().metadata(stored).build();
+        }
+
+        @Override
+        public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+            return CreateMultipartUploadResponse.builder().uploadId("uploadId").build();
+        }
+
+        @Override
+        public UploadPartResponse uploadPart(UploadPartRequest uploadPartRequest, RequestBody requestBody) {
+            maxPartsInFlight.accumulateAndGet(partsInFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            partDigests.put(uploadPartRequest.partNumber(), consume(requestBody));
+            partsInFlight.decrementAndGet();
+            return UploadPartResponse.builder().eTag("etag" + uploadPartRequest.partNumber()).build();
+        }
+
+        @Override
+        public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            completed.incrementAndGet();
+            return CompleteMultipartUploadResponse.builder().build();
+        }
+
+        @Override
+        public CopyObjectResponse copyObject(CopyObjectRequest copyObjectRequest) {
+            metadata.put(copyObjectRequest.destinationKey(), copyObjectRequest.metadata());
+            return CopyObjectResponse.builder().build();
+        }
+
+        @Override
+        public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+            aborted.incrementAndGet();
+            return AbortMultipartUploadResponse.builder().build();
+        }
+
+        private byte[] consume(RequestBody requestBody) {
+            try (InputStream inputStream = requestBody.contentStreamProvider().newStream()) {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                byte[] buffer = new byte[8192];
+                int read = inputStream.read(buffer);
+                while (read != -1) {
+                    digest.update(buffer, 0, read);
+                    bytesReceived.addAndGet(read);
+                    read = inputStream.read(buffer);
+                }
+                return digest.digest();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
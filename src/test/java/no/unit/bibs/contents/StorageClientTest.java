@@ -1,19 +1,57 @@
 package no.unit.bibs.contents;
 
 import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import javax.imageio.ImageIO;
 import nva.commons.core.ioutils.IoUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 
 
@@ -21,6 +59,10 @@ public class StorageClientTest {
 
     public static final String CREATE_CONTENTS_EVENT = "createContentsEvent.json";
     public static final String CREATE_CONTENTS_BASE_64_EVENT = "createContentBase64EncodedImage.json";
+    public static final String TEST_ISBN = "9788205377547";
+    public static final String BASE64_ENCODED_FILE = "aGVsbG8gd29ybGQ=";
+    public static final long UPLOAD_DELAY_MILLIS = 400;
+    public static final Instant UPLOADED = Instant.parse("2021-01-01T00:00:00Z");
 
     private StorageClient storageClient;
     private S3Connection s3Connection;
@@ -65,4 +107,510 @@ public class StorageClientTest {
         assertEquals(mockObjectKey, contentsDocument.getAudioFile());
     }
 
+    @Test
+    void handleFilesUploadsFilesConcurrently() {
+        SlowS3Connection slowS3Connection = new SlowS3Connection();
+        StorageClient client = new StorageClient(slowS3Connection);
+        ContentsDocument contentsDocument = documentWithAllFiles();
+
+        long start = System.currentTimeMillis();
+        client.handleFiles(contentsDocument);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(4, slowS3Connection.uploads.get());
+        assertTrue(elapsed < 4 * UPLOAD_DELAY_MILLIS, "Uploads ran sequentially, took " + elapsed + " ms");
+        assertEquals("files/images/small/7/4/9788205377547.jpg", contentsDocument.getImageSmall());
+        assertEquals("files/images/original/7/4/9788205377547.jpg", contentsDocument.getImageOriginal());
+        assertEquals("files/images/large/7/4/9788205377547.jpg", contentsDocument.getImageLarge());
+        assertEquals("files/audio/mp3/7/4/9788205377547.mp3", contentsDocument.getAudioFile());
+    }
+
+    @Test
+    void handleFilesIsolatesFilesThatCannotBeStored() {
+        SlowS3Connection slowS3Connection = new SlowS3Connection();
+        StorageClient client = new StorageClient(slowS3Connection);
+        ContentsDocument contentsDocument = documentWithAllFiles();
+        contentsDocument.setImageLarge("not a file");
+
+        client.handleFiles(contentsDocument);
+
+        assertEquals(3, slowS3Connection.uploads.get());
+        assertNull(contentsDocument.getImageLarge());
+        assertNotNull(contentsDocument.getImageSmall());
+    }
+
+    @Test
+    void handleFilesAsyncCompletesWithObjectKeysWhenLastUploadIsDone() {
+        SlowS3Connection slowS3Connection = new SlowS3Connection();
+        StorageClient client = new StorageClient(slowS3Connection);
+        ContentsDocument contentsDocument = documentWithAllFiles();
+        contentsDocument.setImageLarge("not a file");
+
+        long start = System.currentTimeMillis();
+        ContentsDocument stored = client.handleFilesAsync(contentsDocument).join();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertSame(contentsDocument, stored);
+        assertEquals(3, slowS3Connection.uploads.get());
+        assertTrue(elapsed < 3 * UPLOAD_DELAY_MILLIS, "Uploads ran sequentially, took " + elapsed + " ms");
+        assertEquals("files/images/small/7/4/9788205377547.jpg", stored.getImageSmall());
+        assertNull(stored.getImageLarge());
+        assertEquals("files/audio/mp3/7/4/9788205377547.mp3", stored.getAudioFile());
+    }
+
+    @Test
+    void handleFilesAsyncFailsWhenAnUploadFails() {
+        when(s3Connection.uploadFileAsync(any(byte[].class), anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException()));
+        CompletableFuture<ContentsDocument> stored = storageClient.handleFilesAsync(documentWithAllFiles());
+        CompletionException exception = assertThrows(CompletionException.class, stored::join);
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void handleFilesDerivesOnlyTheImagesTheSupplierLeftOut() throws IOException {
+        RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+        StorageClient client = new StorageClient(recordingS3Connection);
+        String original = Base64.getEncoder().encodeToString(ImageHelperTest.cover(1200, 1800));
+        String small = Base64.getEncoder().encodeToString(ImageHelperTest.cover(90, 135));
+        ContentsDocument contentsDocument = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null, null,
+                null, null, small, null, original, null, "BOKBASE", null, null);
+
+        client.handleFiles(contentsDocument);
+
+        assertEquals("files/images/small/7/4/9788205377547.jpg", contentsDocument.getImageSmall());
+        assertEquals("files/images/large/7/4/9788205377547.jpg", contentsDocument.getImageLarge());
+        assertEquals("files/images/original/7/4/9788205377547.jpg", contentsDocument.getImageOriginal());
+        assertEquals(3, recordingS3Connection.objects.size());
+        assertEquals(90, recordingS3Connection.width(contentsDocument.getImageSmall()));
+        assertEquals(StorageClient.LARGE_IMAGE_WIDTH, recordingS3Connection.width(contentsDocument.getImageLarge()));
+        assertEquals(1200, recordingS3Connection.width(contentsDocument.getImageOriginal()));
+    }
+
+    @Test
+    void handleFilesDerivesNothingWhenTheSupplierGaveEveryImage() throws IOException {
+        RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+        StorageClient client = new StorageClient(recordingS3Connection);
+        String original = Base64.getEncoder().encodeToString(ImageHelperTest.cover(1200, 1800));
+        String small = Base64.getEncoder().encodeToString(ImageHelperTest.cover(90, 135));
+        String large = Base64.getEncoder().encodeToString(ImageHelperTest.cover(400, 600));
+        ContentsDocument contentsDocument = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null, null,
+                null, null, small, large, original, null, "BOKBASE", null, null);
+
+        client.handleFiles(contentsDocument);
+
+        assertEquals(90, recordingS3Connection.width(contentsDocument.getImageSmall()));
+        assertEquals(400, recordingS3Connection.width(contentsDocument.getImageLarge()));
+        assertEquals(1200, recordingS3Connection.width(contentsDocument.getImageOriginal()));
+    }
+
+    @Test
+    void handleFilesAsyncDerivesImagesFromTheOriginal() throws IOException {
+        RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+        StorageClient client = new StorageClient(recordingS3Connection);
+        String original = Base64.getEncoder().encodeToString(ImageHelperTest.cover(800, 1000));
+        ContentsDocument contentsDocument = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null, null,
+                null, null, null, null, original, null, "BOKBASE", null, null);
+
+        ContentsDocument stored = client.handleFilesAsync(contentsDocument).join();
+
+        assertEquals(3, recordingS3Connection.objects.size());
+        assertEquals(StorageClient.SMALL_IMAGE_WIDTH, recordingS3Connection.width(stored.getImageSmall()));
+        assertEquals(StorageClient.LARGE_IMAGE_WIDTH, recordingS3Connection.width(stored.getImageLarge()));
+    }
+
+    @Test
+    void handleFilesUsesSupplierImagesWhenDerivingIsDisabled() throws IOException {
+        RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+        StorageClient client = new StorageClient(recordingS3Connection, Executors.newSingleThreadExecutor(), false);
+        String original = Base64.getEncoder().encodeToString(ImageHelperTest.cover(1200, 1800));
+        String small = Base64.getEncoder().encodeToString(ImageHelperTest.cover(90, 135));
+        ContentsDocument contentsDocument = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null, null,
+                null, null, small, null, original, null, "BOKBASE", null, null);
+
+        client.handleFiles(contentsDocument);
+
+        assertEquals(2, recordingS3Connection.objects.size());
+        assertEquals(90, recordingS3Connection.width(contentsDocument.getImageSmall()));
+        assertNull(contentsDocument.getImageLarge());
+    }
+
+    @Test
+    void handleFilesKeepsObjectKeysOfFilesUploadedByTheClient() {
+        RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+        StorageClient client = new StorageClient(recordingS3Connection, Executors.newSingleThreadExecutor(), false);
+        String audioKey = "files/audio/mp3/7/4/9788205377547.mp3";
+        recordingS3Connection.objects.put(audioKey, new byte[]{1});
+        ContentsDocument contentsDocument = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null, null,
+                null, null, null, null, null, audioKey, "BOKBASE", null, null);
+
+        ContentsDocument stored = client.handleFilesAsync(contentsDocument).join();
+
+        assertEquals(audioKey, stored.getAudioFile());
+        assertEquals(1, recordingS3Connection.objects.size());
+    }
+
+    @Test
+    void handleFilesDropsObjectKeysOfFilesNeverUploaded() {
+        RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+        StorageClient client = new StorageClient(recordingS3Connection, Executors.newSingleThreadExecutor(), true);
+        String audioKey = "files/audio/mp3/7/4/9788205377547.mp3";
+        String originalKey = "files/images/original/7/4/9788205377547.jpg";
+        ContentsDocument contentsDocument = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null, null,
+                null, null, null, null, originalKey, audioKey, "BOKBASE", null, null);
+
+        ContentsDocument stored = client.handleFilesAsync(contentsDocument).join();
+
+        assertNull(stored.getAudioFile());
+        assertNull(stored.getImageOriginal());
+        assertNull(stored.getImageSmall());
+        assertTrue(recordingS3Connection.objects.isEmpty());
+    }
+
+    @Test
+    void handleFilesDerivesImagesFromOriginalUploadedByTheClient() throws IOException {
+        RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+        String originalKey = "files/images/original/7/4/9788205377547.jpg";
+        recordingS3Connection.objects.put(originalKey, ImageHelperTest.cover(1200, 1800));
+        StorageClient client = new StorageClient(recordingS3Connection);
+        ContentsDocument contentsDocument = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null, null,
+                null, null, null, null, originalKey, null, "BOKBASE", null, null);
+
+        client.handleFiles(contentsDocument);
+
+        assertEquals(originalKey, contentsDocument.getImageOriginal());
+        assertEquals(3, recordingS3Connection.objects.size());
+        assertEquals(StorageClient.SMALL_IMAGE_WIDTH, recordingS3Connection.width(contentsDocument.getImageSmall()));
+        assertEquals(StorageClient.LARGE_IMAGE_WIDTH, recordingS3Connection.width(contentsDocument.getImageLarge()));
+    }
+
+    @Test
+    void handleFilesDownloadsEachFileGivenByUrlWithOneRequest() throws IOException {
+        byte[] small = {1, 2, 3};
+        byte[] audio = {4, 5, 6, 7};
+        try (FileServer server = new FileServer(Map.of("/small.jpg", small, "/audio.mp3", audio),
+                Map.of("/moved.mp3", "/audio.mp3"))) {
+            RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+            StorageClient client = new StorageClient(recordingS3Connection, Executors.newSingleThreadExecutor(),
+                    false);
+            ContentsDocument contentsDocument = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null,
+                    null, null, null, server.url("/small.jpg"), server.url("/missing.jpg"), null,
+                    server.url("/moved.mp3"), "BOKBASE", null, null);
+
+            client.handleFiles(contentsDocument);
+
+            assertArrayEquals(small, recordingS3Connection.objects.get(contentsDocument.getImageSmall()));
+            assertNull(contentsDocument.getImageLarge());
+            assertArrayEquals(audio, recordingS3Connection.objects.get(contentsDocument.getAudioFile()));
+            assertEquals(2, recordingS3Connection.objects.size());
+            assertEquals(Map.of("/small.jpg", 1L, "/missing.jpg", 1L, "/moved.mp3", 1L, "/audio.mp3", 1L),
+                    server.requestCounts());
+            assertEquals(server.port("/missing.jpg"), server.port("/moved.mp3"),
+                    "The body of the not found response was not read, so its connection was not reused");
+        }
+    }
+
+    @Test
+    void handleFilesDownloadsTheOriginalOnceToDeriveImagesFrom() throws IOException {
+        try (FileServer server = new FileServer(Map.of("/original.jpg", ImageHelperTest.cover(1200, 1800)),
+                Map.of("/moved.jpg", "/original.jpg"))) {
+            RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+            StorageClient client = new StorageClient(recordingS3Connection);
+            ContentsDocument contentsDocument = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null,
+                    null, null, null, null, null, server.url("/moved.jpg"), null, "BOKBASE", null, null);
+
+            client.handleFiles(contentsDocument);
+
+            assertEquals("files/images/original/7/4/9788205377547.jpg", contentsDocument.getImageOriginal());
+            assertEquals(3, recordingS3Connection.objects.size());
+            assertEquals(StorageClient.SMALL_IMAGE_WIDTH,
+                    recordingS3Connection.width(contentsDocument.getImageSmall()));
+            assertEquals(StorageClient.LARGE_IMAGE_WIDTH,
+                    recordingS3Connection.width(contentsDocument.getImageLarge()));
+            assertEquals(Map.of("/moved.jpg", 1L, "/original.jpg", 1L), server.requestCounts());
+        }
+    }
+
+    @Test
+    void handleFilesLeavesImagesEmptyWhenTheOriginalIsNotFound() throws IOException {
+        byte[] audio = {4, 5, 6, 7};
+        try (FileServer server = new FileServer(Map.of("/audio.mp3", audio), Map.of())) {
+            RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+            StorageClient client = new StorageClient(recordingS3Connection, Executors.newSingleThreadExecutor(),
+                    true);
+            ContentsDocument contentsDocument = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null,
+                    null, null, null, null, null, server.url("/missing.jpg"), server.url("/audio.mp3"), "BOKBASE",
+                    null, null);
+
+            client.handleFiles(contentsDocument);
+
+            assertNull(contentsDocument.getImageOriginal());
+            assertNull(contentsDocument.getImageSmall());
+            assertNull(contentsDocument.getImageLarge());
+            assertArrayEquals(audio, recordingS3Connection.objects.get(contentsDocument.getAudioFile()));
+            assertEquals(Map.of("/missing.jpg", 1L, "/audio.mp3", 1L), server.requestCounts());
+            assertEquals(server.port("/missing.jpg"), server.port("/audio.mp3"),
+                    "The body of the not found response was not read, so its connection was not reused");
+        }
+    }
+
+    @Test
+    void resentFilesGivenByUrlAreOnlyDownloadedWhenModifiedSinceTheyWereWritten() throws IOException {
+        byte[] small = {1, 2, 3};
+        byte[] audio = {4, 5, 6, 7};
+        try (FileServer server = new FileServer(Map.of("/small.jpg", small, "/audio.mp3", audio), Map.of())) {
+            RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+            StorageClient client = new StorageClient(recordingS3Connection, Executors.newSingleThreadExecutor(),
+                    false);
+            ContentsDocument contentsDocument = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null,
+                    null, null, null, server.url("/small.jpg"), null, null, server.url("/audio.mp3"), "BOKBASE",
+                    null, null);
+
+            ContentsDocument stored = client.handleFilesAsync(contentsDocument,
+                    Set.of(ContentsDocument.IMAGE_SMALL, ContentsDocument.AUDIO_FILE), UPLOADED).join();
+
+            assertNull(stored.getImageSmall());
+            assertNull(stored.getAudioFile());
+            assertTrue(recordingS3Connection.objects.isEmpty());
+            assertEquals(Map.of("/small.jpg", 1L, "/audio.mp3", 1L), server.requestCounts());
+
+            ContentsDocument modified = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null,
+                    null, null, null, server.url("/small.jpg"), null, null, null, "BOKBASE", null, null);
+            client.handleFilesAsync(modified, Set.of(ContentsDocument.IMAGE_SMALL),
+                    FileServer.FILE_LAST_MODIFIED.minusSeconds(1)).join();
+
+            assertArrayEquals(small, recordingS3Connection.objects.get(modified.getImageSmall()));
+        }
+    }
+
+    @Test
+    void resentOriginalNotModifiedLeavesAllImagesEmpty() throws IOException {
+        try (FileServer server = new FileServer(Map.of("/original.jpg", ImageHelperTest.cover(1200, 1800)),
+                Map.of())) {
+            RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+            StorageClient client = new StorageClient(recordingS3Connection);
+            ContentsDocument contentsDocument = new ContentsDocument(null, null, null, TEST_ISBN, null, null, null,
+                    null, null, null, null, null, server.url("/original.jpg"), null, "BOKBASE", null, null);
+
+            ContentsDocument stored = client.handleFilesAsync(contentsDocument,
+                    Set.of(ContentsDocument.IMAGE_ORIGINAL), UPLOADED).join();
+
+            assertNull(stored.getImageOriginal());
+            assertNull(stored.getImageSmall());
+            assertNull(stored.getImageLarge());
+            assertTrue(recordingS3Connection.objects.isEmpty());
+            assertEquals(Map.of("/original.jpg", 1L), server.requestCounts());
+        }
+    }
+
+    @Test
+    void resentInlineFilesAreNotUploadedAgain() {
+        RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+        StorageClient client = new StorageClient(recordingS3Connection, Executors.newSingleThreadExecutor(), false);
+        ContentsDocument contentsDocument = documentWithAllFiles();
+
+        ContentsDocument stored = client.handleFilesAsync(contentsDocument, Set.of(ContentsDocument.IMAGE_SMALL,
+                ContentsDocument.IMAGE_LARGE, ContentsDocument.AUDIO_FILE), UPLOADED).join();
+
+        assertNull(stored.getImageSmall());
+        assertNull(stored.getImageLarge());
+        assertNull(stored.getAudioFile());
+        assertEquals("files/images/original/7/4/9788205377547.jpg", stored.getImageOriginal());
+        assertEquals(Set.of(stored.getImageOriginal()), recordingS3Connection.objects.keySet());
+    }
+
+    @Test
+    void resentObjectKeysAreKeptOnlyWhenUploadedAfterTheyWereWritten() {
+        RecordingS3Connection recordingS3Connection = new RecordingS3Connection();
+        StorageClient client = new StorageClient(recordingS3Connection, Executors.newSingleThreadExecutor(), true);
+        String audioKey = "files/audio/mp3/7/4/9788205377547.mp3";
+        String originalKey = "files/images/original/7/4/9788205377547.jpg";
+        recordingS3Connection.objects.put(audioKey, new byte[]{1});
+        recordingS3Connection.objects.put(originalKey, new byte[]{2});
+        Set<String> resent = Set.of(ContentsDocument.AUDIO_FILE, ContentsDocument.IMAGE_ORIGINAL);
+
+        ContentsDocument unchanged = client.handleFilesAsync(new ContentsDocument(null, null, null, TEST_ISBN, null,
+                null, null, null, null, null, null, null, originalKey, audioKey, "BOKBASE", null, null), resent,
+                UPLOADED).join();
+        ContentsDocument uploaded = client.handleFilesAsync(new ContentsDocument(null, null, null, TEST_ISBN, null,
+                null, null, null, null, null, null, null, null, audioKey, "BOKBASE", null, null), resent,
+                Instant.EPOCH).join();
+
+        assertNull(unchanged.getAudioFile());
+        assertNull(unchanged.getImageOriginal());
+        assertEquals(audioKey, uploaded.getAudioFile());
+    }
+
+    @Test
+    void startUploadSessionPresignsSinglePutForSmallFiles() {
+        S3Connection connection = new S3Connection(mock(S3Client.class), presigner(), "bucketname");
+        StorageClient client = new StorageClient(connection);
+
+        UploadSessionResponse session = client.startUploadSession(TEST_ISBN, StorageClient.SMALL, 1024L);
+
+        assertEquals("files/images/small/7/4/9788205377547.jpg", session.getObjectKey());
+        assertTrue(session.getUploadUrl().contains(session.getObjectKey()));
+        assertTrue(session.getHeaders().keySet().stream().noneMatch(StorageClient.HOST::equalsIgnoreCase));
+        assertNull(session.getUploadId());
+        assertNotNull(session.getExpires());
+    }
+
+    @Test
+    void startUploadSessionPresignsPartsForLargeFiles() {
+        S3Client s3Client = mock(S3Client.class);
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("uploadId").build());
+        StorageClient client = new StorageClient(new S3Connection(s3Client, presigner(), "bucketname"));
+
+        UploadSessionResponse session = client.startUploadSession(TEST_ISBN, StorageClient.MP3,
+                2L * S3Connection.PART_SIZE_BYTES + 1);
+
+        assertEquals("files/audio/mp3/7/4/9788205377547.mp3", session.getObjectKey());
+        assertEquals("uploadId", session.getUploadId());
+        assertEquals(S3Connection.PART_SIZE_BYTES, session.getPartSize());
+        assertEquals(3, session.getPartUrls().size());
+        assertTrue(session.getPartUrls().get(2).contains("partNumber=3"));
+        assertTrue(session.getCompleteUrl().contains("uploadId=uploadId"));
+        assertTrue(session.getAbortUrl().contains("uploadId=uploadId"));
+        assertNull(session.getUploadUrl());
+    }
+
+    private static S3Presigner presigner() {
+        return S3Presigner.builder()
+                .region(Region.EU_WEST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("id", "secret")))
+                .build();
+    }
+
+    private ContentsDocument documentWithAllFiles() {
+        return new ContentsDocument(null, null, null, TEST_ISBN, null, null, null, null, null, null,
+                BASE64_ENCODED_FILE, BASE64_ENCODED_FILE, BASE64_ENCODED_FILE, BASE64_ENCODED_FILE,
+                "BOKBASE", null, null);
+    }
+
+    private static class RecordingS3Connection extends S3Connection {
+
+        private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+        RecordingS3Connection() {
+            super(null, null, "bucketname");
+        }
+
+        @Override
+        protected void uploadFile(byte[] bytesArray, String objectName, String filename, String mimeType) {
+            objects.put(objectName, bytesArray);
+        }
+
+        @Override
+        protected void uploadStream(InputStream inputStream, String objectName, String filename, String mimeType)
+                throws IOException {
+            objects.put(objectName, inputStream.readAllBytes());
+        }
+
+        @Override
+        protected Optional<byte[]> readObject(String objectName, int maxBytes) {
+            return Optional.ofNullable(objects.get(objectName));
+        }
+
+        @Override
+        protected Optional<Instant> uploadedAt(String objectName, String mimeType) {
+            return objects.containsKey(objectName) ? Optional.of(UPLOADED) : Optional.empty();
+        }
+
+        int width(String objectName) throws IOException {
+            return ImageIO.read(new ByteArrayInputStream(objects.get(objectName))).getWidth();
+        }
+    }
+
+    /**
+     * Serves files over HTTP on the loopback interface, answering not found, with a body, for any other path.
+     * Every file was last modified at {@link #FILE_LAST_MODIFIED}, and conditional requests are answered with not
+     * modified. Records the path and the client port of every request, so that tests can count requests and see
+     * whether a connection was reused.
+     */
+    private static final class FileServer implements AutoCloseable {
+
+        private static final String LOOPBACK = "127.0.0.1";
+        private static final byte[] NOT_FOUND_BODY = "not found".getBytes(StandardCharsets.UTF_8);
+        private static final Instant FILE_LAST_MODIFIED = Instant.parse("2020-01-01T00:00:00Z");
+
+        private final HttpServer server;
+        private final Map<String, byte[]> files;
+        private final Map<String, String> redirects;
+        private final List<Map.Entry<String, Integer>> requests = new CopyOnWriteArrayList<>();
+
+        FileServer(Map<String, byte[]> files, Map<String, String> redirects) throws IOException {
+            this.files = files;
+            this.redirects = redirects;
+            server = HttpServer.create(new InetSocketAddress(LOOPBACK, 0), 0);
+            server.createContext("/", this::respond);
+            server.start();
+        }
+
+        String url(String path) {
+            return "http://" + LOOPBACK + ":" + server.getAddress().getPort() + path;
+        }
+
+        Map<String, Long> requestCounts() {
+            return requests.stream().collect(Collectors.groupingBy(Map.Entry::getKey, Collectors.counting()));
+        }
+
+        int port(String path) {
+            return requests.stream().filter(request -> request.getKey().equals(path))
+                    .findFirst().orElseThrow().getValue();
+        }
+
+        private void respond(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            requests.add(Map.entry(path, exchange.getRemoteAddress().getPort()));
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            if (redirects.containsKey(path)) {
+                exchange.getResponseHeaders().add("Location", url(redirects.get(path)));
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_MOVED_TEMP, -1);
+                exchange.close();
+                return;
+            }
+            String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+            if (files.containsKey(path) && ifModifiedSince != null && !FILE_LAST_MODIFIED.isAfter(
+                    ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant())) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME
+                    .format(FILE_LAST_MODIFIED.atZone(ZoneOffset.UTC)));
+            byte[] body = files.getOrDefault(path, NOT_FOUND_BODY);
+            exchange.sendResponseHeaders(files.containsKey(path)
+                    ? HttpURLConnection.HTTP_OK
+                    : HttpURLConnection.HTTP_NOT_FOUND, body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+        }
+    }
+
+    private static class SlowS3Connection extends S3Connection {
+
+        private final AtomicInteger uploads = new AtomicInteger();
+
+        SlowS3Connection() {
+            super(null, null, "bucketname");
+        }
+
+        @Override
+        protected void uploadFile(byte[] bytesArray, String objectName, String filename, String mimeType) {
+            try {
+                Thread.sleep(UPLOAD_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            uploads.incrementAndGet();
+        }
+    }
+
 }
@@ -1,8 +1,12 @@
 package no.unit.bibs.contents;
 
+import org.apache.commons.text.StringEscapeUtils;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class StringHelperTest {
@@ -15,6 +19,44 @@ class StringHelperTest {
         input = "Å være utvikler er gøy.";
         assertFalse(StringHelper.isValidHtmlEscapeCode(input));
 
+        assertFalse(StringHelper.isValidHtmlEscapeCode(null));
+        assertFalse(StringHelper.isValidHtmlEscapeCode("Smith & Wesson &unknown; &#xD800;"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void unescapeHtmlDecodesNamedAndNumericEntities() {
+        assertEquals("Økonomi er gøy.", StringHelper.unescapeHtml("&Oslash;konomi er g&oslash;y."));
+        assertEquals("Æ æ ' \" < > &", StringHelper.unescapeHtml("&AElig; &aelig; &apos; &quot; &lt; &gt; &amp;"));
+        assertEquals("AAå", StringHelper.unescapeHtml("&#65;&#x41;&#XE5;"));
+        assertEquals("😀", StringHelper.unescapeHtml("&#x1F600;"));
+        assertEquals("∉¬", StringHelper.unescapeHtml("&notin;&not;"));
+        assertEquals("&amp;", StringHelper.unescapeHtml("&amp;amp;"));
+    }
+
+    @Test
+    public void unescapeHtmlKeepsWhatIsNotAnEntity() {
+        String[] inputs = {"&", "a&", "&amp", "&#;", "&#x;", "&#12345678;", "&#x1234567;", "&#xD800;", "&#x110000;",
+            "&unknown;", "&Amp;", "&#١٢;", "&ø;", "R&D", "&am;"};
+        for (String input : inputs) {
+            assertEquals(input, StringHelper.unescapeHtml(input));
+        }
+        assertEquals("&unknown; <", StringHelper.unescapeHtml("&unknown; &lt;"));
+    }
+
+    @Test
+    public void unescapeHtmlReturnsSameInstanceWhenNothingIsDecoded() {
+        String plain = "Å være utvikler er gøy.";
+        assertSame(plain, StringHelper.unescapeHtml(plain));
+        String unknown = "Smith & Wesson";
+        assertSame(unknown, StringHelper.unescapeHtml(unknown));
+        assertNull(StringHelper.unescapeHtml(null));
+    }
+
+    @Test
+    public void unescapeHtmlAgreesWithUnescapeHtml4ForHtml4Entities() {
+        String input = "&laquo;Pelsjegerliv&raquo; &ndash; Helge Ingstad &copy; 1931. Bl&aring; &eacute;t&eacute; "
+                + "&#8364;&#x20AC;&euro; &thetasym;&sup3;&frac34; &nbsp;&hellip;";
+        assertEquals(StringEscapeUtils.unescapeHtml4(input), StringHelper.unescapeHtml(input));
+    }
+
+}
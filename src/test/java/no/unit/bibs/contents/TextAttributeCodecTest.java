@@ -0,0 +1,75 @@
+package no.unit.bibs.contents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+public class TextAttributeCodecTest {
+
+    public static final String LONG_TEXT = "Pelsjegerliv er beretningen om årene i arktiske Canada. ".repeat(40);
+
+    @Test
+    public void encodeCompressesLongTextAndDecodeRestoresIt() {
+        AttributeValue encoded = TextAttributeCodec.encode(LONG_TEXT);
+
+        assertNull(encoded.s());
+        assertNotNull(encoded.b());
+        assertEquals(TextAttributeCodec.DEFLATE, encoded.b().asByteArray()[0]);
+        assertTrue(encoded.b().asByteArray().length < LONG_TEXT.getBytes(StandardCharsets.UTF_8).length / 2);
+        assertEquals(LONG_TEXT, TextAttributeCodec.decode(encoded));
+    }
+
+    @Test
+    public void encodeKeepsShortTextAsString() {
+        AttributeValue encoded = TextAttributeCodec.encode("Kort beskrivelse");
+
+        assertEquals("Kort beskrivelse", encoded.s());
+        assertNull(encoded.b());
+    }
+
+    @Test
+    public void encodeCompressesFromTheThresholdInUtf8Bytes() {
+        String belowThreshold = "ø".repeat(TextAttributeCodec.COMPRESSION_THRESHOLD_BYTES / 2 - 1) + "a";
+        String atThreshold = "ø".repeat(TextAttributeCodec.COMPRESSION_THRESHOLD_BYTES / 2);
+
+        assertEquals(belowThreshold, TextAttributeCodec.encode(belowThreshold).s());
+        assertNotNull(TextAttributeCodec.encode(atThreshold).b());
+    }
+
+    @Test
+    public void decodeReadsPlainStringsAsTheyAre() {
+        assertEquals(LONG_TEXT, TextAttributeCodec.decode(AttributeValue.builder().s(LONG_TEXT).build()));
+        assertNull(TextAttributeCodec.decode(AttributeValue.builder().n("1").build()));
+    }
+
+    @Test
+    public void decodeRejectsUnknownFormat() {
+        AttributeValue unknown = AttributeValue.builder().b(SdkBytes.fromByteArray(new byte[]{9, 1, 2})).build();
+        AttributeValue empty = AttributeValue.builder().b(SdkBytes.fromByteArray(new byte[0])).build();
+
+        assertThrows(IllegalStateException.class, () -> TextAttributeCodec.decode(unknown));
+        assertThrows(IllegalStateException.class, () -> TextAttributeCodec.decode(empty));
+    }
+
+    @Test
+    public void decodeRejectsCorruptText() {
+        byte[] compressed = TextAttributeCodec.encode(LONG_TEXT).b().asByteArray();
+        AttributeValue truncated = AttributeValue.builder()
+                .b(SdkBytes.fromByteArray(Arrays.copyOf(compressed, compressed.length / 2)))
+                .build();
+        AttributeValue garbage = AttributeValue.builder()
+                .b(SdkBytes.fromByteArray(new byte[]{TextAttributeCodec.DEFLATE, 7, 7, 7, 7}))
+                .build();
+
+        assertThrows(IllegalStateException.class, () -> TextAttributeCodec.decode(truncated));
+        assertThrows(IllegalStateException.class, () -> TextAttributeCodec.decode(garbage));
+    }
+}
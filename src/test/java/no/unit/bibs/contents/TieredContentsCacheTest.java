@@ -0,0 +1,68 @@
+package no.unit.bibs.contents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TieredContentsCacheTest {
+
+    public static final String ISBN = "9788205377547";
+    public static final ContentsDocument CONTENTS = new ContentsDocument("title", null, null, "9788205377547",
+            "description", null, null, null, null, null, null, null, null, null, "BOKBASE", null, null);
+    private LruContentsCache firstTier;
+    private InMemoryContentsCache secondTier;
+    private TieredContentsCache cache;
+
+    /**
+     * javadoc for checkstyle.
+     */
+    @BeforeEach
+    public void init() {
+        firstTier = new LruContentsCache(10, Duration.ofMinutes(1));
+        secondTier = new InMemoryContentsCache();
+        cache = new TieredContentsCache(firstTier, secondTier);
+    }
+
+    @Test
+    public void putWritesBothTiersAndInvalidateClearsBoth() {
+        cache.put(ISBN, CONTENTS);
+        assertEquals(1, firstTier.size());
+        assertEquals(1, secondTier.size());
+        cache.invalidate(ISBN);
+        assertEquals(0, firstTier.size());
+        assertEquals(0, secondTier.size());
+    }
+
+    @Test
+    public void secondTierHitIsCopiedToFirstTier() {
+        secondTier.put(ISBN, CONTENTS);
+        assertEquals(Optional.of(CONTENTS), cache.get(ISBN));
+        assertEquals(Optional.of(CONTENTS), cache.get(ISBN));
+        assertEquals(1, cache.getSecondTierHitCount());
+        assertEquals(1, cache.getFirstTierHitCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void missIsCounted() {
+        assertTrue(cache.get(ISBN).isEmpty());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void cacheWithoutSecondTierOnlyUsesFirstTier() {
+        TieredContentsCache firstTierOnly = new TieredContentsCache(firstTier);
+        firstTierOnly.put(ISBN, CONTENTS);
+        assertEquals(Optional.of(CONTENTS), firstTierOnly.get(ISBN));
+        firstTierOnly.invalidate(ISBN);
+        assertTrue(firstTierOnly.get(ISBN).isEmpty());
+        assertEquals(1, firstTierOnly.getMissCount());
+    }
+
+}
@@ -5,10 +5,15 @@ import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
 import static nva.commons.apigateway.ApiGatewayHandler.ALLOWED_ORIGIN_ENV;
 import static nva.commons.core.StringUtils.EMPTY_STRING;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.services.lambda.runtime.Context;
@@ -16,17 +21,23 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import java.net.HttpURLConnection;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+import no.unit.bibs.contents.exception.CommunicationException;
 import no.unit.bibs.contents.exception.ParameterException;
 import nva.commons.core.ioutils.IoUtils;
 import nva.commons.apigateway.RequestInfo;
 import nva.commons.apigateway.exceptions.ApiGatewayException;
 import nva.commons.apigateway.exceptions.BadRequestException;
 import nva.commons.apigateway.exceptions.ConflictException;
-import nva.commons.apigateway.exceptions.NotFoundException;
 import nva.commons.core.Environment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 class UpdateContentsApiHandlerTest {
 
@@ -36,6 +47,7 @@ class UpdateContentsApiHandlerTest {
     private UpdateContentsApiHandler handler;
 
     public static final String CREATE_CONTENTS_EVENT = "createContentsEvent.json";
+    private static final Instant WRITTEN = Instant.parse("2022-05-01T10:15:30Z");
 
     /**
      * javadoc for checkstyle.
@@ -59,9 +71,13 @@ class UpdateContentsApiHandlerTest {
         String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
         ContentsDocument contentsDocument = dtoObjectMapper.readValue(contents, ContentsDocument.class);
         ContentsRequest request = new ContentsRequest(contentsDocument);
-        when(dynamoDbclient.getContents(anyString())).thenReturn(contents);
+        when(storageClient.handleFilesAsync(contentsDocument, Set.of(), null))
+                .thenReturn(CompletableFuture.completedFuture(contentsDocument));
+        when(dynamoDbclient.upsertContentsAsync(contentsDocument))
+                .thenReturn(CompletableFuture.completedFuture(contentsDocument));
         var actual = handler.processInput(request, new RequestInfo(), mock(Context.class));
         assertEquals(contentsDocument, actual);
+        verify(dynamoDbclient, never()).getContents(anyString());
     }
 
     @Test
@@ -81,7 +97,7 @@ class UpdateContentsApiHandlerTest {
     }
 
     @Test
-    public void testGetContentsNotFoundWithFinalCrashing() throws ApiGatewayException, JsonProcessingException {
+    public void testUpsertContentsFailing() throws ApiGatewayException, JsonProcessingException {
         DynamoDBClient client = mock(DynamoDBClient.class);
         StorageClient storageClient = mock(StorageClient.class);
         Environment environment = mock(Environment.class);
@@ -90,14 +106,17 @@ class UpdateContentsApiHandlerTest {
         String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
         ContentsDocument contentsDocument = dtoObjectMapper.readValue(contents, ContentsDocument.class);
         ContentsRequest request = new ContentsRequest(contentsDocument);
-        when(client.getContents(anyString())).thenThrow(NotFoundException.class);
-        Exception exception = assertThrows(NotFoundException.class, () -> {
+        when(storageClient.handleFilesAsync(contentsDocument, Set.of(), null))
+                .thenReturn(CompletableFuture.completedFuture(contentsDocument));
+        when(client.upsertContentsAsync(contentsDocument)).thenReturn(CompletableFuture.failedFuture(
+                new CommunicationException(DynamoDBClient.UPSERT_ERROR, new IllegalStateException())));
+        Exception exception = assertThrows(ConflictException.class, () -> {
             handler.processInput(request, new RequestInfo(), mock(Context.class));
         });
     }
 
     @Test
-    public void testGetContentsNotFound() throws ApiGatewayException, JsonProcessingException {
+    public void testUpsertContentsCrashing() throws ApiGatewayException, JsonProcessingException {
         DynamoDBClient client = mock(DynamoDBClient.class);
         StorageClient storageClient = mock(StorageClient.class);
         Environment environment = mock(Environment.class);
@@ -106,27 +125,105 @@ class UpdateContentsApiHandlerTest {
         String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
         ContentsDocument contentsDocument = dtoObjectMapper.readValue(contents, ContentsDocument.class);
         ContentsRequest request = new ContentsRequest(contentsDocument);
-        when(client.getContents(anyString())).thenThrow(NotFoundException.class).thenReturn(contents);
-        var actual = handler.processInput(request, new RequestInfo(), mock(Context.class));
-        assertEquals(contentsDocument, actual);
+        when(storageClient.handleFilesAsync(contentsDocument, Set.of(), null))
+                .thenReturn(CompletableFuture.completedFuture(contentsDocument));
+        when(client.upsertContentsAsync(contentsDocument)).thenThrow(IllegalArgumentException.class);
+        Exception exception = assertThrows(ConflictException.class, () -> {
+            handler.processInput(request, new RequestInfo(), mock(Context.class));
+        });
     }
 
+
     @Test
-    public void testGetContentsNotFoundThenCrashing() throws ApiGatewayException, JsonProcessingException {
-        DynamoDBClient client = mock(DynamoDBClient.class);
-        StorageClient storageClient = mock(StorageClient.class);
-        Environment environment = mock(Environment.class);
-        when(environment.readEnv(ALLOWED_ORIGIN_ENV)).thenReturn("*");
-        UpdateContentsApiHandler handler = new UpdateContentsApiHandler(environment, client, storageClient);
+    public void testStoringFilesFailingIsNotReportedAsConflict() throws ApiGatewayException, JsonProcessingException {
         String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
         ContentsDocument contentsDocument = dtoObjectMapper.readValue(contents, ContentsDocument.class);
         ContentsRequest request = new ContentsRequest(contentsDocument);
-        when(client.getContents(anyString())).thenThrow(IllegalArgumentException.class);
-        Exception exception = assertThrows(ConflictException.class, () -> {
-            handler.processInput(request, new RequestInfo(), mock(Context.class));
+        when(storageClient.handleFilesAsync(contentsDocument, Set.of(), null))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException()));
+        assertThrows(IllegalStateException.class,
+            () -> handler.processInput(request, new RequestInfo(), mock(Context.class)));
+        verify(dynamoDBClient, never()).upsertContentsAsync(contentsDocument);
+    }
+
+    @Test
+    public void unchangedContentsAreNeitherTransferredNorWritten() throws ApiGatewayException, JsonProcessingException {
+        String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
+        ContentsDocument contentsDocument = dtoObjectMapper.readValue(contents, ContentsDocument.class);
+        ContentsDocument storedDocument = dtoObjectMapper.readValue(contents, ContentsDocument.class);
+        Map<String, String> digests = DynamoDBClient.attributeDigests(contentsDocument);
+        when(dynamoDBClient.getStoredContents(TEST_ISBN))
+                .thenReturn(Optional.of(new StoredContents(digests, WRITTEN, () -> storedDocument)));
+        when(storageClient.handleFilesAsync(any(), any(), any())).thenAnswer(invocation -> {
+            ContentsDocument transferred = invocation.getArgument(0);
+            transferred.setImageSmall(null);
+            return CompletableFuture.completedFuture(transferred);
         });
+
+        var actual = handler.processInput(new ContentsRequest(contentsDocument), new RequestInfo(),
+                mock(Context.class));
+
+        assertEquals(storedDocument, actual);
+        assertEquals(HttpURLConnection.HTTP_OK, handler.getSuccessStatusCode(null, actual));
+        ArgumentCaptor<ContentsDocument> changed = ArgumentCaptor.forClass(ContentsDocument.class);
+        verify(storageClient).handleFilesAsync(changed.capture(), eq(Set.of(ContentsDocument.IMAGE_SMALL)),
+                eq(WRITTEN));
+        assertNull(changed.getValue().getTitle());
+        verify(dynamoDBClient, never()).upsertContentsAsync(any());
+        verify(dynamoDBClient, never()).getContents(anyString());
+        verify(dynamoDBClient).countUpdate(TEST_ISBN, digests.size(), digests.size(), false);
+    }
+
+    @Test
+    public void changedFileIsWrittenEvenWhenItsUrlIsUnchanged() throws ApiGatewayException, JsonProcessingException {
+        String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
+        ContentsDocument contentsDocument = dtoObjectMapper.readValue(contents, ContentsDocument.class);
+        Map<String, String> digests = DynamoDBClient.attributeDigests(contentsDocument);
+        when(dynamoDBClient.getStoredContents(TEST_ISBN))
+                .thenReturn(Optional.of(new StoredContents(digests, WRITTEN, () -> contentsDocument)));
+        when(storageClient.handleFilesAsync(any(), any(), any()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+        when(dynamoDBClient.upsertContentsAsync(any()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+
+        var actual = handler.processInput(new ContentsRequest(contentsDocument), new RequestInfo(),
+                mock(Context.class));
+
+        assertEquals(contentsDocument.getImageSmall(), actual.getImageSmall());
+        assertNull(actual.getTitle());
+        assertEquals(HttpURLConnection.HTTP_CREATED, handler.getSuccessStatusCode(null, actual));
+        verify(dynamoDBClient).countUpdate(TEST_ISBN, digests.size() - 1, digests.size(), true);
     }
 
+    @Test
+    public void onlyChangedFieldsAreTransferredAndWritten() throws ApiGatewayException, JsonProcessingException {
+        String contents = IoUtils.stringFromResources(Path.of(CREATE_CONTENTS_EVENT));
+        ContentsDocument contentsDocument = dtoObjectMapper.readValue(contents, ContentsDocument.class);
+        Map<String, String> digests = DynamoDBClient.attributeDigests(contentsDocument);
+        Map<String, String> storedDigests = Map.of(ContentsDocument.TITLE, digests.get(ContentsDocument.TITLE),
+                ContentsDocument.DESCRIPTION_SHORT, digests.get(ContentsDocument.DESCRIPTION_SHORT));
+        when(dynamoDBClient.getStoredContents(TEST_ISBN))
+                .thenReturn(Optional.of(new StoredContents(storedDigests, WRITTEN, () -> contentsDocument)));
+        when(storageClient.handleFilesAsync(any(), any(), any()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+        when(dynamoDBClient.upsertContentsAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(contentsDocument));
+
+        handler.processInput(new ContentsRequest(contentsDocument), new RequestInfo(), mock(Context.class));
+
+        ArgumentCaptor<ContentsDocument> changed = ArgumentCaptor.forClass(ContentsDocument.class);
+        verify(storageClient).handleFilesAsync(changed.capture(), eq(Set.of()), eq(WRITTEN));
+        ContentsDocument written = changed.getValue();
+        assertNull(written.getTitle());
+        assertNull(written.getDescriptionShort());
+        assertEquals(contentsDocument.getImageSmall(), written.getImageSmall());
+        assertEquals(contentsDocument.getAuthor(), written.getAuthor());
+        assertEquals(contentsDocument.getSource(), written.getSource());
+        assertEquals(digests, written.getAttributeDigests());
+        verify(dynamoDBClient).upsertContentsAsync(written);
+        verify(dynamoDBClient, never()).getContents(anyString());
+        assertEquals(HttpURLConnection.HTTP_CREATED, handler.getSuccessStatusCode(null, written));
+    }
 
     @Test
     void getSuccessStatusCodeReturnsOK() {
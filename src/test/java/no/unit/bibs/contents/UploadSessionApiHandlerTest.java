@@ -0,0 +1,107 @@
+package no.unit.bibs.contents;
+
+import static no.unit.bibs.contents.CreateContentsApiHandlerTest.TEST_ISBN;
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import static nva.commons.apigateway.ApiGatewayHandler.ALLOWED_ORIGIN_ENV;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.net.HttpURLConnection;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import nva.commons.apigateway.RequestInfo;
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import nva.commons.apigateway.exceptions.BadRequestException;
+import nva.commons.core.Environment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class UploadSessionApiHandlerTest {
+
+    public static final String OBJECT_KEY = "files/audio/mp3/7/4/9788205377547.mp3";
+    private StorageClient storageClient;
+    private UploadSessionApiHandler handler;
+
+    /**
+     * javadoc for checkstyle.
+     */
+    @BeforeEach
+    public void init() {
+        Environment environment = mock(Environment.class);
+        when(environment.readEnv(ALLOWED_ORIGIN_ENV)).thenReturn("*");
+        storageClient = mock(StorageClient.class);
+        handler = new UploadSessionApiHandler(environment, storageClient);
+    }
+
+    @Test
+    void getSuccessStatusCodeReturnsCreated() {
+        assertEquals(HttpURLConnection.HTTP_CREATED, handler.getSuccessStatusCode(null, null));
+    }
+
+    @Test
+    void handlerStartsUploadSessionForTheGivenFile() throws ApiGatewayException {
+        UploadSessionResponse session = new UploadSessionResponse(OBJECT_KEY, null, null, "uploadId",
+                S3Connection.PART_SIZE_BYTES, List.of("https://part1", "https://part2"), "https://complete",
+                "https://abort", Instant.now());
+        long size = S3Connection.PART_SIZE_BYTES + 1L;
+        when(storageClient.startUploadSession(TEST_ISBN, StorageClient.MP3, size)).thenReturn(session);
+
+        UploadSessionResponse response = handler.processInput(
+                new UploadSessionRequest(" " + TEST_ISBN, ContentsDocument.AUDIO_FILE, size), new RequestInfo(),
+                mock(Context.class));
+
+        assertEquals(session, response);
+    }
+
+    @Test
+    void responseLeavesOutFieldsNotUsedForTheUpload() throws JsonProcessingException {
+        UploadSessionResponse session = new UploadSessionResponse(OBJECT_KEY, "https://upload",
+                Map.of("x-amz-meta-content-type", "audio/mpeg"), null, null, null, null, null, Instant.now());
+        String json = dtoObjectMapper.writeValueAsString(session);
+        assertTrue(json.contains(UploadSessionResponse.UPLOAD_URL));
+        assertFalse(json.contains(UploadSessionResponse.PART_URLS));
+        assertEquals(session, dtoObjectMapper.readValue(json, UploadSessionResponse.class));
+    }
+
+    @Test
+    void handlerRejectsUnknownFile() {
+        assertThrows(BadRequestException.class, () -> handler.processInput(
+                new UploadSessionRequest(TEST_ISBN, ContentsDocument.TITLE, 1L), new RequestInfo(),
+                mock(Context.class)));
+        verify(storageClient, never()).startUploadSession(anyString(), anyString(), any());
+    }
+
+    @Test
+    void handlerRejectsTooLargeFile() {
+        Exception exception = assertThrows(BadRequestException.class, () -> handler.processInput(
+                new UploadSessionRequest(TEST_ISBN, ContentsDocument.AUDIO_FILE, UploadSessionApiHandler.MAX_SIZE + 1),
+                new RequestInfo(), mock(Context.class)));
+        assertTrue(exception.getMessage().contains(String.valueOf(UploadSessionApiHandler.MAX_SIZE)));
+    }
+
+    @Test
+    void handlerRejectsMissingIsbn() {
+        assertThrows(BadRequestException.class, () -> handler.processInput(
+                new UploadSessionRequest(" ", ContentsDocument.IMAGE_SMALL, null), new RequestInfo(),
+                mock(Context.class)));
+    }
+
+    @Test
+    void handlerRejectsEmptyRequest() {
+        Exception exception = assertThrows(BadRequestException.class, () ->
+                handler.processInput(null, new RequestInfo(), mock(Context.class)));
+        assertEquals(UploadSessionApiHandler.NO_PARAMETERS_GIVEN_TO_HANDLER, exception.getMessage());
+    }
+
+}